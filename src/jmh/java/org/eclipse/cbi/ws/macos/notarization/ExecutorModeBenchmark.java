@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import com.google.common.hash.HashCode;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfo;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationTool;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.Notarizer;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+/**
+ * Runs 1,000 simulated concurrent requests through the upload, info polling and stapling stages,
+ * either on 32 platform threads or on virtual threads. Native processes are simulated by sleeping,
+ * which blocks a platform thread the same way waiting for xcrun does. The virtual mode requires
+ * running the benchmark on Java 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutorModeBenchmark {
+
+	private static final Duration UPLOAD_TIME = Duration.ofMillis(100);
+	private static final Duration INFO_TIME = Duration.ofMillis(10);
+	private static final Duration STAPLE_TIME = Duration.ofMillis(50);
+	private static final int POLLS_UNTIL_COMPLETED = 3;
+
+	@Param({"platform", "virtual"})
+	public String mode;
+
+	@Param({"1000"})
+	public int requests;
+
+	private ScheduledExecutorService executor;
+	private Scheduler scheduler;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if ("virtual".equals(mode)) {
+			executor = Executors.newScheduledThreadPool(2);
+			scheduler = VirtualThreadScheduler.create(executor, requests)
+				.orElseThrow(() -> new IllegalStateException("Virtual threads require Java 21+"));
+		} else {
+			executor = Executors.newScheduledThreadPool(32);
+			scheduler = Scheduler.of(executor);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public List<NotarizationInfoResult> notarize() {
+		SimulatedTool tool = new SimulatedTool();
+		List<CompletableFuture<NotarizationInfoResult>> results =
+			IntStream.range(0, requests)
+				.mapToObj(i -> notarize(tool, Paths.get("app-" + i + ".zip")))
+				.toList();
+		return results.stream().map(CompletableFuture::join).toList();
+	}
+
+	private CompletableFuture<NotarizationInfoResult> notarize(NotarizationTool tool, Path file) {
+		return Notarizer.builder()
+			.primaryBundleId("org.eclipse.benchmark")
+			.appleIDUsername("user")
+			.appleIDPassword("password")
+			.appleIDTeamID("team")
+			.fileToNotarize(file)
+			.uploadTimeout(Duration.ofMinutes(1))
+			.tool(tool)
+			.build()
+			.uploadFailsafe(scheduler, 1, Duration.ofMillis(10), Duration.ofMillis(100))
+			.thenCompose(r ->
+				NotarizationInfo.builder()
+					.appleIDUsername("user")
+					.appleIDPassword("password")
+					.appleIDTeamID("team")
+					.appleRequestUUID(r.appleRequestUUID())
+					.pollingTimeout(Duration.ofMinutes(1))
+					.tool(tool)
+					.build()
+					.retrieveInfoFailsafe(scheduler, Duration.ofMinutes(1), Duration.ofMillis(20), 1,
+										  Duration.ofMillis(10), Duration.ofMillis(100)))
+			.thenCompose(r ->
+				Failsafe.with(new RetryPolicy<NotarizationInfoResult>())
+					.with(scheduler)
+					.getAsync(() -> {
+						Thread.sleep(STAPLE_TIME.toMillis());
+						return r;
+					}));
+	}
+
+	private static class SimulatedTool implements NotarizationTool {
+		private final Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+
+		@Override
+		public NotarizerResult upload(String appleIDUsername, String appleIDPassword, String appleIDTeamID,
+									  String primaryBundleId, Path fileToNotarize, HashCode contentHash, Duration uploadTimeout) {
+			sleep(UPLOAD_TIME);
+			return NotarizerResult.builder()
+				.status(NotarizerResult.Status.UPLOAD_SUCCESSFUL)
+				.message("Uploaded")
+				.appleRequestUUID(fileToNotarize.toString())
+				.build();
+		}
+
+		@Override
+		public NotarizationInfoResult retrieveInfo(String appleIDUsername, String appleIDPassword, String appleIDTeamID,
+												   String appleRequestUUID, Duration pollingTimeout) {
+			sleep(INFO_TIME);
+			int count = polls.computeIfAbsent(appleRequestUUID, k -> new AtomicInteger()).incrementAndGet();
+			return NotarizationInfoResult.builder()
+				.status(count < POLLS_UNTIL_COMPLETED ? NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS
+													  : NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL)
+				.message(appleRequestUUID)
+				.build();
+		}
+
+		@Override
+		public String retrieveLog(String appleIDUsername, String appleIDPassword, String appleIDTeamID,
+								  String appleRequestUUID, Duration pollingTimeout) {
+			return "";
+		}
+
+		private static void sleep(Duration duration) {
+			try {
+				Thread.sleep(duration.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
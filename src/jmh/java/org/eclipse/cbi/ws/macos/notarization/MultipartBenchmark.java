@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Reads a notarization request body made of an options part and of a file part of the given size,
+ * the way {@link NotarizationService} does. {@code parts} only reads the part headers and skips the
+ * bodies, {@code upload} also parses the options and writes the file to disk while hashing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultipartBenchmark {
+
+	private static final String BOUNDARY = "----benchmark7MA4YWxkTrZu0gW";
+
+	@Param({"1024", "67108864"})
+	public int fileSize;
+
+	private byte[] body;
+	private Path folder;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		folder = Files.createTempDirectory("multipart-benchmark");
+		byte[] file = new byte[fileSize];
+		new Random(42).nextBytes(file);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(fileSize + 1024);
+		out.write(("--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"options\"\r\n"
+				+ "Content-Type: application/json\r\n\r\n"
+				+ "{\"primaryBundleId\":\"org.eclipse.benchmark\",\"staple\":true}\r\n"
+				+ "--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"benchmark.zip\"\r\n"
+				+ "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.write(file);
+		out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+		body = out.toByteArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(folder);
+	}
+
+	@Benchmark
+	public int parts() throws IOException {
+		int parts = 0;
+		try (MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY)) {
+			Optional<MultipartStream.Part> part;
+			while ((part = multipart.nextPart()).isPresent()) {
+				parts += part.get().name().isPresent() ? 1 : 0;
+				parts += part.get().submittedFilename().isPresent() ? 1 : 0;
+			}
+		}
+		return parts;
+	}
+
+	@Benchmark
+	public long upload() throws IOException {
+		String options = null;
+		UploadedFile file = null;
+		try (MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY)) {
+			Optional<MultipartStream.Part> part;
+			while ((part = multipart.nextPart()).isPresent()) {
+				if (part.get().name().filter("file"::equals).isPresent()) {
+					file = UploadedFile.write(part.get(), folder, Long.MAX_VALUE);
+				} else {
+					options = new String(ByteStreams.toByteArray(part.get().body()), StandardCharsets.UTF_8);
+				}
+			}
+		}
+		file.delete();
+		return file.size() + options.length();
+	}
+}
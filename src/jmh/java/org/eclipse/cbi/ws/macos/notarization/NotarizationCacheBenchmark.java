@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+/**
+ * Exercises the cache from 8 threads: status lookups, submissions of new files and submissions of
+ * files that are already being notarized (which share the cached request), alone and mixed together
+ * the way polling clients and uploads interleave. The journal is disabled to measure the cache only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotarizationCacheBenchmark {
+
+	private static final int CACHED_REQUESTS = 10_000;
+	private static final int DISTINCT_CONTENTS = 64;
+
+	private static final NotarizationRequestOptions OPTIONS =
+		NotarizationRequestOptions.builder().primaryBundleId("org.eclipse.benchmark").staple(false).build();
+
+	private Jsonb jsonb;
+	private NotarizationCache cache;
+	private NotarizationCache submissions;
+	private UUID[] uuids;
+	private HashCode[] contentHashes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jsonb = JsonbBuilder.create();
+		NotarizationJournal journal = new NotarizationJournal(false, "journal.jsonl", "P1D", Long.MAX_VALUE, jsonb);
+		cache = new NotarizationCache("P1D", journal);
+		// short enough for the new requests to be evicted while the benchmark runs
+		submissions = new NotarizationCache("PT1S", journal);
+		uuids = new UUID[CACHED_REQUESTS];
+		for (int i = 0; i < CACHED_REQUESTS; i++) {
+			uuids[i] = UUID.randomUUID();
+			// restored requests, so that lookups hit an entry with a known UUID
+			cache.put(uuids[i], request(null));
+		}
+		contentHashes = new HashCode[DISTINCT_CONTENTS];
+		for (int i = 0; i < DISTINCT_CONTENTS; i++) {
+			contentHashes[i] = Hashing.sha256().hashInt(i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		jsonb.close();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public NotarizationRequest getIfPresent() {
+		return cache.getIfPresent(uuids[ThreadLocalRandom.current().nextInt(CACHED_REQUESTS)]);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public UUID put() {
+		return submissions.put(request(null));
+	}
+
+	@Benchmark
+	@Threads(8)
+	public NotarizationCache.CachedRequest putIfAbsent() {
+		HashCode contentHash = contentHashes[ThreadLocalRandom.current().nextInt(DISTINCT_CONTENTS)];
+		return cache.putIfAbsent(contentHash, OPTIONS, () -> request(contentHash));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(7)
+	public NotarizationRequest mixedGetIfPresent() {
+		return getIfPresent();
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public NotarizationCache.CachedRequest mixedPutIfAbsent() {
+		return putIfAbsent();
+	}
+
+	private static NotarizationRequest request(HashCode contentHash) {
+		return NotarizationRequest.builderWithDefaultStatus()
+			.fileToNotarize(Path.of("benchmark.zip"))
+			.contentHash(contentHash)
+			.notarizationOptions(OPTIONS)
+			.request(CompletableFuture.completedFuture(null))
+			.build();
+	}
+}
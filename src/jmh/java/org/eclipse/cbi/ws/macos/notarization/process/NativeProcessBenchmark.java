@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.process;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of launching a native process and capturing its output, either in memory or
+ * in temporary files, with a command that does nothing but print a line the way xcrun prints its plist.
+ * Requires a POSIX shell.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeProcessBenchmark {
+
+	@Param({"memory", "files"})
+	public String capture;
+
+	@Benchmark
+	public int startAndWait() throws IOException, TimeoutException {
+		OutputCapture outputCapture = "files".equals(capture) ? OutputCapture.toFiles()
+															  : OutputCapture.inMemory(OutputCapture.DEFAULT_SPILL_THRESHOLD);
+		ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", "echo '<plist version=\"1.0\"><dict/></plist>'");
+		try (NativeProcess.Result result = NativeProcess.startAndWait(processBuilder, Duration.ofSeconds(10), outputCapture)) {
+			return result.exitValue();
+		}
+	}
+}
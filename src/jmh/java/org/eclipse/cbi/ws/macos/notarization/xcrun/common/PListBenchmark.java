@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses captured outputs of {@code notarytool submit}, {@code info} and {@code history}, either fully or
+ * keeping only the keys the notarizer reads. Run with {@code -prof gc} to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PListBenchmark {
+
+	private static final Set<String> SELECTED_KEYS = Set.of("id", "status", "message", "product-errors");
+
+	@Param({"submission-success", "info-in-progress", "history-success"})
+	public String output;
+
+	private byte[] xml;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		try (InputStream in = PListBenchmark.class.getResourceAsStream(
+				"/org/eclipse/cbi/ws/macos/notarization/xcrun/notarytool/" + output + ".log")) {
+			xml = in.readAllBytes();
+		}
+	}
+
+	@Benchmark
+	public PListDict full() throws IOException, SAXException {
+		return PListDict.fromXML(new ByteArrayInputStream(xml));
+	}
+
+	@Benchmark
+	public PListDict selective() throws IOException, SAXException {
+		return PListDict.fromXML(new ByteArrayInputStream(xml), SELECTED_KEYS);
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Packs and extracts a synthetic bundle tree of the given size, made of 90% small resource files and
+ * of a few large binaries, with one thread or with several. {@code roundTrip} goes through the steps
+ * of stapling a zip file: extraction, modification of a single file, and rewrite of the zip file. The content is half compressible text and
+ * half random bytes, to keep the deflater busy without making its job trivial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipBenchmark {
+
+	private static final int SMALL_FILE_SIZE = 16 * 1024;
+	private static final int LARGE_FILE_COUNT = 8;
+
+	@Param({"500"})
+	public int sizeMb;
+
+	@Param({"1", "8"})
+	public int parallelism;
+
+	private Path folder;
+	private Path tree;
+	private Path zip;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		folder = Files.createTempDirectory("zip-benchmark");
+		tree = folder.resolve("tree");
+		zip = folder.resolve("tree.zip");
+		Random random = new Random(42);
+		long size = sizeMb * 1024L * 1024L;
+		long smallFiles = size * 9 / 10 / SMALL_FILE_SIZE;
+		for (int i = 0; i < smallFiles; i++) {
+			write(tree.resolve("App.app/Contents/Resources/r" + (i % 64) + "/file-" + i + ".txt"), SMALL_FILE_SIZE, random);
+		}
+		for (int i = 0; i < LARGE_FILE_COUNT; i++) {
+			write(tree.resolve("App.app/Contents/Frameworks/F" + i + ".framework/F" + i), size / 10 / LARGE_FILE_COUNT, random);
+		}
+		ZipRewriter.pack(tree, zip, parallelism);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(folder)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Benchmark
+	public int pack() throws IOException {
+		return ZipRewriter.pack(tree, folder.resolve("packed.zip"), parallelism);
+	}
+
+	@Benchmark
+	public int extract() throws IOException {
+		return ZipExtractor.extract(zip, folder.resolve("extracted"), parallelism);
+	}
+
+	@Benchmark
+	public int roundTrip() throws IOException {
+		Path copy = Files.copy(zip, folder.resolve("round-trip.zip"), StandardCopyOption.REPLACE_EXISTING);
+		Path extracted = folder.resolve("round-trip");
+		ZipExtractor.extract(copy, extracted, parallelism);
+		ZipRewriter rewriter = ZipRewriter.snapshot(copy, extracted);
+		Files.writeString(extracted.resolve("App.app/Contents/CodeResources"), "stapled ticket");
+		return rewriter.rewrite(parallelism);
+	}
+
+	private static void write(Path file, long size, Random random) throws IOException {
+		Files.createDirectories(file.getParent());
+		byte[] chunk = new byte[4096];
+		try (OutputStream out = Files.newOutputStream(file)) {
+			for (long written = 0; written < size; written += chunk.length) {
+				if ((written / chunk.length) % 2 == 0) {
+					random.nextBytes(chunk);
+				} else {
+					for (int i = 0; i < chunk.length; i++) {
+						chunk[i] = (byte) ('a' + (i * 7 + written) % 26);
+					}
+				}
+				out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+			}
+		}
+	}
+}
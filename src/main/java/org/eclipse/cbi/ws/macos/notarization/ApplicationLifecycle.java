@@ -13,18 +13,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 
+import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.process.OutputCapture;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.opentelemetry.api.trace.Tracer;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
+import io.quarkus.runtime.configuration.MemorySize;
 
 @ApplicationScoped
 public class ApplicationLifecycle {
@@ -35,19 +43,56 @@ public class ApplicationLifecycle {
     @ConfigProperty(name = "notarization.cache.uploadedFiles", defaultValue = "/tmp/macos-notarization-service/pending-files")
     String pendingFiles;
 
+    @Inject
+    @ConfigProperty(name = "notarization.process.outputCapture", defaultValue = "memory")
+    String outputCapture;
+
+    @Inject
+    @ConfigProperty(name = "notarization.process.spillThreshold", defaultValue = "1M")
+    MemorySize spillThreshold;
+
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    NotarizationJournal journal;
+
+    @Inject
+    NotarizationService service;
+
     void onStart(@Observes StartupEvent ev) throws IOException {
+        NativeProcess.setTracer(tracer);
+        if ("file".equalsIgnoreCase(outputCapture)) {
+            NativeProcess.setDefaultOutputCapture(OutputCapture.toFiles());
+        } else {
+            NativeProcess.setDefaultOutputCapture(OutputCapture.inMemory((int) Math.min(spillThreshold.asLongValue(), Integer.MAX_VALUE)));
+        }
+
         Path pendingFilesPath = Paths.get(pendingFiles);
+        List<JournalEntry> journalEntries = journal.replay();
 
         if (!Files.isDirectory(pendingFilesPath)) {
             LOGGER.info("Creating folder '{}'", pendingFilesPath);
             Files.createDirectories(pendingFilesPath);
         } else {
             LOGGER.info("Cleaning up folder '{}'", pendingFilesPath);
-            try (Stream<File> filesToDelete = Files.walk(pendingFilesPath).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+            // keep the files of the requests that will be resumed from the journal
+            Set<Path> filesToKeep =
+                journalEntries.stream()
+                    .map(JournalEntry::fileToNotarize)
+                    .filter(Objects::nonNull)
+                    .map(Paths::get)
+                    .collect(Collectors.toSet());
+            try (Stream<File> filesToDelete =
+                     Files.walk(pendingFilesPath)
+                         .filter(p -> !p.equals(pendingFilesPath) && !filesToKeep.contains(p))
+                         .sorted(Comparator.reverseOrder())
+                         .map(Path::toFile)) {
                 filesToDelete.forEach(File::delete);
             }
-            Files.createDirectories(pendingFilesPath);
         }
+
+        service.resume(journalEntries);
     }
 
     void onStop(@Observes ShutdownEvent ev) {
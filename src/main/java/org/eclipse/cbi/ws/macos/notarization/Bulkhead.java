@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+/**
+ * Failsafe scheduler dedicated to one stage of the notarization pipeline (upload, info polling or
+ * stapling). At most maxConcurrency attempts of the stage run at the same time on the underlying
+ * scheduler, the others wait in the stage's own FIFO queue. This way a burst of attempts of one
+ * stage cannot take the capacity of the other stages.
+ * <p>
+ * Each attempt is traced with its own span, child of the context it has been scheduled from.
+ */
+public class Bulkhead implements Scheduler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Bulkhead.class);
+
+	private final String name;
+	private final Scheduler delegate;
+	private final int maxConcurrency;
+	private final Tracer tracer;
+
+	// guarded by this
+	private final Queue<QueuedTask> queue = new ArrayDeque<>();
+	// guarded by this
+	private int running;
+
+	private final LongAdder dispatched = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	public Bulkhead(String name, Scheduler delegate, int maxConcurrency) {
+		this(name, delegate, maxConcurrency, TracerProvider.noop().get(Bulkhead.class.getName()));
+	}
+
+	public Bulkhead(String name, Scheduler delegate, int maxConcurrency, Tracer tracer) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Max concurrency of stage '" + name + "' must be at least 1");
+		}
+		this.name = name;
+		this.delegate = delegate;
+		this.maxConcurrency = maxConcurrency;
+		this.tracer = tracer;
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Callable<?> callable, long delay, TimeUnit unit) {
+		QueuedTask task = new QueuedTask(callable, Context.current());
+		ScheduledFuture<?> delayed = delegate.schedule(() -> {
+			enqueue(task);
+			return null;
+		}, delay, unit);
+		return new DelayedTask(delayed, task);
+	}
+
+	private void enqueue(QueuedTask task) {
+		synchronized (this) {
+			task.enqueuedAt = System.nanoTime();
+			queue.add(task);
+			if (running >= maxConcurrency) {
+				LOGGER.debug("Stage '{}' is at max concurrency ({}), {} attempt(s) waiting", name, maxConcurrency, queue.size());
+			}
+		}
+		dispatch();
+	}
+
+	private void dispatch() {
+		QueuedTask next;
+		synchronized (this) {
+			if (running >= maxConcurrency || queue.isEmpty()) {
+				return;
+			}
+			next = queue.remove();
+			running++;
+		}
+
+		long waitNanos = System.nanoTime() - next.enqueuedAt;
+		dispatched.increment();
+		totalWaitNanos.add(waitNanos);
+		maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+		delegate.schedule(() -> {
+			Span span = tracer.spanBuilder(name + " attempt")
+				.setParent(next.context)
+				.setAttribute("notarization.stage", name)
+				.setAttribute("notarization.stage.wait_ms", TimeUnit.NANOSECONDS.toMillis(waitNanos))
+				.startSpan();
+			try (Scope scope = span.makeCurrent()) {
+				next.run();
+			} finally {
+				span.end();
+				synchronized (this) {
+					running--;
+				}
+				dispatch();
+			}
+			return null;
+		}, 0, TimeUnit.NANOSECONDS);
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int maxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Returns the number of attempts of this stage that are currently running.
+	 */
+	public synchronized int running() {
+		return running;
+	}
+
+	/**
+	 * Returns the number of attempts of this stage that are due but waiting for capacity.
+	 */
+	public synchronized int queueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the number of attempts that have been started since the stage has been created.
+	 */
+	public long dispatched() {
+		return dispatched.sum();
+	}
+
+	/**
+	 * Returns the cumulated time attempts have waited in the queue before being started.
+	 */
+	public Duration totalWaitTime() {
+		return Duration.ofNanos(totalWaitNanos.sum());
+	}
+
+	/**
+	 * Returns the longest time an attempt has waited in the queue before being started.
+	 */
+	public Duration maxWaitTime() {
+		return Duration.ofNanos(maxWaitNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead[" + name + ", running=" + running() + "/" + maxConcurrency + ", queued=" + queueDepth() + "]";
+	}
+
+	private static class QueuedTask extends FutureTask<Object> {
+		private final Context context;
+		// guarded by Bulkhead.this
+		private long enqueuedAt;
+
+		@SuppressWarnings("unchecked")
+		QueuedTask(Callable<?> callable, Context context) {
+			super((Callable<Object>) callable);
+			this.context = context;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+
+/**
+ * The content codings accepted on uploads, either on the whole request body or on the file part. The
+ * content is decoded on the fly while it is read, it is never inflated in memory.
+ */
+enum ContentEncoding {
+	IDENTITY("identity"),
+	GZIP("gzip"),
+	ZSTD("zstd");
+
+	private final String token;
+
+	ContentEncoding(String token) {
+		this.token = token;
+	}
+
+	String token() {
+		return token;
+	}
+
+	/**
+	 * Returns the coding of the given {@code Content-Encoding} header value, {@link #IDENTITY} if there is
+	 * none.
+	 *
+	 * @throws UnsupportedContentEncodingException if the coding is not supported, or if several codings
+	 *         are applied.
+	 */
+	static ContentEncoding of(@Nullable String header) throws UnsupportedContentEncodingException {
+		if (header == null || header.isBlank()) {
+			return IDENTITY;
+		}
+		String coding = header.trim().toLowerCase(Locale.ROOT);
+		if ("x-gzip".equals(coding)) {
+			return GZIP;
+		}
+		for (ContentEncoding encoding : values()) {
+			if (encoding.token.equals(coding)) {
+				return encoding;
+			}
+		}
+		throw new UnsupportedContentEncodingException("Unsupported Content-Encoding '" + header + "', must be one of gzip or zstd.");
+	}
+
+	/**
+	 * Returns a stream of the decoded content of the given stream. Failures to read the given stream are
+	 * thrown as is, while invalid encoded content is thrown as a {@link MalformedContentException}.
+	 */
+	InputStream decode(InputStream encoded) throws IOException {
+		if (this == IDENTITY) {
+			return encoded;
+		}
+		SourceInputStream source = new SourceInputStream(encoded);
+		try {
+			InputStream decoder = this == GZIP ? new GzipCompressorInputStream(source, true) : new ZstdCompressorInputStream(source);
+			return new DecodedInputStream(decoder, source);
+		} catch (IOException e) {
+			throw source.failed ? e : new MalformedContentException(this, e);
+		}
+	}
+
+	/**
+	 * Thrown when the coding of the content is not supported.
+	 */
+	static class UnsupportedContentEncodingException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedContentEncodingException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Thrown when the content cannot be decoded.
+	 */
+	static class MalformedContentException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		MalformedContentException(ContentEncoding encoding, IOException cause) {
+			super("Content is not valid " + encoding.token + ": " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Records whether reading the encoded stream itself has failed, to tell it apart from decoding errors.
+	 */
+	private static class SourceInputStream extends FilterInputStream {
+		private volatile boolean failed;
+
+		SourceInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (IOException e) {
+				failed = true;
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				return super.read(b, off, len);
+			} catch (IOException e) {
+				failed = true;
+				throw e;
+			}
+		}
+	}
+
+	private class DecodedInputStream extends FilterInputStream {
+		private final SourceInputStream source;
+
+		DecodedInputStream(InputStream decoder, SourceInputStream source) {
+			super(decoder);
+			this.source = source;
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (IOException e) {
+				throw source.failed ? e : new MalformedContentException(ContentEncoding.this, e);
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			try {
+				return super.read(b, off, len);
+			} catch (IOException e) {
+				throw source.failed ? e : new MalformedContentException(ContentEncoding.this, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A task that is first delayed on a scheduler, and then handed over to be run somewhere else.
+ * Cancelling it cancels both the delay and the task.
+ */
+record DelayedTask(ScheduledFuture<?> delayed, FutureTask<?> task) implements ScheduledFuture<Object> {
+
+	@Override
+	public long getDelay(TimeUnit unit) {
+		return delayed.getDelay(unit);
+	}
+
+	@Override
+	public int compareTo(Delayed o) {
+		return delayed.compareTo(o);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		delayed.cancel(false);
+		return task.cancel(mayInterruptIfRunning);
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return task.isCancelled();
+	}
+
+	@Override
+	public boolean isDone() {
+		return task.isDone();
+	}
+
+	@Override
+	public Object get() throws InterruptedException, ExecutionException {
+		return task.get();
+	}
+
+	@Override
+	public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		return task.get(timeout, unit);
+	}
+}
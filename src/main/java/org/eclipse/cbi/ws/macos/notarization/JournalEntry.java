@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusBuilder;
+
+/**
+ * A line of the {@link NotarizationJournal}: the state of a request at a given time. The notarization
+ * log is left out of the status, as it is not needed to resume the request and can be large.
+ */
+public record JournalEntry(
+		UUID uuid,
+		Instant timestamp,
+		boolean removed,
+		@Nullable String fileToNotarize,
+		@Nullable String submittedFilename,
+		@Nullable String contentHash,
+		@Nullable NotarizationRequestOptions options,
+		@Nullable String appleRequestUUID,
+		@Nullable NotarizationStatus status) {
+
+	static JournalEntry of(UUID uuid, NotarizationRequest request) {
+		return new JournalEntry(uuid,
+								Instant.now(),
+								false,
+								request.fileToNotarize().toString(),
+								request.submittedFilename(),
+								request.contentHash() != null ? request.contentHash().toString() : null,
+								request.notarizationOptions(),
+								request.appleRequestUUID().get(),
+								NotarizationStatusBuilder.builder(request.status().get()).log(null).build());
+	}
+
+	static JournalEntry removal(UUID uuid) {
+		return new JournalEntry(uuid, Instant.now(), true, null, null, null, null, null, null);
+	}
+}
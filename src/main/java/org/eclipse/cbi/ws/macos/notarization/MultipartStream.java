@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+
+/**
+ * Streaming reader of a multipart/form-data body (RFC 7578). Parts are read one after another
+ * straight from the request stream through a fixed size buffer, so that the body of a part can be
+ * written to its final destination without being buffered in memory or in a temporary file first.
+ */
+class MultipartStream implements AutoCloseable {
+
+	private static final Splitter SPLITTER_ON_EQUALSIGN = Splitter.on('=').limit(2).trimResults().omitEmptyStrings();
+	private static final Splitter SPLITTER_ON_SEMICOLON = Splitter.on(';').trimResults().omitEmptyStrings();
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_HEADER_LINE_LENGTH = 8 * 1024;
+	private static final int MAX_HEADERS = 32;
+
+	private final InputStream input;
+	private final byte[] delimiter;
+	private final byte[] buffer;
+	private int position;
+	private int limit;
+	private boolean eof;
+
+	private Part currentPart;
+	private boolean finished;
+
+	MultipartStream(InputStream input, String boundary) {
+		this.input = input;
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+		this.buffer = new byte[Math.max(BUFFER_SIZE, 2 * delimiter.length)];
+		// the first delimiter is not required to be preceded by a line break
+		buffer[0] = '\r';
+		buffer[1] = '\n';
+		this.limit = 2;
+	}
+
+	/**
+	 * Returns the next part of the body, skipping whatever has not been read from the previous one.
+	 */
+	Optional<Part> nextPart() throws IOException {
+		if (finished) {
+			return Optional.empty();
+		}
+		if (currentPart != null) {
+			currentPart.skip();
+		} else {
+			skipPreamble();
+		}
+		if (!ensureAvailable(2)) {
+			throw new MalformedMultipartException("Unexpected end of stream after multipart delimiter");
+		}
+		if (buffer[position] == '-' && buffer[position + 1] == '-') {
+			finished = true;
+			return Optional.empty();
+		}
+		skipLine();
+		currentPart = new Part(readHeaders());
+		return Optional.of(currentPart);
+	}
+
+	private void skipPreamble() throws IOException {
+		while (true) {
+			int index = indexOfDelimiter(limit);
+			if (index >= 0) {
+				position = index + delimiter.length;
+				return;
+			}
+			position = Math.max(position, limit - delimiter.length + 1);
+			if (!fill()) {
+				throw new MalformedMultipartException("Unable to find the first multipart delimiter");
+			}
+		}
+	}
+
+	private Map<String, String> readHeaders() throws IOException {
+		Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		String line;
+		while (!(line = readLine()).isEmpty()) {
+			int colon = line.indexOf(':');
+			if (colon <= 0) {
+				throw new MalformedMultipartException("Malformed multipart header line '" + line + "'");
+			}
+			if (headers.size() >= MAX_HEADERS) {
+				throw new MalformedMultipartException("Too many headers in multipart part");
+			}
+			headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+		}
+		return headers;
+	}
+
+	private String readLine() throws IOException {
+		while (true) {
+			for (int i = position; i < limit - 1; i++) {
+				if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+					String line = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+					position = i + 2;
+					return line;
+				}
+			}
+			if (limit - position > MAX_HEADER_LINE_LENGTH) {
+				throw new MalformedMultipartException("Multipart header line is too long");
+			}
+			if (!fill()) {
+				throw new MalformedMultipartException("Unexpected end of stream while reading multipart headers");
+			}
+		}
+	}
+
+	private void skipLine() throws IOException {
+		readLine();
+	}
+
+	/**
+	 * Returns the index of the first delimiter of the buffered data that starts between the current
+	 * position and the given index (inclusive), or -1 if there is none.
+	 */
+	private int indexOfDelimiter(int last) {
+		last = Math.min(last, limit - delimiter.length);
+		outer:
+		for (int i = position; i <= last; i++) {
+			if (buffer[i] != delimiter[0]) {
+				continue;
+			}
+			for (int j = 1; j < delimiter.length; j++) {
+				if (buffer[i + j] != delimiter[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private boolean ensureAvailable(int count) throws IOException {
+		while (limit - position < count) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the unread data at the beginning of the buffer and reads more data after it.
+	 * Returns false if the end of the stream has been reached and nothing more could be read.
+	 */
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		if (limit == buffer.length) {
+			return false;
+		}
+		int read = input.read(buffer, limit, buffer.length - limit);
+		if (read < 0) {
+			eof = true;
+			return false;
+		}
+		limit += read;
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		input.close();
+	}
+
+	static class MalformedMultipartException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		MalformedMultipartException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * A part of the multipart body. Its content can only be consumed once, and only until the next
+	 * call to {@link MultipartStream#nextPart()}.
+	 */
+	class Part {
+		private final Map<String, String> headers;
+		private boolean ended;
+
+		private Part(Map<String, String> headers) {
+			this.headers = Collections.unmodifiableMap(headers);
+		}
+
+		Map<String, String> headers() {
+			return headers;
+		}
+
+		Optional<String> header(String name) {
+			return Optional.ofNullable(headers.get(name));
+		}
+
+		Optional<String> name() {
+			return contentDispositionParameter("name");
+		}
+
+		Optional<String> submittedFilename() {
+			return contentDispositionParameter("filename");
+		}
+
+		private Optional<String> contentDispositionParameter(String parameterName) {
+			String cdHeader = headers.get("Content-Disposition");
+			if (!Strings.isNullOrEmpty(cdHeader)) {
+				List<String> parameter = StreamSupport.stream(SPLITTER_ON_SEMICOLON.split(cdHeader).spliterator(), false)
+						.map(SPLITTER_ON_EQUALSIGN::splitToList)
+						.filter(l -> l.size() > 1 && l.get(0).toLowerCase(Locale.ROOT).equals(parameterName))
+						.findFirst()
+						.orElse(Collections.emptyList());
+				if (!parameter.isEmpty()) {
+					return Optional.of(parameter.get(1).replaceAll("\"", ""));
+				}
+			}
+			return Optional.empty();
+		}
+
+		/**
+		 * Returns the content of this part as a stream.
+		 */
+		InputStream body() {
+			return new InputStream() {
+				@Override
+				public int read() throws IOException {
+					byte[] single = new byte[1];
+					return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					if (len == 0) {
+						return 0;
+					}
+					int available = nextChunk(len);
+					if (available < 0) {
+						return -1;
+					}
+					System.arraycopy(buffer, position, b, off, available);
+					position += available;
+					return available;
+				}
+			};
+		}
+
+		/**
+		 * Writes the whole content of this part to the given channel, directly from the read buffer, and
+		 * feeds it to the given hasher on the way. Returns the number of bytes written.
+		 */
+		long transferTo(WritableByteChannel target, Hasher hasher) throws IOException {
+			long transferred = 0;
+			int available;
+			while ((available = nextChunk(Integer.MAX_VALUE)) >= 0) {
+				ByteBuffer chunk = ByteBuffer.wrap(buffer, position, available);
+				hasher.putBytes(chunk.duplicate());
+				while (chunk.hasRemaining()) {
+					target.write(chunk);
+				}
+				position += available;
+				transferred += available;
+			}
+			return transferred;
+		}
+
+		private void skip() throws IOException {
+			int available;
+			while ((available = nextChunk(Integer.MAX_VALUE)) >= 0) {
+				position += available;
+			}
+		}
+
+		/**
+		 * Returns the number of bytes of this part that are available in the buffer starting at the
+		 * current position (at most maxLength), or -1 if the end of this part has been reached. In the
+		 * latter case, the delimiter is consumed.
+		 */
+		private int nextChunk(int maxLength) throws IOException {
+			if (ended) {
+				return -1;
+			}
+			while (true) {
+				int last = (int) Math.min(limit - delimiter.length, (long) position + maxLength - 1);
+				int index = indexOfDelimiter(last);
+				if (index == position) {
+					position += delimiter.length;
+					ended = true;
+					return -1;
+				} else if (index > position) {
+					return index - position;
+				} else if (last >= position) {
+					// no delimiter starts in [position, last], so these bytes belong to the part
+					return last - position + 1;
+				}
+				if (!fill()) {
+					throw new MalformedMultipartException("Unexpected end of stream in multipart part");
+				}
+			}
+		}
+	}
+}
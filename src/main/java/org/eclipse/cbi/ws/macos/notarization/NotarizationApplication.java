@@ -10,6 +10,7 @@ package org.eclipse.cbi.ws.macos.notarization;
 import jakarta.ws.rs.ApplicationPath;
 import jakarta.ws.rs.core.Application;
 
-@ApplicationPath("/macos-notarization-service")
+@ApplicationPath(NotarizationApplication.PATH)
 public class NotarizationApplication extends Application {
+	static final String PATH = "/macos-notarization-service";
 }
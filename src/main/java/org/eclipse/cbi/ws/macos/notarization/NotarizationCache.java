@@ -10,9 +10,20 @@ package org.eclipse.cbi.ws.macos.notarization;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -21,22 +32,57 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListeners;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationBatchStatus;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptionsBuilder;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatuses;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @ApplicationScoped
-public class NotarizationCache {
+public class NotarizationCache implements MeterBinder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationCache.class);
 
     private final Cache<UUID, NotarizationRequest> cache;
 
+    /**
+     * The requests of each batch submission, by batch ID.
+     */
+    private final Cache<UUID, List<UUID>> batches;
+
+    /**
+     * Index of the cached requests by the content of the file they notarize and the options
+     * they have been submitted with. Entries are removed when the request is evicted from the cache.
+     */
+    private final ConcurrentMap<ContentKey, UUID> uuidsByContent = new ConcurrentHashMap<>();
+
+    /**
+     * Version of the last status change of each cached request. Versions are taken from a single
+     * sequence, seeded with the current time so that they keep increasing across restarts.
+     */
+    private final ConcurrentMap<UUID, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong lastVersion = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final NotarizationJournal journal;
+
     @Inject
     NotarizationCache(
-            @ConfigProperty(name = "notarization.cache.expireAfterWrite", defaultValue = "P1D") String cacheExpireAfterWrite) {
+            @ConfigProperty(name = "notarization.cache.expireAfterWrite", defaultValue = "P1D") String cacheExpireAfterWrite,
+            NotarizationJournal journal) {
+        this.journal = journal;
+        batches = CacheBuilder.newBuilder().expireAfterWrite(Duration.parse(cacheExpireAfterWrite)).build();
         cache =
             CacheBuilder.newBuilder()
                 .expireAfterWrite(Duration.parse(cacheExpireAfterWrite))
@@ -44,6 +90,9 @@ public class NotarizationCache {
                 .removalListener(RemovalListeners.asynchronous((RemovalNotification<UUID, NotarizationRequest> notification) -> {
                     final NotarizationRequest request = notification.getValue();
                     LOGGER.trace("Removing expired request {} from cache", request);
+                    ContentKey.of(request).ifPresent(key -> uuidsByContent.remove(key, notification.getKey()));
+                    versions.remove(notification.getKey());
+                    journal.recordRemoval(notification.getKey());
                     if (!request.request().isDone()) {
                         LOGGER.warn("The notarization background process was not done before removal from cache. It will be cancelled");
                         request.request().cancel(true);
@@ -70,10 +119,144 @@ public class NotarizationCache {
             throw new RuntimeException(e);
         }
         LOGGER.trace("Added request {} to cache (uuid={})", request, uuid);
+        track(uuid, request);
         return uuid;
     }
 
+    /**
+     * Puts a request that has been restored from the journal back in the cache, with its former UUID.
+     */
+    void put(UUID uuid, NotarizationRequest request) {
+        cache.put(uuid, request);
+        ContentKey.of(request).ifPresent(key -> uuidsByContent.putIfAbsent(key, uuid));
+        LOGGER.trace("Restored request {} in cache (uuid={})", request, uuid);
+        track(uuid, request);
+    }
+
+    private void track(UUID uuid, NotarizationRequest request) {
+        request.addListener((r, status) -> {
+            // the listener is notified with the instance the request has been executed from, while the
+            // cache holds the one returned by execute(): they share the same status
+            NotarizationRequest cached = cache.getIfPresent(uuid);
+            // do not resurrect a request that has been removed but is still running
+            if (cached != null && cached.status() == r.status()) {
+                versions.put(uuid, lastVersion.incrementAndGet());
+                journal.record(uuid, cached);
+            }
+        });
+        // record the current state, status changes may have happened before the listener was added
+        versions.put(uuid, lastVersion.incrementAndGet());
+        journal.record(uuid, request);
+    }
+
+    /**
+     * Returns the request that is already notarizing (or has successfully notarized) a file with the
+     * given content and options, or puts the request created by the given factory in the cache otherwise.
+     * Concurrent calls for the same content are serialized, so that at most one of them creates a request.
+     */
+    CachedRequest putIfAbsent(HashCode contentHash, NotarizationRequestOptions options, Supplier<NotarizationRequest> requestFactory) {
+        CachedRequest[] result = new CachedRequest[1];
+        uuidsByContent.compute(ContentKey.of(contentHash, options), (key, existingUUID) -> {
+            if (existingUUID != null) {
+                NotarizationRequest existing = cache.getIfPresent(existingUUID);
+                if (existing != null && existing.status().get().status() != NotarizationStatus.State.ERROR) {
+                    LOGGER.debug("Request {} already notarizes a file with content {}, sharing it", existingUUID, contentHash);
+                    result[0] = new CachedRequest(existingUUID, existing, true);
+                    return existingUUID;
+                }
+            }
+            NotarizationRequest request = requestFactory.get();
+            UUID uuid = put(request);
+            result[0] = new CachedRequest(uuid, request, false);
+            return uuid;
+        });
+        return result[0];
+    }
+
     NotarizationRequest getIfPresent(UUID uuid) {
         return cache.getIfPresent(uuid);
     }
+
+    /**
+     * Returns the statuses of the given requests that have changed after the given version, with the
+     * version to pass to get the subsequent changes.
+     */
+    NotarizationStatuses statuses(Collection<UUID> uuids, long since) {
+        // read before the statuses: a change with a lower version has already been applied
+        long version = lastVersion.get();
+        Map<UUID, NotarizationRequest> requests = cache.getAllPresent(uuids);
+        List<NotarizationStatusWithUUID> statuses = new ArrayList<>(requests.size());
+        requests.forEach((uuid, request) -> {
+            Long requestVersion = versions.get(uuid);
+            if (requestVersion == null || requestVersion > since) {
+                statuses.add(NotarizationStatusWithUUID.from(uuid, request.status().get()));
+            }
+        });
+        List<UUID> unknown = uuids.stream().filter(uuid -> !requests.containsKey(uuid)).distinct().toList();
+        return new NotarizationStatuses(version, statuses, unknown);
+    }
+
+    /**
+     * Registers the hit, miss and eviction counts of the cache, and the number of cached requests in each state.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, cache, "notarization.cache");
+        for (NotarizationStatus.State state : NotarizationStatus.State.values()) {
+            Gauge.builder("notarization.requests", this, c -> c.count(state))
+                .description("Number of cached notarization requests by state")
+                .tag("state", state.name())
+                .register(registry);
+        }
+    }
+
+    private long count(NotarizationStatus.State state) {
+        return cache.asMap().values().stream().filter(request -> request.status().get().status() == state).count();
+    }
+
+    /**
+     * Records a batch of requests, and returns its ID.
+     */
+    UUID putBatch(List<UUID> uuids) {
+        UUID batchId;
+        do {
+            batchId = UUID.randomUUID();
+        } while (batches.asMap().putIfAbsent(batchId, List.copyOf(uuids)) != null);
+        return batchId;
+    }
+
+    /**
+     * Returns the aggregate status of the given batch, with the statuses of its requests that have
+     * changed after the given version.
+     */
+    Optional<NotarizationBatchStatus> batchStatus(UUID batchId, long since) {
+        List<UUID> uuids = batches.getIfPresent(batchId);
+        if (uuids == null) {
+            return Optional.empty();
+        }
+        NotarizationStatuses statuses = statuses(uuids, since);
+        Set<NotarizationStatus.State> states =
+            cache.getAllPresent(uuids).values().stream()
+                .map(request -> request.status().get().status())
+                .collect(Collectors.toSet());
+        // requests evicted before the batch (e.g. shared with an older submission) cannot be complete
+        NotarizationStatus.State state =
+            !statuses.unknown().isEmpty() || states.contains(NotarizationStatus.State.ERROR) ? NotarizationStatus.State.ERROR
+                : states.contains(NotarizationStatus.State.IN_PROGRESS) ? NotarizationStatus.State.IN_PROGRESS
+                : NotarizationStatus.State.COMPLETE;
+        return Optional.of(new NotarizationBatchStatus(batchId, state, statuses));
+    }
+
+    record CachedRequest(UUID uuid, NotarizationRequest request, boolean shared) {}
+
+    private record ContentKey(HashCode contentHash, NotarizationRequestOptions options) {
+        static Optional<ContentKey> of(NotarizationRequest request) {
+            return Optional.ofNullable(request.contentHash()).map(hash -> of(hash, request.notarizationOptions()));
+        }
+
+        static ContentKey of(HashCode contentHash, NotarizationRequestOptions options) {
+            // submissions only differing by their callback share the same notarization
+            return new ContentKey(contentHash, NotarizationRequestOptionsBuilder.builder(options).callbackUrl(null).build());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbException;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Append-only journal of the state transitions of the notarization requests, one JSON
+ * {@link JournalEntry} per line. It is replayed on startup so that the requests that were in
+ * progress when the service stopped can be resumed instead of being lost.
+ * <p>
+ * The journal is compacted to the latest entry of each request on startup, and while running, once
+ * it has grown past the compaction threshold and twice its size after the previous compaction.
+ */
+@ApplicationScoped
+public class NotarizationJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationJournal.class);
+
+    private final boolean enabled;
+    private final Path journalFile;
+    private final Duration retention;
+    private final long compactionThreshold;
+    private final Jsonb jsonb;
+
+    // guarded by this
+    private BufferedWriter writer;
+    // guarded by this, the latest entry of each request, once the journal has been replayed
+    private final Map<UUID, JournalEntry> latestEntries = new LinkedHashMap<>();
+    private boolean replayed;
+    private long size;
+    private long compactedSize;
+
+    @Inject
+    NotarizationJournal(
+            @ConfigProperty(name = "notarization.journal.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "notarization.journal.file", defaultValue = "/tmp/macos-notarization-service/journal.jsonl") String journalFile,
+            @ConfigProperty(name = "notarization.cache.expireAfterWrite", defaultValue = "P1D") String cacheExpireAfterWrite,
+            @ConfigProperty(name = "notarization.journal.compactionThreshold", defaultValue = "16M") MemorySize compactionThreshold,
+            Jsonb jsonb) {
+        this(enabled, journalFile, cacheExpireAfterWrite, compactionThreshold.asLongValue(), jsonb);
+    }
+
+    NotarizationJournal(boolean enabled, String journalFile, String cacheExpireAfterWrite, long compactionThreshold, Jsonb jsonb) {
+        this.enabled = enabled;
+        this.journalFile = Paths.get(journalFile);
+        this.retention = Duration.parse(cacheExpireAfterWrite);
+        this.compactionThreshold = compactionThreshold;
+        this.jsonb = jsonb;
+    }
+
+    /**
+     * Reads the journal and returns the latest entry of each request that has not been removed
+     * and is not older than the cache retention. The journal is compacted to these entries.
+     */
+    synchronized List<JournalEntry> replay() throws IOException {
+        if (!enabled) {
+            return List.of();
+        }
+
+        latestEntries.clear();
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        JournalEntry entry = jsonb.fromJson(line, JournalEntry.class);
+                        if (entry.removed()) {
+                            latestEntries.remove(entry.uuid());
+                        } else {
+                            latestEntries.put(entry.uuid(), entry);
+                        }
+                    } catch (JsonbException e) {
+                        // most likely a line that was partially written when the service stopped
+                        LOGGER.warn("Ignoring unreadable journal entry '{}'", line, e);
+                    }
+                }
+            }
+        }
+
+        List<JournalEntry> entries = compact();
+        replayed = true;
+        LOGGER.info("Replayed {} request(s) from journal '{}'", entries.size(), journalFile);
+        return entries;
+    }
+
+    /**
+     * Rewrites the journal with the latest entry of each request that is not older than the cache
+     * retention, and returns these entries. The journal is replaced atomically, so that it is never
+     * lost if the service stops meanwhile.
+     */
+    private List<JournalEntry> compact() throws IOException {
+        Instant oldest = Instant.now().minus(retention);
+        latestEntries.values().removeIf(e -> !e.timestamp().isAfter(oldest));
+        List<JournalEntry> entries = List.copyOf(latestEntries.values());
+
+        closeWriter();
+        Files.createDirectories(journalFile.toAbsolutePath().getParent());
+        Path compacted = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (BufferedWriter compactedWriter = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (JournalEntry entry : entries) {
+                compactedWriter.write(jsonb.toJson(entry));
+                compactedWriter.newLine();
+            }
+        }
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        size = Files.size(journalFile);
+        compactedSize = size;
+        return entries;
+    }
+
+    /**
+     * Appends the current state of the given request to the journal.
+     */
+    synchronized void record(UUID uuid, NotarizationRequest request) {
+        if (enabled) {
+            JournalEntry entry = JournalEntry.of(uuid, request);
+            latestEntries.put(uuid, entry);
+            append(entry);
+        }
+    }
+
+    /**
+     * Records that the given request has been removed and must not be replayed.
+     */
+    synchronized void recordRemoval(UUID uuid) {
+        if (enabled) {
+            latestEntries.remove(uuid);
+            append(JournalEntry.removal(uuid));
+        }
+    }
+
+    private void append(JournalEntry entry) {
+        try {
+            if (writer == null) {
+                Files.createDirectories(journalFile.toAbsolutePath().getParent());
+                writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                                                 StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                size = Files.size(journalFile);
+            }
+            String line = jsonb.toJson(entry);
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+            size += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write entry to journal '" + journalFile + "':\n" + entry, e);
+            return;
+        }
+
+        // the entries of the requests that were not replayed are unknown, they must not be dropped
+        if (replayed && size > Math.max(compactionThreshold, 2 * compactedSize)) {
+            try {
+                int entries = compact().size();
+                LOGGER.debug("Compacted journal '{}' to {} request(s)", journalFile, entries);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to compact journal '" + journalFile + "'", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close journal '" + journalFile + "'", e);
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.StatusPolls;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Suppliers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Metrics of the notarization pipeline: the duration of each stage of the requests, the load of the
+ * stage bulkheads and of the shared executor, and the disk space used by the files being notarized.
+ * The metrics of the cache are registered by {@link NotarizationCache}, and the duration of the native
+ * processes by {@link NativeProcess}.
+ */
+@ApplicationScoped
+public class NotarizationMetrics implements MeterBinder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationMetrics.class);
+
+	// walking the pending files is not cheap, so the size is computed at most once per interval whatever the scrape rate
+	private static final Duration PENDING_FILES_REFRESH = Duration.ofSeconds(30);
+
+	@Inject
+	@Named("upload")
+	Bulkhead uploadStage;
+
+	@Inject
+	@Named("infoPolling")
+	Bulkhead infoPollingStage;
+
+	@Inject
+	@Named("stapling")
+	Bulkhead staplingStage;
+
+	@Inject
+	@Named("staplingBundles")
+	Bulkhead staplingBundlesStage;
+
+	@Inject
+	@Named("macos-notarization-service-pool")
+	ScheduledExecutorService executor;
+
+	@Inject
+	@ConfigProperty(name = "notarization.cache.uploadedFiles", defaultValue = "/tmp/macos-notarization-service/pending-files")
+	String pendingFilesPath;
+
+	private volatile MeterRegistry registry = Metrics.globalRegistry;
+
+	private final Supplier<Double> pendingFilesSize =
+		Suppliers.memoizeWithExpiration(this::walkPendingFiles, PENDING_FILES_REFRESH.toNanos(), TimeUnit.NANOSECONDS);
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		NativeProcess.setMeterRegistry(registry);
+		StatusPolls.setMeterRegistry(registry);
+
+		for (Bulkhead stage : List.of(uploadStage, infoPollingStage, staplingStage, staplingBundlesStage)) {
+			Gauge.builder("notarization.stage.running", stage, Bulkhead::running)
+				.description("Number of attempts of the stage currently running")
+				.tag("stage", stage.name())
+				.register(registry);
+			Gauge.builder("notarization.stage.queued", stage, Bulkhead::queueDepth)
+				.description("Number of attempts of the stage waiting for capacity")
+				.tag("stage", stage.name())
+				.register(registry);
+			Gauge.builder("notarization.stage.maxConcurrency", stage, Bulkhead::maxConcurrency)
+				.tag("stage", stage.name())
+				.register(registry);
+			FunctionTimer.builder("notarization.stage.queue.wait", stage, Bulkhead::dispatched,
+								  s -> s.totalWaitTime().toNanos(), TimeUnit.NANOSECONDS)
+				.description("Time attempts of the stage have waited for capacity before being started")
+				.tag("stage", stage.name())
+				.register(registry);
+			TimeGauge.builder("notarization.stage.queue.wait.max", stage, TimeUnit.NANOSECONDS, s -> s.maxWaitTime().toNanos())
+				.tag("stage", stage.name())
+				.register(registry);
+		}
+
+		new ExecutorServiceMetrics(executor, "macos-notarization-service-pool", List.of()).bindTo(registry);
+
+		Gauge.builder("notarization.pendingFiles.size", pendingFilesSize, Supplier::get)
+			.description("Disk space used by the files being notarized, refreshed every " + PENDING_FILES_REFRESH.toSeconds() + " seconds")
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	/**
+	 * Times the stage run by the given supplier, from its start until its completion. The timer is tagged
+	 * with the outcome of the stage, as returned by the given function, or with "error" if it failed.
+	 */
+	<T> CompletableFuture<T> time(String stage, Supplier<CompletableFuture<T>> stageSupplier, Function<? super T, ? extends Enum<?>> outcome) {
+		Timer.Sample sample = Timer.start(registry);
+		return stageSupplier.get().whenComplete((result, failure) ->
+			sample.stop(Timer.builder("notarization.stage")
+				.description("Duration of the stages of the notarization requests, retries included")
+				.tags("stage", stage, "outcome", failure != null || result == null ? "error" : outcome.apply(result).name())
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofSeconds(1))
+				.maximumExpectedValue(Duration.ofHours(6))
+				.register(registry)));
+	}
+
+	/**
+	 * Records the number of bytes of uploaded files that have been received, and the number of bytes of
+	 * these files once decoded, the ratio of which is the gain of compressing uploads.
+	 */
+	void recordUpload(ContentEncoding encoding, long receivedBytes, long decodedBytes) {
+		Counter.builder("notarization.upload.received")
+			.description("Bytes of the uploaded files, as sent by the clients")
+			.baseUnit("bytes")
+			.tag("encoding", encoding.token())
+			.register(registry)
+			.increment(receivedBytes);
+		Counter.builder("notarization.upload.decoded")
+			.description("Bytes of the uploaded files, once decoded")
+			.baseUnit("bytes")
+			.tag("encoding", encoding.token())
+			.register(registry)
+			.increment(decodedBytes);
+	}
+
+	private double walkPendingFiles() {
+		try (Stream<Path> files = Files.walk(Paths.get(pendingFilesPath))) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> {
+				try {
+					return Files.size(file);
+				} catch (IOException e) {
+					// deleted while walking
+					return 0;
+				}
+			}).sum();
+		} catch (IOException | UncheckedIOException e) {
+			LOGGER.debug("Unable to compute the size of the pending files", e);
+			return Double.NaN;
+		}
+	}
+}
@@ -9,32 +9,58 @@ package org.eclipse.cbi.ws.macos.notarization;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbException;
 import jakarta.ws.rs.*;
-import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import jakarta.ws.rs.core.Response.ResponseBuilder;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
 
 import org.eclipse.cbi.ws.macos.notarization.request.*;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.*;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.quarkus.runtime.configuration.MemorySize;
+
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 @jakarta.ws.rs.Path("/")
@@ -42,16 +68,52 @@ public class NotarizationService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationService.class);
 
+	private static final long MAX_OPTIONS_LENGTH = 64 * 1024;
+
 	@Inject
 	NotarizationCache cache;
 
+	@Inject
+	Jsonb jsonb;
+
 	@Inject
 	NotarizationTool notarizationTool;
 
+	@Inject
+	@Named("upload")
+	Bulkhead uploadStage;
+
+	@Inject
+	@Named("infoPolling")
+	Bulkhead infoPollingStage;
+
+	@Inject
+	@Named("stapling")
+	Bulkhead staplingStage;
+
+	@Inject
+	@Named("staplingBundles")
+	Bulkhead staplingBundlesStage;
+
 	@Inject
 	@Named("macos-notarization-service-pool")
 	ScheduledExecutorService executor;
 
+	@Inject
+	NotarizationMetrics metrics;
+
+	@Inject
+	Tracer tracer;
+
+	@Inject
+	NotarizationWebhooks webhooks;
+
+	@Inject
+	NotarizedFileDownloads downloads;
+
+	@Inject
+	UploadSessions uploads;
+
 	@Inject
 	@ConfigProperty(name = "notarization.cache.uploadedFiles", defaultValue = "/tmp/macos-notarization-service/pending-files")
 	String pendingFilesPath;
@@ -108,6 +170,27 @@ public class NotarizationService {
 	@ConfigProperty(name = "notarization.infoPolling.timeout", defaultValue = "PT2M")
 	Duration infoPollingTimeout;
 
+	@Inject
+	@ConfigProperty(name = "notarization.infoPolling.batched", defaultValue = "true")
+	boolean infoPollingBatched;
+
+	@Inject
+	NotarizationHistoryPoller historyPoller;
+
+	@Inject
+	@ConfigProperty(name = "notarization.infoPolling.adaptive", defaultValue = "true")
+	boolean infoPollingAdaptive;
+
+	@Inject
+	AdaptivePollingSchedule pollingSchedule;
+
+	@Inject
+	@ConfigProperty(name = "notarization.aggregation.enabled", defaultValue = "false")
+	boolean aggregation;
+
+	@Inject
+	NotarizationAggregator aggregator;
+
 	@Inject
 	@ConfigProperty(name = "notarization.stapling.timeout", defaultValue = "PT4M")
 	Duration staplingTimeout;
@@ -124,57 +207,438 @@ public class NotarizationService {
 	@ConfigProperty(name = "notarization.stapling.maxBackOffDelay", defaultValue = "PT60S")
 	Duration staplingMaxBackOffDelay;
 
+	@Inject
+	@ConfigProperty(name = "notarization.stapling.bundleMaxAttempts", defaultValue = "3")
+	int staplingBundleMaxAttempts;
+
+	@Inject
+	@ConfigProperty(name = "notarization.stapling.zipParallelism", defaultValue = "4")
+	int staplingZipParallelism;
+
+	@Inject
+	@ConfigProperty(name = "notarization.cache.deduplicate", defaultValue = "true")
+	boolean deduplicate;
+
+	@Inject
+	@ConfigProperty(name = "notarization.status.maxWait", defaultValue = "PT60S")
+	Duration statusMaxWait;
+
+	@Inject
+	@ConfigProperty(name = "notarization.status.events.heartbeat", defaultValue = "PT15S")
+	Duration statusEventsHeartbeat;
+
+	@Inject
+	@ConfigProperty(name = "notarization.status.maxBulkSize", defaultValue = "1000")
+	int statusMaxBulkSize;
+
+	@Inject
+	@ConfigProperty(name = "notarization.batch.maxFiles", defaultValue = "100")
+	int batchMaxFiles;
+
+	@Inject
+	@ConfigProperty(name = "quarkus.http.limits.max-body-size", defaultValue = "10240K")
+	MemorySize maxBodySize;
+
+	@Inject
+	@ConfigProperty(name = "notarization.upload.max-decoded-size")
+	Optional<MemorySize> maxDecodedSize;
+
 	@POST
 	@jakarta.ws.rs.Path("notarize")
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response notarize(MultipartFormDataInput input) throws IOException {
-		try (MultipartFormDataInputWrapper formData = new MultipartFormDataInputWrapper(input)) {
-			Optional<NotarizationRequestOptions> optionsFromRequest = formData.partBodyAs("options", new GenericType<>() {});
-			Optional<InputStream> fileFromRequest = formData.partBodyAs("file", InputStream.class);
-
-			if (optionsFromRequest.isPresent() && fileFromRequest.isPresent()) {
-				InputStream file = fileFromRequest.get();
-				NotarizationRequestOptions options = optionsFromRequest.get();
-				LOGGER.trace("notarization options:" + options);
-
-				NotarizationStatusWithUUID response = notarize(formData, file, options);
-				LOGGER.trace("notarization response:" + response);
-				return Response.ok(response, MediaType.APPLICATION_JSON).build();
-			} else {
-				return
-					Response.status(Response.Status.BAD_REQUEST)
-						.entity("Request must be a multipart/form-data with a 'file' (application/octet-stream) and an 'options' (application/json) parts.")
-						.type(MediaType.TEXT_PLAIN)
-						.build();
+	public Response notarize(@HeaderParam(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+							 @HeaderParam(HttpHeaders.CONTENT_ENCODING) String contentEncoding, InputStream body) throws IOException {
+		String boundary = contentType != null ? contentType.getParameters().get("boundary") : null;
+		if (boundary == null) {
+			return badRequest("Request must be a multipart/form-data with a boundary parameter.");
+		}
+
+		UploadedFile file = null;
+		NotarizationRequestOptions options = null;
+		ContentEncoding encoding;
+		CountingInputStream received = new CountingInputStream(body);
+		try {
+			encoding = ContentEncoding.of(contentEncoding);
+		} catch (ContentEncoding.UnsupportedContentEncodingException e) {
+			return unsupportedEncoding(e);
+		}
+		try (MultipartStream multipart = new MultipartStream(encoding.decode(received), boundary)) {
+			Optional<MultipartStream.Part> part;
+			while ((part = multipart.nextPart()).isPresent()) {
+				String name = part.get().name().orElse("");
+				if ("file".equals(name) && file == null) {
+					file = UploadedFile.write(part.get(), Paths.get(pendingFilesPath), maxDecodedSize());
+				} else if ("options".equals(name) && options == null) {
+					options = jsonb.fromJson(ByteStreams.limit(part.get().body(), MAX_OPTIONS_LENGTH), NotarizationRequestOptions.class);
+				}
+			}
+		} catch (ContentEncoding.UnsupportedContentEncodingException e) {
+			if (file != null) {
+				file.delete();
+			}
+			return unsupportedEncoding(e);
+		} catch (UploadedFile.TooLargeException e) {
+			if (file != null) {
+				file.delete();
+			}
+			return tooLarge(e);
+		} catch (MultipartStream.MalformedMultipartException | ContentEncoding.MalformedContentException | JsonbException e) {
+			LOGGER.debug("Rejecting malformed notarization request", e);
+			if (file != null) {
+				file.delete();
+			}
+			return badRequest(e.getMessage());
+		} catch (IOException | RuntimeException e) {
+			if (file != null) {
+				file.delete();
+			}
+			throw e;
+		}
+
+		if (options != null && options.callbackUrl() != null && !webhooks.isAllowedCallbackUrl(options.callbackUrl())) {
+			if (file != null) {
+				file.delete();
+			}
+			return badRequest("Option 'callbackUrl' must be an absolute http or https URL on one of the allowed hosts.");
+		}
+
+		if (file != null && options != null) {
+			recordUpload(encoding, received, List.of(file));
+			LOGGER.trace("notarization options:" + options);
+			NotarizationStatusWithUUID response = notarize(file, options);
+			LOGGER.trace("notarization response:" + response);
+			return Response.ok(response, MediaType.APPLICATION_JSON).build();
+		} else {
+			if (file != null) {
+				file.delete();
+			}
+			return badRequest("Request must be a multipart/form-data with a 'file' (application/octet-stream) and an 'options' (application/json) parts.");
+		}
+	}
+
+	/**
+	 * Notarizes all the {@code file} parts of a multipart body, each as its own request. Files are written
+	 * to disk one after another as they are read. A single {@code options} part applies to all the files,
+	 * otherwise there must be one {@code options} part per file, the n-th one applying to the n-th file.
+	 */
+	@POST
+	@jakarta.ws.rs.Path("notarize/batch")
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response notarizeBatch(@HeaderParam(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+								  @HeaderParam(HttpHeaders.CONTENT_ENCODING) String contentEncoding, InputStream body) throws IOException {
+		String boundary = contentType != null ? contentType.getParameters().get("boundary") : null;
+		if (boundary == null) {
+			return badRequest("Request must be a multipart/form-data with a boundary parameter.");
+		}
+
+		List<UploadedFile> files = new ArrayList<>();
+		List<NotarizationRequestOptions> options = new ArrayList<>();
+		ContentEncoding encoding;
+		CountingInputStream received = new CountingInputStream(body);
+		try {
+			encoding = ContentEncoding.of(contentEncoding);
+		} catch (ContentEncoding.UnsupportedContentEncodingException e) {
+			return unsupportedEncoding(e);
+		}
+		try (MultipartStream multipart = new MultipartStream(encoding.decode(received), boundary)) {
+			Optional<MultipartStream.Part> part;
+			while ((part = multipart.nextPart()).isPresent()) {
+				String name = part.get().name().orElse("");
+				if ("file".equals(name)) {
+					if (files.size() == batchMaxFiles) {
+						deleteAll(files);
+						return badRequest("At most " + batchMaxFiles + " files can be submitted at once.");
+					}
+					// the limit applies to all the files of the batch
+					long remaining = maxDecodedSize() - files.stream().mapToLong(UploadedFile::size).sum();
+					files.add(UploadedFile.write(part.get(), Paths.get(pendingFilesPath), remaining));
+				} else if ("options".equals(name)) {
+					options.add(jsonb.fromJson(ByteStreams.limit(part.get().body(), MAX_OPTIONS_LENGTH), NotarizationRequestOptions.class));
+				}
+			}
+		} catch (ContentEncoding.UnsupportedContentEncodingException e) {
+			deleteAll(files);
+			return unsupportedEncoding(e);
+		} catch (UploadedFile.TooLargeException e) {
+			deleteAll(files);
+			return tooLarge(e);
+		} catch (MultipartStream.MalformedMultipartException | ContentEncoding.MalformedContentException | JsonbException e) {
+			LOGGER.debug("Rejecting malformed batch notarization request", e);
+			deleteAll(files);
+			return badRequest(e.getMessage());
+		} catch (IOException | RuntimeException e) {
+			deleteAll(files);
+			throw e;
+		}
+
+		if (files.isEmpty() || (options.size() != 1 && options.size() != files.size())) {
+			deleteAll(files);
+			return badRequest("Request must be a multipart/form-data with 'file' (application/octet-stream) parts, and either a single 'options' (application/json) part or one per file.");
+		}
+		for (NotarizationRequestOptions fileOptions : options) {
+			if (fileOptions.callbackUrl() != null && !webhooks.isAllowedCallbackUrl(fileOptions.callbackUrl())) {
+				deleteAll(files);
+				return badRequest("Option 'callbackUrl' must be an absolute http or https URL on one of the allowed hosts.");
+			}
+		}
+
+		recordUpload(encoding, received, files);
+		List<NotarizationStatusWithUUID> requests = new ArrayList<>(files.size());
+		for (int i = 0; i < files.size(); i++) {
+			requests.add(notarize(files.get(i), options.get(options.size() == 1 ? 0 : i)));
+		}
+		UUID batchId = cache.putBatch(requests.stream().map(NotarizationStatusWithUUID::uuid).toList());
+		Span.current().setAttribute("notarization.batch", batchId.toString());
+		LOGGER.debug("Batch {} submitted {} file(s)", batchId, files.size());
+		return Response.ok(new NotarizationBatch(batchId, requests), MediaType.APPLICATION_JSON).build();
+	}
+
+	/**
+	 * Returns the aggregate status of a batch, and the statuses of its requests. With a {@code since}
+	 * parameter, only the statuses of the requests that have changed after that version are returned.
+	 */
+	@GET
+	@jakarta.ws.rs.Path("batch/{batchId}/status")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response batchStatus(@PathParam(value = "batchId") String batchId, @QueryParam("since") @DefaultValue("0") long since) {
+		try {
+			return cache.batchStatus(UUID.fromString(batchId), since)
+				.map(status -> Response.ok(status).build())
+				.orElseGet(() -> Response.status(Response.Status.NOT_FOUND).entity("Unknown batch ID").type(MediaType.TEXT_PLAIN).build());
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		}
+	}
+
+	/**
+	 * Opens a resumable upload session, for files too large to be reliably uploaded with a single
+	 * {@code POST /notarize}. The chunks of the file are then uploaded with {@code PUT uploads/{uploadId}},
+	 * and the session is turned into a notarization request with {@code POST uploads/{uploadId}/notarize}.
+	 */
+	@POST
+	@jakarta.ws.rs.Path("uploads")
+	@Consumes(MediaType.WILDCARD)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response createUpload(@QueryParam("filename") String filename) throws IOException {
+		try {
+			NotarizationUpload upload = uploads.create(filename);
+			return Response.created(URI.create("uploads/" + upload.uploadId())).entity(upload).build();
+		} catch (RejectedExecutionException e) {
+			return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+		}
+	}
+
+	/**
+	 * Returns the committed offset of an upload session, from which an interrupted upload is resumed.
+	 */
+	@GET
+	@jakarta.ws.rs.Path("uploads/{uploadId}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response uploadStatus(@PathParam(value = "uploadId") String uploadId) {
+		try {
+			return uploads.status(UUID.fromString(uploadId))
+				.map(upload -> Response.ok(upload).build())
+				.orElseGet(NotarizationService::unknownUpload);
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		}
+	}
+
+	/**
+	 * Appends a chunk to an upload session. The chunk must start at the committed offset of the session,
+	 * otherwise a {@code 409 Conflict} with the committed offset is returned.
+	 */
+	@PUT
+	@jakarta.ws.rs.Path("uploads/{uploadId}")
+	@Consumes(MediaType.WILDCARD)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response uploadChunk(@PathParam(value = "uploadId") String uploadId, @QueryParam("offset") Long offset, InputStream body) throws IOException {
+		if (offset == null) {
+			return badRequest("Query parameter 'offset' is required.");
+		}
+		try {
+			return uploads.append(UUID.fromString(uploadId), offset, body)
+				.map(upload -> Response.ok(upload).build())
+				.orElseGet(NotarizationService::unknownUpload);
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		} catch (UploadSessions.ConflictException e) {
+			return Response.status(Response.Status.CONFLICT).entity(e.status()).build();
+		}
+	}
+
+	/**
+	 * Closes an upload session, and notarizes its file with the given options. If a {@code sha256} digest
+	 * is given and the uploaded file does not match it, the upload is discarded.
+	 */
+	@POST
+	@jakarta.ws.rs.Path("uploads/{uploadId}/notarize")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response notarizeUpload(@PathParam(value = "uploadId") String uploadId, @QueryParam("sha256") String sha256,
+								   NotarizationRequestOptions options) throws IOException {
+		if (options == null) {
+			return badRequest("Request must have the notarization options as its body.");
+		}
+		if (options.callbackUrl() != null && !webhooks.isAllowedCallbackUrl(options.callbackUrl())) {
+			return badRequest("Option 'callbackUrl' must be an absolute http or https URL on one of the allowed hosts.");
+		}
+		UUID id;
+		HashCode expectedHash;
+		try {
+			id = UUID.fromString(uploadId);
+			expectedHash = sha256 != null ? HashCode.fromString(sha256.toLowerCase()) : null;
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
+		}
+		if (uploads.status(id).map(upload -> upload.offset() == 0).orElse(false)) {
+			return badRequest("Nothing has been uploaded yet.");
+		}
+
+		UploadedFile file;
+		try {
+			Optional<UploadedFile> finished = uploads.finish(id);
+			if (finished.isEmpty()) {
+				return unknownUpload();
 			}
+			file = finished.get();
+		} catch (UploadSessions.ConflictException e) {
+			return Response.status(Response.Status.CONFLICT).entity(e.status()).build();
+		}
+		if (expectedHash != null && !expectedHash.equals(file.contentHash())) {
+			file.delete();
+			return badRequest("The uploaded file does not match the given digest, it has been discarded.");
+		}
+		LOGGER.debug("Upload session {} finished with {} bytes", id, file.size());
+		return Response.ok(notarize(file, options), MediaType.APPLICATION_JSON).build();
+	}
+
+	/**
+	 * Discards an upload session and what has been uploaded so far.
+	 */
+	@DELETE
+	@jakarta.ws.rs.Path("uploads/{uploadId}")
+	public Response abortUpload(@PathParam(value = "uploadId") String uploadId) {
+		try {
+			return uploads.abort(UUID.fromString(uploadId)) ? Response.noContent().build() : unknownUpload();
+		} catch (IllegalArgumentException e) {
+			return badRequest(e.getMessage());
 		}
 	}
 
-	private NotarizationStatusWithUUID notarize(MultipartFormDataInputWrapper formData, InputStream file, NotarizationRequestOptions options)
-			throws IOException {
-		Path fileToNotarize = createTempFile(Paths.get(pendingFilesPath), formData.submittedFilename("file").orElse("unknown"));
-		Files.copy(file, fileToNotarize, StandardCopyOption.REPLACE_EXISTING);
+	private static Response unknownUpload() {
+		return Response.status(Response.Status.NOT_FOUND).entity("Unknown upload ID").type(MediaType.TEXT_PLAIN).build();
+	}
 
+	private static void deleteAll(List<UploadedFile> files) throws IOException {
+		for (UploadedFile file : files) {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Records the bytes received for the given files. When the whole body is encoded, the bytes of each
+	 * file cannot be told apart, so the whole body is recorded with its coding, otherwise each file part
+	 * is recorded with its own coding.
+	 */
+	private void recordUpload(ContentEncoding bodyEncoding, CountingInputStream body, List<UploadedFile> files) {
+		if (bodyEncoding != ContentEncoding.IDENTITY) {
+			metrics.recordUpload(bodyEncoding, body.getCount(), files.stream().mapToLong(UploadedFile::size).sum());
+		} else {
+			for (UploadedFile file : files) {
+				metrics.recordUpload(file.encoding(), file.receivedSize(), file.size());
+			}
+		}
+	}
+
+	private static Response unsupportedEncoding(ContentEncoding.UnsupportedContentEncodingException e) {
+		return
+			Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE)
+				.entity(e.getMessage())
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+	}
+
+	private static Response tooLarge(UploadedFile.TooLargeException e) {
+		return
+			Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+				.entity(e.getMessage())
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+	}
+
+	/**
+	 * Returns the maximum size of the uploaded files once decoded, defaults to the maximum size of the
+	 * request body, so that compressed uploads cannot take more disk space than uncompressed ones.
+	 */
+	private long maxDecodedSize() {
+		return maxDecodedSize.orElse(maxBodySize).asLongValue();
+	}
+
+	private static Response badRequest(String message) {
+		return
+			Response.status(Response.Status.BAD_REQUEST)
+				.entity(message)
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+	}
+
+	private NotarizationStatusWithUUID notarize(UploadedFile file, NotarizationRequestOptions options) throws IOException {
+		if (!deduplicate) {
+			NotarizationRequest request = execute(newRequest(file.path(), file.submittedFilename(), file.contentHash(), options, false));
+			UUID uuid = cache.put(request);
+			Span.current().setAttribute("notarization.uuid", uuid.toString());
+			registerCallback(uuid, request, options);
+			return NotarizationStatusWithUUID.from(uuid, request.status().get());
+		}
+
+		NotarizationCache.CachedRequest cached =
+			cache.putIfAbsent(file.contentHash(), options,
+							  () -> execute(newRequest(file.path(), file.submittedFilename(), file.contentHash(), options, false)));
+		Span.current().setAttribute("notarization.uuid", cached.uuid().toString());
+		// the callback of each submission is notified, even if the request is shared
+		registerCallback(cached.uuid(), cached.request(), options);
+		if (cached.shared()) {
+			LOGGER.info("File '{}' is identical to the one of request {}, no new notarization will be submitted", file.submittedFilename(), cached.uuid());
+			file.delete();
+		}
+		return NotarizationStatusWithUUID.from(cached.uuid(), cached.request().status().get());
+	}
+
+	private void registerCallback(UUID uuid, NotarizationRequest request, NotarizationRequestOptions options) {
+		if (options.callbackUrl() != null) {
+			webhooks.register(uuid, request, options.callbackUrl());
+		}
+	}
+
+	/**
+	 * Returns the builder of a request to notarize the given file. A request that has been uploaded before
+	 * a restart does not sample its notarization time, as it would only be measured from the restart.
+	 */
+	private NotarizationRequestBuilder newRequest(Path fileToNotarize, String submittedFilename, HashCode contentHash, NotarizationRequestOptions options, boolean uploaded) {
 		NotarizationRequestBuilder requestBuilder =
 			NotarizationRequest.builderWithDefaultStatus()
 				.fileToNotarize(fileToNotarize)
-				.submittedFilename(formData.submittedFilename("file").orElse(null))
+				.submittedFilename(submittedFilename)
+				.contentHash(contentHash)
 				.notarizationOptions(options);
 
-		requestBuilder.notarizer(() ->
+		BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> upload = (file, hash) ->
 			Notarizer.builder()
 				.primaryBundleId(options.primaryBundleId())
 				.appleIDUsername(appleIDUsername)
 				.appleIDPassword(appleIDPassword)
 				.appleIDTeamID(appleIDTeamID)
-				.fileToNotarize(fileToNotarize)
+				.fileToNotarize(file)
+				.contentHash(hash)
 				.uploadTimeout(uploadTimeout)
 				.tool(notarizationTool)
 				.build()
-				.uploadFailsafe(uploadMaxAttempts, uploadMinBackOffDelay, uploadMaxBackOffDelay));
+				.uploadFailsafe(uploadStage, uploadMaxAttempts, uploadMinBackOffDelay, uploadMaxBackOffDelay);
 
-		requestBuilder.notarizationInfo((NotarizerResult r) ->
+		BiFunction<NotarizerResult, PollingSchedule, CompletableFuture<NotarizationInfoResult>> retrieveInfo = (r, schedule) ->
 			NotarizationInfo.builder()
 				.appleIDUsername(appleIDUsername)
 				.appleIDPassword(appleIDPassword)
@@ -182,65 +646,285 @@ public class NotarizationService {
 				.appleRequestUUID(r.appleRequestUUID())
 				.pollingTimeout(infoPollingTimeout)
 				.tool(notarizationTool)
+				.historyPoller(infoPollingBatched ? historyPoller : null)
+				.pollingSchedule(infoPollingAdaptive ? schedule : null)
 				.build()
-				.retrieveInfoFailsafe(infoPollingMaxTotalDuration, infoPollingDelayBetweenSuccessfulAttempts,
-									  infoPollingMaxFailedAttempts, infoPollingMinBackOffDelay, infoPollingMaxBackOffDelay));
+				.retrieveInfoFailsafe(infoPollingStage, infoPollingMaxTotalDuration, infoPollingDelayBetweenSuccessfulAttempts,
+									  infoPollingMaxFailedAttempts, infoPollingMinBackOffDelay, infoPollingMaxBackOffDelay);
+
+		if (aggregation && aggregator.accepts(fileToNotarize)) {
+			// the upload and the info polling are shared with the other files of the same submission, but
+			// requests resumed after the upload poll on their own
+			AtomicReference<NotarizationAggregator.Submission> submission = new AtomicReference<>();
+			requestBuilder.notarizer(() -> stage("upload", () -> {
+				submission.set(aggregator.add(fileToNotarize, contentHash, upload));
+				return submission.get().upload();
+			}, NotarizerResult::status));
+			// the notarization time of a submission depends on the container that has been uploaded
+			requestBuilder.notarizationInfo((NotarizerResult r) -> stage("infoPolling", () -> {
+				NotarizationAggregator.Submission s = submission.get();
+				if (s == null || s.uploadedFile() == null) {
+					return retrieveInfo.apply(r, infoPollingSchedule(fileToNotarize, uploaded));
+				}
+				return s.info(() -> retrieveInfo.apply(r, pollingSchedule.forFile(s.uploadedFile(), s.uploadedSize())))
+					.thenCompose(info -> info.status() == NotarizationInfoResult.Status.NOTARIZATION_FAILED && s.container()
+						? notarizeAlone(fileToNotarize, contentHash, requestBuilder.appleRequestUUID(), upload, retrieveInfo)
+						: CompletableFuture.completedFuture(info));
+			}, NotarizationInfoResult::status));
+		} else {
+			requestBuilder.notarizer(() -> stage("upload", () -> upload.apply(fileToNotarize, contentHash), NotarizerResult::status));
+			requestBuilder.notarizationInfo((NotarizerResult r) -> stage("infoPolling", () ->
+				retrieveInfo.apply(r, infoPollingSchedule(fileToNotarize, uploaded)), NotarizationInfoResult::status));
+		}
 
 		if (options.staple()) {
-			requestBuilder.staplerResult(Optional.of((NotarizationInfoResult r) ->
+			requestBuilder.staplerResult(Optional.of((NotarizationInfoResult r) -> stage("stapling", () ->
 					Stapler.builder()
 						.fileToStaple(fileToNotarize)
 						.staplingTimeout(staplingTimeout)
+						.bundleStage(staplingBundlesStage)
+						.bundleMaxAttempts(staplingBundleMaxAttempts)
+						.zipParallelism(staplingZipParallelism)
 						.build()
-						.stapleFailsafe(staplingMaxAttempts, staplingMinBackOffDelay, staplingMaxBackOffDelay)));
+						.stapleFailsafe(staplingStage, staplingMaxAttempts, staplingMinBackOffDelay, staplingMaxBackOffDelay),
+					StaplerResult::status)));
+		}
+
+		return requestBuilder;
+	}
+
+	/**
+	 * Uploads the given file on its own and polls its notarization info. Apple rejects a container as a
+	 * whole as soon as one of its files is invalid, so the files of a rejected container are notarized
+	 * again one by one, so that a request does not fail because of the files of other requests.
+	 */
+	private CompletableFuture<NotarizationInfoResult> notarizeAlone(Path fileToNotarize, HashCode contentHash, AtomicReference<String> appleRequestUUID,
+																	BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> upload,
+																	BiFunction<NotarizerResult, PollingSchedule, CompletableFuture<NotarizationInfoResult>> retrieveInfo) {
+		LOGGER.info("The container of file '{}' has been rejected, notarizing the file on its own", fileToNotarize);
+		return upload.apply(fileToNotarize, contentHash).thenCompose(r -> {
+			if (r.status() != NotarizerResult.Status.UPLOAD_SUCCESSFUL) {
+				return CompletableFuture.completedFuture(
+					NotarizationInfoResult.builder()
+						.status(NotarizationInfoResult.Status.NOTARIZATION_FAILED)
+						.message("File could not be uploaded on its own after its container has been rejected: " + r.message())
+						.build());
+			}
+			appleRequestUUID.set(r.appleRequestUUID());
+			return retrieveInfo.apply(r, infoPollingSchedule(fileToNotarize, false));
+		});
+	}
+
+	private PollingSchedule infoPollingSchedule(Path fileToNotarize, boolean uploaded) {
+		PollingSchedule schedule = pollingSchedule.forFile(fileToNotarize);
+		return uploaded ? schedule.withoutSampling() : schedule;
+	}
+
+	/**
+	 * Executes the request within a span that ends once the request is either complete or in error. The
+	 * spans of its stages are children of this one.
+	 */
+	private NotarizationRequest execute(NotarizationRequestBuilder requestBuilder) {
+		NotarizationRequest request = requestBuilder.build();
+		Span span =
+			tracer.spanBuilder("notarization")
+				.setAttribute("notarization.file", String.valueOf(request.submittedFilename()))
+				.setAttribute("notarization.staple", request.notarizationOptions().staple())
+				.startSpan();
+		request.addListener((r, status) -> {
+			if (status.status() != NotarizationStatus.State.IN_PROGRESS) {
+				if (status.status() == NotarizationStatus.State.ERROR) {
+					span.setStatus(StatusCode.ERROR, status.message());
+				} else {
+					downloads.prepare(r);
+				}
+				span.end();
+			}
+		});
+		try (Scope scope = span.makeCurrent()) {
+			return request.execute();
+		}
+	}
+
+	/**
+	 * Runs a stage of a request within its own span, and times it. The span is current while the stage
+	 * is started, so that the spans of its attempts are its children.
+	 */
+	private <T> CompletableFuture<T> stage(String stage, Supplier<CompletableFuture<T>> stageSupplier, Function<? super T, ? extends Enum<?>> outcome) {
+		Span span = tracer.spanBuilder(stage).setAttribute("notarization.stage", stage).startSpan();
+		try (Scope scope = span.makeCurrent()) {
+			return metrics.time(stage, stageSupplier, outcome).whenComplete((result, failure) -> {
+				if (failure != null) {
+					span.recordException(failure);
+					span.setStatus(StatusCode.ERROR);
+				} else if (result != null) {
+					span.setAttribute("notarization.stage.outcome", outcome.apply(result).name());
+				}
+				span.end();
+			});
 		}
+	}
+
+	/**
+	 * Puts the requests replayed from the journal back in the cache. The requests that were still in
+	 * progress are executed again, starting with polling Apple for the notarization info if the file had
+	 * already been uploaded.
+	 */
+	void resume(List<JournalEntry> entries) {
+		for (JournalEntry entry : entries) {
+			UUID uuid = entry.uuid();
+			Path fileToNotarize = Paths.get(entry.fileToNotarize());
+			NotarizationStatus status = entry.status();
+			if (status.status() != NotarizationStatus.State.ERROR && !Files.exists(fileToNotarize)) {
+				LOGGER.warn("File '{}' of request {} does not exist anymore, the request will not be resumed", fileToNotarize, uuid);
+				continue;
+			}
+
+			HashCode contentHash = entry.contentHash() != null ? HashCode.fromString(entry.contentHash()) : null;
+			NotarizationRequestBuilder requestBuilder =
+				newRequest(fileToNotarize, entry.submittedFilename(), contentHash, entry.options(), entry.appleRequestUUID() != null)
+					.status(new AtomicReference<>(status))
+					.appleRequestUUID(new AtomicReference<>(entry.appleRequestUUID()));
 
-		NotarizationRequest request = requestBuilder.build().execute(executor);
-		UUID uuid = cache.put(request);
-		return NotarizationStatusWithUUID.from(uuid, request.status().get());
+			NotarizationRequest request;
+			if (status.status() != NotarizationStatus.State.IN_PROGRESS) {
+				request = requestBuilder.request(CompletableFuture.completedFuture(status)).build();
+			} else {
+				if (entry.appleRequestUUID() != null) {
+					requestBuilder.notarizer(() ->
+						CompletableFuture.completedFuture(
+							NotarizerResult.builder()
+								.status(NotarizerResult.Status.UPLOAD_SUCCESSFUL)
+								.message("File had been uploaded to Apple notarization service before the service restarted")
+								.appleRequestUUID(entry.appleRequestUUID())
+								.build()));
+				}
+				request = execute(requestBuilder);
+			}
+			LOGGER.info("Resuming request {} ({})", uuid, status.status());
+			cache.put(uuid, request);
+			if (status.status() == NotarizationStatus.State.IN_PROGRESS && entry.options() != null) {
+				registerCallback(uuid, request, entry.options());
+			}
+		}
 	}
 
+	/**
+	 * Returns the status of the request. With a {@code wait} parameter (in seconds, capped by
+	 * {@code notarization.status.maxWait}), the response is held until the status changes from the one
+	 * identified by the {@code If-None-Match} header, or from the current one if there is no such header,
+	 * or until the wait expires. The status is not sent again if it is the one the client already has.
+	 */
 	@GET
 	@jakarta.ws.rs.Path("{uuid}/status")
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response status(@PathParam(value = "uuid") String uuid) throws InterruptedException, ExecutionException {
+	public CompletionStage<Response> status(@PathParam(value = "uuid") String uuid,
+											@QueryParam("wait") @DefaultValue("0") long waitSeconds,
+											@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+		UUID fromString;
 		try {
-			UUID fromString = UUID.fromString(uuid);
-			NotarizationRequest request = cache.getIfPresent(fromString);
-			if (request == null) {
-				return Response.status(Response.Status.NOT_FOUND).entity("Unknown UUID").type(MediaType.TEXT_PLAIN).build();
-			} else {
-				return Response.ok(NotarizationStatusWithUUID.from(fromString, request.status().get())).build();
-			}
+			fromString = UUID.fromString(uuid);
 		} catch (IllegalArgumentException e) {
-			return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+			return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build());
+		}
+		Span.current().setAttribute("notarization.uuid", uuid);
+		NotarizationRequest request = cache.getIfPresent(fromString);
+		if (request == null) {
+			return CompletableFuture.completedFuture(Response.status(Response.Status.NOT_FOUND).entity("Unknown UUID").type(MediaType.TEXT_PLAIN).build());
 		}
+
+		NotarizationStatus current = request.status().get();
+		long wait = Math.min(Math.max(0, waitSeconds), statusMaxWait.toSeconds());
+		String known = ifNoneMatch != null ? ifNoneMatch : etag(current);
+		if (wait == 0 || current.status() != NotarizationStatus.State.IN_PROGRESS || !known.equals(etag(current))) {
+			return CompletableFuture.completedFuture(statusResponse(fromString, current, ifNoneMatch));
+		}
+
+		CompletableFuture<NotarizationStatus> changed = new CompletableFuture<>();
+		NotarizationRequestListener listener = (r, status) -> {
+			if (!known.equals(etag(status))) {
+				changed.complete(status);
+			}
+		};
+		request.addListener(listener);
+		// the status may have changed before the listener was added
+		listener.statusChanged(request, request.status().get());
+		return changed.completeOnTimeout(current, wait, TimeUnit.SECONDS).thenApply(status -> {
+			request.removeListener(listener);
+			return statusResponse(fromString, status, ifNoneMatch);
+		});
 	}
 
-	@GET
-	@jakarta.ws.rs.Path("{uuid}/download")
+	/**
+	 * Returns the statuses of the requests whose UUIDs are given as a JSON array. With a {@code since}
+	 * parameter, only the statuses that have changed after that version are returned; the response
+	 * carries the version to pass on the next call.
+	 */
+	@POST
+	@jakarta.ws.rs.Path("status")
+	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response download(@PathParam(value = "uuid") String uuid) throws InterruptedException, ExecutionException, IOException {
-		UUID fromString = UUID.fromString(uuid);
+	public Response statuses(List<String> uuids, @QueryParam("since") @DefaultValue("0") long since) {
+		if (uuids == null) {
+			return badRequest("Request body must be a JSON array of UUIDs.");
+		}
+		if (uuids.size() > statusMaxBulkSize) {
+			return badRequest("At most " + statusMaxBulkSize + " UUIDs can be queried at once.");
+		}
+		List<UUID> fromStrings = new ArrayList<>(uuids.size());
+		try {
+			for (String uuid : uuids) {
+				fromStrings.add(UUID.fromString(uuid));
+			}
+		} catch (IllegalArgumentException | NullPointerException e) {
+			return badRequest("Invalid UUID: " + e.getMessage());
+		}
+		return Response.ok(cache.statuses(fromStrings, since)).build();
+	}
+
+	/**
+	 * Streams the status changes of the request as Server-Sent Events, until it is either complete or in
+	 * error.
+	 */
+	@GET
+	@jakarta.ws.rs.Path("{uuid}/status/events")
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void statusEvents(@PathParam(value = "uuid") String uuid, @Context SseEventSink sink, @Context Sse sse) {
+		UUID fromString;
+		try {
+			fromString = UUID.fromString(uuid);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build());
+		}
+		Span.current().setAttribute("notarization.uuid", uuid);
 		NotarizationRequest request = cache.getIfPresent(fromString);
 		if (request == null) {
-			return Response.status(Response.Status.NOT_FOUND).entity("Unknown UUID").type(MediaType.TEXT_PLAIN).build();
-		} else {
-			if (request.status().get().status() == NotarizationStatus.State.COMPLETE) {
-				ResponseBuilder response = Response.ok(Files.newInputStream(request.fileToNotarize()), MediaType.APPLICATION_OCTET_STREAM);
-				if (request.submittedFilename() != null) {
-					return response.header("Content-Disposition", "attachment; filename=\"" + request.submittedFilename() + "\"").build();
-				}
-				return response.header("Content-Disposition", "attachment").build();
-			} else {
-				return Response.status(Response.Status.NOT_FOUND).entity("Notarization process did not complete yet.").type(MediaType.TEXT_PLAIN).build();
-			}
+			throw new NotFoundException(Response.status(Response.Status.NOT_FOUND).entity("Unknown UUID").type(MediaType.TEXT_PLAIN).build());
 		}
+		NotarizationStatusEvents.stream(fromString, request, sink, sse, executor, statusEventsHeartbeat);
 	}
 
-	private static Path createTempFile(Path parentFolder, String templateFilename) throws IOException {
-		return Files.createTempFile(parentFolder,
-				                    com.google.common.io.Files.getNameWithoutExtension(templateFilename) + "-",
-				                    "." + com.google.common.io.Files.getFileExtension(templateFilename));
+	private static Response statusResponse(UUID uuid, NotarizationStatus status, String ifNoneMatch) {
+		String etag = etag(status);
+		if (etag.equals(ifNoneMatch)) {
+			return Response.notModified().header(HttpHeaders.ETAG, etag).build();
+		}
+		return Response.ok(NotarizationStatusWithUUID.from(uuid, status)).header(HttpHeaders.ETAG, etag).build();
+	}
+
+	/**
+	 * Returns the entity tag of the status, a digest of its content. Each field is prefixed with its
+	 * length, so that distinct statuses cannot be concatenated into the same input.
+	 */
+	static String etag(NotarizationStatus status) {
+		Hasher hasher = Hashing.sha256().newHasher().putString(status.status().name(), StandardCharsets.UTF_8);
+		for (String field : Arrays.asList(status.message(), status.moreInfo(), status.log())) {
+			if (field == null) {
+				hasher.putInt(-1);
+			} else {
+				hasher.putInt(field.length()).putString(field, StandardCharsets.UTF_8);
+			}
+		}
+		return '"' + hasher.hash().toString() + '"';
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestListener;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes the status changes of a request to a Server-Sent Events stream. The current status is sent
+ * first, then every transition, and the stream is closed once the request is either complete or in
+ * error, or as soon as the client has gone away.
+ * <p>
+ * A client going away is only noticed when writing to the stream, so a heartbeat comment is sent
+ * periodically while the status does not change; otherwise the streams of requests that stay in
+ * progress for hours would be held until their next transition.
+ */
+class NotarizationStatusEvents implements NotarizationRequestListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationStatusEvents.class);
+
+	private final UUID uuid;
+	private final NotarizationRequest request;
+	private final SseEventSink sink;
+	private final Sse sse;
+	// guarded by this
+	private NotarizationStatus lastSent;
+	private ScheduledFuture<?> heartbeat;
+	private boolean done;
+
+	private NotarizationStatusEvents(UUID uuid, NotarizationRequest request, SseEventSink sink, Sse sse) {
+		this.uuid = uuid;
+		this.request = request;
+		this.sink = sink;
+		this.sse = sse;
+	}
+
+	static void stream(UUID uuid, NotarizationRequest request, SseEventSink sink, Sse sse,
+					   ScheduledExecutorService scheduler, Duration heartbeatInterval) {
+		NotarizationStatusEvents events = new NotarizationStatusEvents(uuid, request, sink, sse);
+		request.addListener(events);
+		// the status may have changed before the listener was added, duplicates are not sent
+		events.statusChanged(request, request.status().get());
+		events.scheduleHeartbeat(scheduler, heartbeatInterval);
+	}
+
+	@Override
+	public synchronized void statusChanged(NotarizationRequest request, NotarizationStatus status) {
+		if (done) {
+			return;
+		}
+		if (sink.isClosed()) {
+			close();
+			return;
+		}
+		if (status.equals(lastSent)) {
+			return;
+		}
+		lastSent = status;
+		boolean last = status.status() != NotarizationStatus.State.IN_PROGRESS;
+		if (last) {
+			stop();
+		}
+		sink.send(sse.newEventBuilder()
+					  .name("status")
+					  .id(NotarizationService.etag(status))
+					  .mediaType(MediaType.APPLICATION_JSON_TYPE)
+					  .data(NotarizationStatusWithUUID.class, NotarizationStatusWithUUID.from(uuid, status))
+					  .build())
+			.whenComplete((v, e) -> {
+				if (e != null) {
+					LOGGER.debug("Unable to send the status of request {}, closing its event stream", uuid, e);
+					close();
+				} else if (last) {
+					sink.close();
+				}
+			});
+	}
+
+	private synchronized void scheduleHeartbeat(ScheduledExecutorService scheduler, Duration interval) {
+		if (!done) {
+			heartbeat = scheduler.scheduleWithFixedDelay(this::heartbeat, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private synchronized void heartbeat() {
+		if (done) {
+			return;
+		}
+		if (sink.isClosed()) {
+			close();
+			return;
+		}
+		sink.send(sse.newEventBuilder().comment("heartbeat").build())
+			.whenComplete((v, e) -> {
+				if (e != null) {
+					LOGGER.debug("Client of the event stream of request {} has gone away, closing it", uuid, e);
+					close();
+				}
+			});
+	}
+
+	/**
+	 * Stops listening to the request and sending heartbeats, the stream is closed once the last event
+	 * has been sent.
+	 */
+	private synchronized void stop() {
+		done = true;
+		request.removeListener(this);
+		if (heartbeat != null) {
+			heartbeat.cancel(false);
+		}
+	}
+
+	private synchronized void close() {
+		stop();
+		sink.close();
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.json.bind.Jsonb;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestListener;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusBuilder;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.trace.Tracer;
+import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Posts the final status of the requests to the callback URL given in their options, once they are
+ * either complete or in error. Deliveries are asynchronous and retried with a backoff when the receiver
+ * fails or is unreachable. Each endpoint (scheme, host and port) has its own {@link Bulkhead}, so that a
+ * slow receiver only delays its own notifications, and at most maxPending deliveries are outstanding at
+ * any time, further ones are dropped.
+ * <p>
+ * As the service posts to URLs given by its clients, only the hosts of allowedHosts can be notified,
+ * either by name or, for entries starting with {@code *.}, by domain; none if it is empty. The
+ * notarization log is left out of the posted status unless includeLog is set.
+ */
+public class NotarizationWebhooks {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationWebhooks.class);
+
+	private static final MediaType JSON = MediaType.get("application/json");
+
+	private final OkHttpClient httpClient;
+	private final Jsonb jsonb;
+	private final Scheduler scheduler;
+	private final Tracer tracer;
+	private final int maxPending;
+	private final int maxConcurrencyPerEndpoint;
+	private final int maxAttempts;
+	private final Duration minBackOffDelay;
+	private final Duration maxBackOffDelay;
+	private final List<String> allowedHosts;
+	private final boolean includeLog;
+
+	// the endpoints with deliveries in progress, removed once they have none left
+	private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public NotarizationWebhooks(OkHttpClient httpClient, Jsonb jsonb, Scheduler scheduler, Tracer tracer, int maxPending,
+								int maxConcurrencyPerEndpoint, int maxAttempts, Duration minBackOffDelay, Duration maxBackOffDelay,
+								List<String> allowedHosts, boolean includeLog) {
+		this.httpClient = httpClient;
+		this.jsonb = jsonb;
+		this.scheduler = scheduler;
+		this.tracer = tracer;
+		this.maxPending = maxPending;
+		this.maxConcurrencyPerEndpoint = maxConcurrencyPerEndpoint;
+		this.maxAttempts = maxAttempts;
+		this.minBackOffDelay = minBackOffDelay;
+		this.maxBackOffDelay = maxBackOffDelay;
+		this.allowedHosts = allowedHosts.stream().map(host -> host.trim().toLowerCase(Locale.ROOT)).filter(host -> !host.isEmpty()).toList();
+		this.includeLog = includeLog;
+	}
+
+	/**
+	 * Returns whether the given callback URL is an absolute http or https URL on one of the allowed hosts.
+	 */
+	public boolean isAllowedCallbackUrl(String callbackUrl) {
+		HttpUrl url = HttpUrl.parse(callbackUrl);
+		return url != null && isAllowedHost(url.host());
+	}
+
+	private boolean isAllowedHost(String host) {
+		for (String allowed : allowedHosts) {
+			if (allowed.startsWith("*.") ? host.endsWith(allowed.substring(1)) : host.equals(allowed)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Posts the final status of the request to the given URL once the request is either complete or in
+	 * error, right away if it already is.
+	 */
+	public void register(UUID uuid, NotarizationRequest request, String callbackUrl) {
+		if (!isAllowedCallbackUrl(callbackUrl)) {
+			// e.g. a request resumed from the journal after the allowed hosts have changed
+			LOGGER.warn("Callback URL of request {} is not allowed anymore, it will not be notified", uuid);
+			return;
+		}
+		HttpUrl url = HttpUrl.get(callbackUrl);
+		AtomicBoolean delivered = new AtomicBoolean();
+		NotarizationRequestListener listener = new NotarizationRequestListener() {
+			@Override
+			public void statusChanged(NotarizationRequest r, NotarizationStatus status) {
+				if (status.status() != NotarizationStatus.State.IN_PROGRESS && delivered.compareAndSet(false, true)) {
+					r.removeListener(this);
+					deliver(url, NotarizationStatusWithUUID.from(uuid, includeLog ? status : NotarizationStatusBuilder.builder(status).log(null).build()));
+				}
+			}
+		};
+		request.addListener(listener);
+		// the request may have completed before the listener was added
+		listener.statusChanged(request, request.status().get());
+	}
+
+	/**
+	 * Posts the given status to the given URL, and returns the HTTP status code of the last attempt.
+	 */
+	CompletableFuture<Integer> deliver(HttpUrl url, NotarizationStatusWithUUID status) {
+		if (pending.incrementAndGet() > maxPending) {
+			pending.decrementAndGet();
+			LOGGER.warn("Too many pending callbacks ({}), dropping the notification of request {} to {}", maxPending, status.uuid(), url.redact());
+			return CompletableFuture.failedFuture(new RejectedExecutionException("Too many pending callbacks"));
+		}
+
+		byte[] body = jsonb.toJson(status).getBytes(StandardCharsets.UTF_8);
+		RetryPolicy<Integer> retryOnFailure =
+			new RetryPolicy<Integer>()
+				.handle(IOException.class)
+				.handleResultIf(NotarizationWebhooks::isRetryable)
+				.withMaxAttempts(maxAttempts)
+				.withBackoff(minBackOffDelay.toNanos(), maxBackOffDelay.toNanos(), ChronoUnit.NANOS)
+				.onFailedAttempt(
+					l -> LOGGER.debug("Failed to notify {} of the status of request {} (attempt#{}, lastResult={})",
+									  url.redact(), status.uuid(), l.getAttemptCount(), l.getLastResult(), l.getLastFailure()));
+
+		String endpoint = url.scheme() + "://" + url.host() + ":" + url.port();
+		return
+			Failsafe.with(retryOnFailure)
+				.with(acquire(endpoint))
+				.getAsync(() -> post(url, body))
+				.whenComplete((code, failure) -> {
+					release(endpoint);
+					pending.decrementAndGet();
+					if (failure != null || code / 100 != 2) {
+						LOGGER.warn("Unable to notify {} of the status of request {} (status code: {})", url.redact(), status.uuid(), code, failure);
+					} else {
+						LOGGER.debug("Notified {} of the status of request {}", url.redact(), status.uuid());
+					}
+				});
+	}
+
+	/**
+	 * Returns the number of deliveries that are either running or waiting for an attempt.
+	 */
+	public int pending() {
+		return pending.get();
+	}
+
+	/**
+	 * Returns the number of endpoints with deliveries in progress.
+	 */
+	int endpoints() {
+		return endpoints.size();
+	}
+
+	private Bulkhead acquire(String endpoint) {
+		return endpoints.compute(endpoint, (e, existing) -> {
+			Endpoint acquired = existing != null ? existing : new Endpoint(new Bulkhead("callback " + e, scheduler, maxConcurrencyPerEndpoint, tracer));
+			acquired.deliveries++;
+			return acquired;
+		}).bulkhead;
+	}
+
+	private void release(String endpoint) {
+		endpoints.computeIfPresent(endpoint, (e, acquired) -> --acquired.deliveries == 0 ? null : acquired);
+	}
+
+	private int post(HttpUrl url, byte[] body) throws IOException {
+		Request request = new Request.Builder().url(url).post(RequestBody.create(body, JSON)).build();
+		try (Response response = httpClient.newCall(request).execute()) {
+			return response.code();
+		}
+	}
+
+	private static boolean isRetryable(Integer code) {
+		// other client errors will not get better
+		return code >= 500 || code == 408 || code == 429;
+	}
+
+	private static class Endpoint {
+		private final Bulkhead bulkhead;
+		// only accessed within endpoints.compute
+		private int deliveries;
+
+		Endpoint(Bulkhead bulkhead) {
+			this.bulkhead = bulkhead;
+		}
+	}
+}
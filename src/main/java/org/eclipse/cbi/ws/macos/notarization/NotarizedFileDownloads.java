@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.trace.Span;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Serves the notarized files. The route is registered on the Vert.x router rather than as a JAX-RS
+ * resource, so that the content is sent with {@code sendfile}, without being copied through user-space
+ * buffers. Single byte ranges are supported so that clients can resume a download or fetch ranges in
+ * parallel, and the {@code ETag} is the SHA-256 digest of the file, computed once per request.
+ */
+@ApplicationScoped
+public class NotarizedFileDownloads {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizedFileDownloads.class);
+
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+	@Inject
+	NotarizationCache cache;
+
+	@Inject
+	@Named("stapling")
+	Bulkhead staplingStage;
+
+	/**
+	 * Digest of the notarized file of each request, by file. Each request notarizes its own file, and the
+	 * digests expire along with the requests.
+	 */
+	private final Cache<Path, HashCode> digests;
+
+	@Inject
+	NotarizedFileDownloads(@ConfigProperty(name = "notarization.cache.expireAfterWrite", defaultValue = "P1D") String cacheExpireAfterWrite) {
+		digests = CacheBuilder.newBuilder().expireAfterWrite(Duration.parse(cacheExpireAfterWrite)).build();
+	}
+
+	void registerRoutes(@Observes Router router) {
+		// before the JAX-RS resources, served under the same path
+		router.route(HttpMethod.GET, NotarizationApplication.PATH + "/:uuid/download").order(-1).blockingHandler(this::download, false);
+		router.route(HttpMethod.HEAD, NotarizationApplication.PATH + "/:uuid/download").order(-1).blockingHandler(this::download, false);
+	}
+
+	/**
+	 * Computes the digest of the notarized file of the given request in the background, so that it is
+	 * ready for the first download. Files are hashed as part of the stapling stage, as it is the one
+	 * that modified them, so that hashing large files does not hold the threads of the other stages.
+	 */
+	void prepare(NotarizationRequest request) {
+		if (isUnmodified(request)) {
+			return;
+		}
+		staplingStage.schedule(() -> {
+			try {
+				digest(request);
+			} catch (RuntimeException e) {
+				LOGGER.debug("Unable to compute the digest of '{}'", request.fileToNotarize(), e);
+			}
+			return null;
+		}, 0, TimeUnit.NANOSECONDS);
+	}
+
+	private HashCode digest(NotarizationRequest request) {
+		if (isUnmodified(request)) {
+			return request.contentHash();
+		}
+		try {
+			return digests.get(request.fileToNotarize(), () -> computeDigest(request));
+		} catch (ExecutionException e) {
+			throw new UncheckedExecutionException(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns whether the file has not been modified since it has been uploaded, its digest is then the
+	 * one computed while it was uploaded.
+	 */
+	private static boolean isUnmodified(NotarizationRequest request) {
+		return !request.notarizationOptions().staple() && request.contentHash() != null;
+	}
+
+	private static HashCode computeDigest(NotarizationRequest request) throws IOException {
+		return MoreFiles.asByteSource(request.fileToNotarize()).hash(Hashing.sha256());
+	}
+
+	private void download(RoutingContext context) {
+		HttpServerResponse response = context.response();
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(context.pathParam("uuid"));
+		} catch (IllegalArgumentException e) {
+			endWithText(response, 400, e.getMessage());
+			return;
+		}
+		Span.current().setAttribute("notarization.uuid", uuid.toString());
+		NotarizationRequest request = cache.getIfPresent(uuid);
+		if (request == null) {
+			endWithText(response, 404, "Unknown UUID");
+			return;
+		}
+		if (request.status().get().status() != NotarizationStatus.State.COMPLETE) {
+			endWithText(response, 404, "Notarization process did not complete yet.");
+			return;
+		}
+
+		HashCode digest;
+		long size;
+		try {
+			digest = digest(request);
+			size = Files.size(request.fileToNotarize());
+		} catch (UncheckedExecutionException | IOException e) {
+			if (Throwables.getRootCause(e) instanceof NoSuchFileException) {
+				endWithText(response, 404, "Notarized file does not exist anymore.");
+			} else {
+				LOGGER.error("Unable to serve the notarized file of request {}", uuid, e);
+				endWithText(response, 500, "Unable to read the notarized file.");
+			}
+			return;
+		}
+
+		String etag = '"' + digest.toString() + '"';
+		response.putHeader(HttpHeaders.ETAG, etag);
+		response.putHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.putHeader("Repr-Digest", "sha-256=:" + Base64.getEncoder().encodeToString(digest.asBytes()) + ":");
+		if (matches(context.request().getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+			response.setStatusCode(304).end();
+			return;
+		}
+
+		response.putHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream");
+		response.putHeader(HttpHeaders.CONTENT_DISPOSITION,
+						   request.submittedFilename() != null ? "attachment; filename=\"" + request.submittedFilename() + "\"" : "attachment");
+
+		long offset = 0;
+		long length = size;
+		String range = context.request().getHeader("Range");
+		String ifRange = context.request().getHeader("If-Range");
+		if (range != null && (ifRange == null || ifRange.equals(etag))) {
+			Matcher matcher = RANGE.matcher(range.trim());
+			// multiple ranges are not supported, the whole file is sent instead
+			if (matcher.matches()) {
+				long[] bounds = bounds(matcher.group(1), matcher.group(2), size);
+				if (bounds == null) {
+					response.putHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+					response.setStatusCode(416).end();
+					return;
+				}
+				offset = bounds[0];
+				length = bounds[1] - bounds[0] + 1;
+				response.setStatusCode(206);
+				response.putHeader(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+			}
+		}
+
+		if (context.request().method() == HttpMethod.HEAD) {
+			response.putHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length));
+			response.end();
+		} else {
+			response.sendFile(request.fileToNotarize().toString(), offset, length)
+				.onFailure(e -> LOGGER.debug("Download of the notarized file of request {} has been interrupted", uuid, e));
+		}
+	}
+
+	/**
+	 * Returns the first and last positions of the given range, or null if it is not satisfiable.
+	 */
+	static long[] bounds(String first, String last, long size) {
+		try {
+			if (first.isEmpty()) {
+				// suffix range: the last bytes
+				if (last.isEmpty() || Long.parseLong(last) == 0 || size == 0) {
+					return null;
+				}
+				return new long[] { Math.max(0, size - Long.parseLong(last)), size - 1 };
+			}
+			long start = Long.parseLong(first);
+			long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+			if (start >= size || end < start) {
+				return null;
+			}
+			return new long[] { start, end };
+		} catch (NumberFormatException e) {
+			// out of the long range
+			return null;
+		}
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			String trimmed = tag.trim();
+			if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void endWithText(HttpServerResponse response, int statusCode, String message) {
+		response.setStatusCode(statusCode).putHeader(HttpHeaders.CONTENT_TYPE, "text/plain").end(message);
+	}
+}
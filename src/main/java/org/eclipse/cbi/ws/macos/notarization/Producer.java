@@ -7,17 +7,43 @@
  *******************************************************************************/
 package org.eclipse.cbi.ws.macos.notarization;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
 import jakarta.enterprise.inject.Produces;
+import jakarta.enterprise.inject.Typed;
 import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import jakarta.json.bind.Jsonb;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import io.opentelemetry.api.trace.Tracer;
+import io.quarkus.runtime.configuration.MemorySize;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.AdaptivePollingSchedule;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationAggregator;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationHistoryPoller;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationTool;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi.NotaryApiNotarizer;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi.NotaryApiTokenProvider;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi.ObjectStoreUploader;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.notarytool.NotarytoolNotarizer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,26 +52,220 @@ import org.slf4j.LoggerFactory;
 public class Producer {
 	private static final Logger LOGGER = LoggerFactory.getLogger("macos-notarization-service-threadpool-handler");
 
+	/**
+	 * Returns the pool running the notarization stages. When stages run on virtual threads, it is a
+	 * small scheduler that only handles the delays between attempts and the batched polling.
+	 */
 	@Produces
+	@Singleton
 	@Named("macos-notarization-service-pool")
-	ScheduledExecutorService produceExecutor() {
-		return Executors.newScheduledThreadPool(32, new ThreadFactoryBuilder()
+	ScheduledExecutorService produceExecutor(
+			@ConfigProperty(name = "notarization.executor.mode", defaultValue = "platform") String mode,
+			@ConfigProperty(name = "notarization.executor.poolSize", defaultValue = "32") int poolSize,
+			@ConfigProperty(name = "notarization.executor.schedulerPoolSize", defaultValue = "2") int schedulerPoolSize) {
+		return Executors.newScheduledThreadPool(virtualThreads(mode) ? schedulerPoolSize : poolSize, new ThreadFactoryBuilder()
 				.setNameFormat("macos-notarization-service-pool-thread-%d")
 				.setUncaughtExceptionHandler((t, e) -> LOGGER.error("Uncaught " + e.getClass().getName() + " in thread " + t.getName(), e))
 				.build());
 	}
 
 	/**
-	 * Returns the actual notarization tool that will be used.
+	 * Returns the scheduler the attempts of the notarization stages are run with.
+	 */
+	@Produces
+	@Singleton
+	Scheduler produceScheduler(
+			@Named("macos-notarization-service-pool") ScheduledExecutorService executor,
+			@ConfigProperty(name = "notarization.executor.mode", defaultValue = "platform") String mode,
+			@ConfigProperty(name = "notarization.executor.maxConcurrentTasks", defaultValue = "128") int maxConcurrentTasks) {
+		if (virtualThreads(mode)) {
+			return VirtualThreadScheduler.create(executor, maxConcurrentTasks).orElseThrow();
+		}
+		return Scheduler.of(executor);
+	}
+
+	void disposeScheduler(@Disposes Scheduler scheduler) {
+		if (scheduler instanceof VirtualThreadScheduler virtualThreadScheduler) {
+			virtualThreadScheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the bulkhead of the upload stage, see {@link Bulkhead}.
+	 */
+	@Produces
+	@Singleton
+	@Typed(Bulkhead.class)
+	@Named("upload")
+	Bulkhead produceUploadBulkhead(
+			Scheduler scheduler,
+			Tracer tracer,
+			@ConfigProperty(name = "notarization.upload.maxConcurrency", defaultValue = "16") int maxConcurrency) {
+		return new Bulkhead("upload", scheduler, maxConcurrency, tracer);
+	}
+
+	/**
+	 * Returns the bulkhead of the info polling stage, see {@link Bulkhead}.
+	 */
+	@Produces
+	@Singleton
+	@Typed(Bulkhead.class)
+	@Named("infoPolling")
+	Bulkhead produceInfoPollingBulkhead(
+			Scheduler scheduler,
+			Tracer tracer,
+			@ConfigProperty(name = "notarization.infoPolling.maxConcurrency", defaultValue = "8") int maxConcurrency) {
+		return new Bulkhead("infoPolling", scheduler, maxConcurrency, tracer);
+	}
+
+	/**
+	 * Returns the bulkhead of the stapling stage, see {@link Bulkhead}.
+	 */
+	@Produces
+	@Singleton
+	@Typed(Bulkhead.class)
+	@Named("stapling")
+	Bulkhead produceStaplingBulkhead(
+			Scheduler scheduler,
+			Tracer tracer,
+			@ConfigProperty(name = "notarization.stapling.maxConcurrency", defaultValue = "8") int maxConcurrency) {
+		return new Bulkhead("stapling", scheduler, maxConcurrency, tracer);
+	}
+
+	/**
+	 * Returns the bulkhead of the bundles stapled within zip files, shared by all the zip files being
+	 * stapled, see {@link Bulkhead}.
+	 */
+	@Produces
+	@Singleton
+	@Typed(Bulkhead.class)
+	@Named("staplingBundles")
+	Bulkhead produceStaplingBundlesBulkhead(
+			Scheduler scheduler,
+			Tracer tracer,
+			@ConfigProperty(name = "notarization.stapling.bundleParallelism", defaultValue = "4") int maxConcurrency) {
+		return new Bulkhead("staplingBundles", scheduler, maxConcurrency, tracer);
+	}
+
+	private static boolean virtualThreads(String mode) {
+		if ("virtual".equalsIgnoreCase(mode)) {
+			if (VirtualThreadScheduler.isSupported()) {
+				return true;
+			}
+			LOGGER.warn("Virtual threads are not supported by this JVM (Java 21+ is required), falling back to platform threads");
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the poller shared by all requests to retrieve their notarization status in batch.
+	 */
+	@Produces
+	@Singleton
+	NotarizationHistoryPoller produceHistoryPoller(
+			@Named("macos-notarization-service-pool") ScheduledExecutorService executor,
+			@Named("infoPolling") Bulkhead infoPollingStage,
+			@ConfigProperty(name = "notarization.infoPolling.delayBetweenSuccessfulAttempts", defaultValue = "PT20S") Duration delayBetweenPolls,
+			@ConfigProperty(name = "notarization.infoPolling.maxFailedAttempts", defaultValue = "16") int maxFailedAttempts,
+			@ConfigProperty(name = "notarization.infoPolling.minBackOffDelay", defaultValue = "PT2S") Duration minBackOffDelay,
+			@ConfigProperty(name = "notarization.infoPolling.maxBackOffDelay", defaultValue = "PT60S") Duration maxBackOffDelay) {
+		return new NotarizationHistoryPoller(executor, infoPollingStage, delayBetweenPolls, maxFailedAttempts, minBackOffDelay, maxBackOffDelay);
+	}
+
+	/**
+	 * Returns the aggregator packing small files into shared submissions, see {@link NotarizationAggregator}.
+	 */
+	@Produces
+	@Singleton
+	NotarizationAggregator produceAggregator(
+			@Named("macos-notarization-service-pool") ScheduledExecutorService executor,
+			@Named("upload") Bulkhead uploadStage,
+			@ConfigProperty(name = "notarization.cache.uploadedFiles", defaultValue = "/tmp/macos-notarization-service/pending-files") Path pendingFiles,
+			@ConfigProperty(name = "notarization.aggregation.window", defaultValue = "PT10S") Duration window,
+			@ConfigProperty(name = "notarization.aggregation.maxFileSize", defaultValue = "16M") MemorySize maxFileSize,
+			@ConfigProperty(name = "notarization.aggregation.maxFiles", defaultValue = "50") int maxFiles) {
+		return new NotarizationAggregator(executor, uploadStage, pendingFiles, window, maxFileSize.asLongValue(), maxFiles);
+	}
+
+	/**
+	 * Returns the schedule shared by all requests to learn how long Apple takes to notarize artifacts.
+	 * When the journal is enabled, the observed times are kept next to it to survive restarts.
+	 */
+	@Produces
+	@Singleton
+	AdaptivePollingSchedule produceAdaptivePollingSchedule(
+			@ConfigProperty(name = "notarization.infoPolling.delayBetweenSuccessfulAttempts", defaultValue = "PT20S") Duration defaultDelay,
+			@ConfigProperty(name = "notarization.infoPolling.minDelay", defaultValue = "PT5S") Duration minDelay,
+			@ConfigProperty(name = "notarization.infoPolling.maxDelay", defaultValue = "PT2M") Duration maxDelay,
+			@ConfigProperty(name = "notarization.journal.enabled", defaultValue = "true") boolean journalEnabled,
+			@ConfigProperty(name = "notarization.journal.file", defaultValue = "/tmp/macos-notarization-service/journal.jsonl") Path journalFile) {
+		return new AdaptivePollingSchedule(defaultDelay, minDelay, maxDelay,
+										   journalEnabled ? journalFile.resolveSibling("polling-samples.tsv") : null);
+	}
+
+	/**
+	 * Returns the notifier posting the final status of the requests to their callback URL.
+	 */
+	@Produces
+	@Singleton
+	NotarizationWebhooks produceWebhooks(
+			Scheduler scheduler,
+			Tracer tracer,
+			Jsonb jsonb,
+			@ConfigProperty(name = "notarization.callback.timeout", defaultValue = "PT10S") Duration timeout,
+			@ConfigProperty(name = "notarization.callback.maxPending", defaultValue = "1000") int maxPending,
+			@ConfigProperty(name = "notarization.callback.maxConcurrencyPerEndpoint", defaultValue = "2") int maxConcurrencyPerEndpoint,
+			@ConfigProperty(name = "notarization.callback.maxAttempts", defaultValue = "5") int maxAttempts,
+			@ConfigProperty(name = "notarization.callback.minBackOffDelay", defaultValue = "PT1S") Duration minBackOffDelay,
+			@ConfigProperty(name = "notarization.callback.maxBackOffDelay", defaultValue = "PT60S") Duration maxBackOffDelay,
+			@ConfigProperty(name = "notarization.callback.allowedHosts") Optional<List<String>> allowedHosts,
+			@ConfigProperty(name = "notarization.callback.includeLog", defaultValue = "false") boolean includeLog) {
+		// a redirect would lead to a host that is not allowed
+		OkHttpClient httpClient = new OkHttpClient.Builder().callTimeout(timeout).followRedirects(false).followSslRedirects(false).build();
+		return new NotarizationWebhooks(httpClient, jsonb, scheduler, tracer, maxPending, maxConcurrencyPerEndpoint,
+										maxAttempts, minBackOffDelay, maxBackOffDelay, allowedHosts.orElse(List.of()), includeLog);
+	}
+
+	/**
+	 * Returns the actual notarization tool that will be used: {@code xcrun notarytool} by default, or the
+	 * Notary REST API when {@code notarization.tool} is {@code api}.
 	 * This is useful for mocking the used tool during tests.
 	 */
 	@Produces
 	@ApplicationScoped
-	public NotarizationTool produceNotarizationTool() {
+	public NotarizationTool produceNotarizationTool(
+			@ConfigProperty(name = "notarization.tool", defaultValue = "notarytool") String tool,
+			@ConfigProperty(name = "notarization.api.url", defaultValue = "https://appstoreconnect.apple.com/notary/v2") String apiUrl,
+			@ConfigProperty(name = "notarization.api.issuerId") Optional<String> issuerId,
+			@ConfigProperty(name = "notarization.api.keyId") Optional<String> keyId,
+			@ConfigProperty(name = "notarization.api.privateKeyFile") Optional<Path> privateKeyFile,
+			@ConfigProperty(name = "notarization.api.objectStore.url", defaultValue = "https://s3.us-west-2.amazonaws.com") String objectStoreUrl,
+			@ConfigProperty(name = "notarization.api.objectStore.region", defaultValue = "us-west-2") String objectStoreRegion,
+			@ConfigProperty(name = "notarization.api.upload.partSize", defaultValue = "16M") MemorySize partSize,
+			@ConfigProperty(name = "notarization.api.upload.parallelism", defaultValue = "4") int parallelism,
+			@ConfigProperty(name = "notarization.api.upload.minPartThroughput", defaultValue = "64K") MemorySize minPartThroughput) {
 		// when altool shall be used
 		// OkHttpClient httpClient = new OkHttpClient.Builder().callTimeout(Duration.ofSeconds(30)).build();
 		//return new AltoolNotarizer(httpClient);
 
+		if ("api".equalsIgnoreCase(tool)) {
+			if (issuerId.isEmpty() || keyId.isEmpty() || privateKeyFile.isEmpty()) {
+				throw new IllegalStateException("notarization.api.issuerId, notarization.api.keyId and notarization.api.privateKeyFile must be set to use the Notary API");
+			}
+			PrivateKey privateKey;
+			try {
+				privateKey = NotaryApiTokenProvider.readPrivateKey(privateKeyFile.get());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			// a single client, so that connections and TLS sessions are pooled across all calls
+			OkHttpClient httpClient = new OkHttpClient();
+			httpClient.dispatcher().setMaxRequestsPerHost(httpClient.dispatcher().getMaxRequests());
+			return new NotaryApiNotarizer(httpClient,
+										  HttpUrl.get(apiUrl),
+										  new NotaryApiTokenProvider(issuerId.get(), keyId.get(), privateKey),
+										  new ObjectStoreUploader(httpClient, HttpUrl.get(objectStoreUrl), objectStoreRegion, partSize.asLongValue(), parallelism, minPartThroughput.asLongValue()));
+		}
 		return new NotarytoolNotarizer();
 	}
 }
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationUpload;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resumable uploads of the files to notarize, for files that are too large to be reliably uploaded in a
+ * single request. The chunks of a session are appended, in order, directly to a file in the pending
+ * files folder, and hashed on the way, so that finishing a session does not read the file again.
+ * <p>
+ * The bytes of a chunk are committed as they are written, so when a chunk is interrupted, the client
+ * resumes from the committed offset rather than from the start of the chunk. Sessions that have not
+ * been accessed for a while are discarded along with their file.
+ */
+@ApplicationScoped
+public class UploadSessions {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UploadSessions.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Path folder;
+	private final int maxSessions;
+	private final Cache<UUID, Session> sessions;
+
+	@Inject
+	UploadSessions(
+			@ConfigProperty(name = "notarization.cache.uploadedFiles", defaultValue = "/tmp/macos-notarization-service/pending-files") String pendingFilesPath,
+			@ConfigProperty(name = "notarization.upload.sessions.expireAfterAccess", defaultValue = "PT24H") Duration expireAfterAccess,
+			@ConfigProperty(name = "notarization.upload.sessions.max", defaultValue = "100") int maxSessions) {
+		this.folder = Paths.get(pendingFilesPath);
+		this.maxSessions = maxSessions;
+		this.sessions =
+			CacheBuilder.newBuilder()
+				.expireAfterAccess(expireAfterAccess)
+				.removalListener(UploadSessions::discard)
+				.build();
+	}
+
+	/**
+	 * Opens a new session, for a file submitted with the given name.
+	 *
+	 * @throws RejectedExecutionException if there are already maxSessions open sessions.
+	 */
+	public NotarizationUpload create(@Nullable String submittedFilename) throws IOException {
+		sessions.cleanUp();
+		if (sessions.size() >= maxSessions) {
+			throw new RejectedExecutionException("Too many upload sessions are open");
+		}
+		Path path = UploadedFile.createTempFile(folder, submittedFilename != null ? submittedFilename : "unknown");
+		UUID uploadId = UUID.randomUUID();
+		sessions.put(uploadId, new Session(uploadId, path, submittedFilename));
+		LOGGER.debug("Opened upload session {} in '{}'", uploadId, path);
+		return new NotarizationUpload(uploadId, 0);
+	}
+
+	/**
+	 * Returns the committed offset of the given session, or an empty optional if it is unknown.
+	 */
+	public Optional<NotarizationUpload> status(UUID uploadId) {
+		return Optional.ofNullable(sessions.getIfPresent(uploadId)).map(Session::status);
+	}
+
+	/**
+	 * Appends the given content to the given session at the given offset, and returns the new committed
+	 * offset, or an empty optional if the session is unknown. If reading the content fails, the bytes read
+	 * so far remain committed.
+	 *
+	 * @throws ConflictException if the offset is not the committed one, or if another chunk of the session
+	 *         is being uploaded.
+	 */
+	public Optional<NotarizationUpload> append(UUID uploadId, long offset, InputStream content) throws IOException, ConflictException {
+		Session session = sessions.getIfPresent(uploadId);
+		if (session == null) {
+			return Optional.empty();
+		}
+		return session.append(offset, content);
+	}
+
+	/**
+	 * Closes the given session and returns its file, or an empty optional if the session is unknown.
+	 *
+	 * @throws ConflictException if a chunk of the session is being uploaded.
+	 */
+	public Optional<UploadedFile> finish(UUID uploadId) throws ConflictException {
+		Session session = sessions.getIfPresent(uploadId);
+		if (session == null) {
+			return Optional.empty();
+		}
+		Optional<UploadedFile> file = session.finish();
+		sessions.invalidate(uploadId);
+		return file;
+	}
+
+	/**
+	 * Discards the given session and its file. Returns false if the session is unknown.
+	 */
+	public boolean abort(UUID uploadId) {
+		if (sessions.asMap().remove(uploadId) == null) {
+			return false;
+		}
+		LOGGER.debug("Aborted upload session {}", uploadId);
+		return true;
+	}
+
+	private static void discard(RemovalNotification<UUID, Session> notification) {
+		Session session = notification.getValue();
+		if (session.finished) {
+			// the file is now owned by the notarization request
+			return;
+		}
+		session.closed = true;
+		try {
+			Files.deleteIfExists(session.path);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to delete the file of upload session {}", notification.getKey(), e);
+		}
+	}
+
+	private static class Session {
+		private final UUID uploadId;
+		private final Path path;
+		private final String submittedFilename;
+		private final ReentrantLock lock = new ReentrantLock();
+		// guarded by lock
+		private final Hasher hasher = Hashing.sha256().newHasher();
+		// written under lock
+		private volatile long offset;
+		private volatile boolean closed;
+		private volatile boolean finished;
+
+		Session(UUID uploadId, Path path, String submittedFilename) {
+			this.uploadId = uploadId;
+			this.path = path;
+			this.submittedFilename = submittedFilename;
+		}
+
+		NotarizationUpload status() {
+			return new NotarizationUpload(uploadId, offset);
+		}
+
+		Optional<NotarizationUpload> append(long position, InputStream content) throws IOException, ConflictException {
+			if (!lock.tryLock()) {
+				throw new ConflictException("Another chunk of the upload is in progress", status());
+			}
+			try {
+				if (closed) {
+					return Optional.empty();
+				}
+				if (position != offset) {
+					throw new ConflictException("Chunk must be uploaded at offset " + offset, status());
+				}
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+					// drop what a failed write may have left after the committed bytes
+					channel.truncate(offset);
+					channel.position(offset);
+					byte[] buffer = new byte[BUFFER_SIZE];
+					int read;
+					while ((read = content.read(buffer)) != -1) {
+						ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+						while (bytes.hasRemaining()) {
+							channel.write(bytes);
+						}
+						hasher.putBytes(buffer, 0, read);
+						offset += read;
+					}
+				}
+				return Optional.of(status());
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		Optional<UploadedFile> finish() throws ConflictException {
+			if (!lock.tryLock()) {
+				throw new ConflictException("A chunk of the upload is in progress", status());
+			}
+			try {
+				if (closed) {
+					return Optional.empty();
+				}
+				closed = true;
+				finished = true;
+				return Optional.of(new UploadedFile(path, submittedFilename, hasher.hash(), offset, ContentEncoding.IDENTITY, offset));
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Thrown when a chunk cannot be applied to the current state of a session.
+	 */
+	public static class ConflictException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private final transient NotarizationUpload status;
+
+		ConflictException(String message, NotarizationUpload status) {
+			super(message);
+			this.status = status;
+		}
+
+		/**
+		 * Returns the committed offset of the session.
+		 */
+		public NotarizationUpload status() {
+			return status;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * A file that has been uploaded by a client in the pending files folder. The file holds the decoded
+ * content, while receivedSize is the number of bytes of its part as sent, with the given coding.
+ */
+record UploadedFile(Path path, @Nullable String submittedFilename, HashCode contentHash, long size, ContentEncoding encoding, long receivedSize) {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Streams the content of the given part to a new file in the given folder. Each byte is written
+	 * once, directly from the multipart read buffer, and hashed on the way. If the part has a
+	 * {@code Content-Encoding}, it is decoded on the way as well, and the file holds the decoded content.
+	 *
+	 * @throws TooLargeException if the content is larger than maxSize bytes once decoded. The partial
+	 *         file is deleted.
+	 */
+	static UploadedFile write(MultipartStream.Part part, Path folder, long maxSize) throws IOException {
+		ContentEncoding encoding = ContentEncoding.of(part.header("Content-Encoding").orElse(null));
+		String submittedFilename = part.submittedFilename().orElse(null);
+		Path path = createTempFile(folder, submittedFilename != null ? submittedFilename : "unknown");
+		Hasher hasher = Hashing.sha256().newHasher();
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// compressed content is only limited by the size of the request, not once decoded
+			WritableByteChannel channel = new LimitedChannel(file, maxSize);
+			if (encoding == ContentEncoding.IDENTITY) {
+				long size = part.transferTo(channel, hasher);
+				return new UploadedFile(path, submittedFilename, hasher.hash(), size, encoding, size);
+			}
+			CountingInputStream received = new CountingInputStream(part.body());
+			long size = transfer(encoding.decode(received), channel, hasher);
+			return new UploadedFile(path, submittedFilename, hasher.hash(), size, encoding, received.getCount());
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(path);
+			throw e;
+		}
+	}
+
+	private static long transfer(InputStream in, WritableByteChannel channel, Hasher hasher) throws IOException {
+		long transferred = 0;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+			hasher.putBytes(chunk.duplicate());
+			while (chunk.hasRemaining()) {
+				channel.write(chunk);
+			}
+			transferred += read;
+		}
+		return transferred;
+	}
+
+	void delete() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Thrown when an uploaded file is larger than allowed once decoded.
+	 */
+	static class TooLargeException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		TooLargeException(long maxSize) {
+			super("Uploaded files must not be larger than " + maxSize + " bytes once decoded.");
+		}
+	}
+
+	private static class LimitedChannel implements WritableByteChannel {
+		private final WritableByteChannel channel;
+		private final long maxSize;
+		private long written;
+
+		LimitedChannel(WritableByteChannel channel, long maxSize) {
+			this.channel = channel;
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (written + src.remaining() > maxSize) {
+				throw new TooLargeException(maxSize);
+			}
+			int n = channel.write(src);
+			written += n;
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	static Path createTempFile(Path parentFolder, String templateFilename) throws IOException {
+		return Files.createTempFile(parentFolder,
+				                    com.google.common.io.Files.getNameWithoutExtension(templateFilename) + "-",
+				                    "." + com.google.common.io.Files.getFileExtension(templateFilename));
+	}
+}
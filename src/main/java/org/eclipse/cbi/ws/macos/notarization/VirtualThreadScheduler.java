@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+/**
+ * Failsafe scheduler that runs each attempt on its own virtual thread, while the delays between
+ * attempts are handled by a small platform thread scheduler. As virtual threads are not a scarce
+ * resource, the number of attempts running concurrently is bounded by explicit permits.
+ */
+public class VirtualThreadScheduler implements Scheduler {
+
+	// looked up reflectively as the service is still built for Java 17
+	private static final Optional<Method> NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookUpNewVirtualThreadPerTaskExecutor();
+
+	private final ScheduledExecutorService delayScheduler;
+	private final ExecutorService virtualThreads;
+	private final Semaphore permits;
+
+	VirtualThreadScheduler(ScheduledExecutorService delayScheduler, ExecutorService virtualThreads, int maxConcurrentTasks) {
+		this.delayScheduler = delayScheduler;
+		this.virtualThreads = virtualThreads;
+		this.permits = new Semaphore(maxConcurrentTasks, true);
+	}
+
+	/**
+	 * Returns a scheduler running attempts on virtual threads, or an empty optional if the running
+	 * JVM does not support them (before Java 21).
+	 */
+	public static Optional<VirtualThreadScheduler> create(ScheduledExecutorService delayScheduler, int maxConcurrentTasks) {
+		return newVirtualThreadPerTaskExecutor()
+			.map(virtualThreads -> new VirtualThreadScheduler(delayScheduler, virtualThreads, maxConcurrentTasks));
+	}
+
+	/**
+	 * Returns whether the running JVM supports virtual threads (Java 21+), without creating any
+	 * executor.
+	 */
+	public static boolean isSupported() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.isPresent();
+	}
+
+	static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.flatMap(method -> {
+			try {
+				return Optional.of((ExecutorService) method.invoke(null));
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				return Optional.empty();
+			}
+		});
+	}
+
+	private static Optional<Method> lookUpNewVirtualThreadPerTaskExecutor() {
+		try {
+			return Optional.of(Executors.class.getMethod("newVirtualThreadPerTaskExecutor"));
+		} catch (NoSuchMethodException e) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Callable<?> callable, long delay, TimeUnit unit) {
+		FutureTask<Object> task = new FutureTask<>(() -> {
+			permits.acquire();
+			try {
+				return callable.call();
+			} finally {
+				permits.release();
+			}
+		});
+		ScheduledFuture<?> delayed = delayScheduler.schedule(() -> virtualThreads.execute(task), delay, unit);
+		return new DelayedTask(delayed, task);
+	}
+
+	/**
+	 * Stops the virtual thread executor, interrupting the running attempts. The delay scheduler is
+	 * left to its owner.
+	 */
+	public void shutdown() {
+		virtualThreads.shutdownNow();
+	}
+}
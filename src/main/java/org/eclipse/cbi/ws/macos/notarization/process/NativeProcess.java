@@ -11,14 +11,28 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Scope;
 import io.soabase.recordbuilder.core.RecordBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +43,45 @@ public class NativeProcess {
 	
 	private static final int DESTROY_GRACETIME_MILLIS = 5000;
 
+	private static final ExecutorService OUTPUT_DRAINERS =
+		Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+			.setNameFormat("native-process-output-%d")
+			.setDaemon(true)
+			.build());
+
+	private static volatile OutputCapture defaultOutputCapture = OutputCapture.inMemory(OutputCapture.DEFAULT_SPILL_THRESHOLD);
+
+	private static volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+	private static volatile Tracer tracer = TracerProvider.noop().get(NativeProcess.class.getName());
+
+	/**
+	 * Sets how the output of the processes started with {@link #startAndWait(ProcessBuilder, Duration)}
+	 * is captured.
+	 */
+	public static void setDefaultOutputCapture(OutputCapture outputCapture) {
+		defaultOutputCapture = outputCapture;
+	}
+
+	/**
+	 * Sets the registry in which the duration of the processes is recorded, by command and outcome.
+	 */
+	public static void setMeterRegistry(MeterRegistry registry) {
+		meterRegistry = registry;
+	}
+
+	/**
+	 * Sets the tracer with which each process is traced by a span, child of the current context.
+	 */
+	public static void setTracer(Tracer processTracer) {
+		tracer = processTracer;
+	}
+
 	public static Result startAndWait(ProcessBuilder processBuilder, Duration timeout) throws TimeoutException, IOException {
+		return startAndWait(processBuilder, timeout, defaultOutputCapture);
+	}
+
+	public static Result startAndWait(ProcessBuilder processBuilder, Duration timeout, OutputCapture outputCapture) throws TimeoutException, IOException {
 		Iterator<String> commandIterator = processBuilder.command().iterator();
 
 		String arg0 =
@@ -37,14 +89,55 @@ public class NativeProcess {
 			(commandIterator.hasNext() ? " " + commandIterator.next() : "") +
 			(commandIterator.hasNext() ? " " + commandIterator.next() : "");
 		
-		String safePrefix = arg0.replaceAll("[ /]", "-").replaceAll("-+", "-") + "-";
+		Timer.Sample sample = Timer.start(meterRegistry);
+		Span span = tracer.spanBuilder(arg0).setAttribute("process.command", arg0).startSpan();
+		String outcome = "error";
+		try (Scope scope = span.makeCurrent()) {
+			Result result = startAndWait(processBuilder, timeout, outputCapture, arg0);
+			outcome = result.exitValue() == 0 ? "success" : "failure";
+			span.setAttribute("process.exit.code", result.exitValue());
+			return result;
+		} catch (TimeoutException e) {
+			outcome = "timeout";
+			span.recordException(e);
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			span.recordException(e);
+			throw e;
+		} finally {
+			if (!"success".equals(outcome)) {
+				span.setStatus(StatusCode.ERROR, outcome);
+			}
+			span.end();
+			sample.stop(Timer.builder("notarization.process")
+				.description("Duration of the native processes, from their start until their output has been captured")
+				.tags("command", arg0, "outcome", outcome)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofMillis(10))
+				.maximumExpectedValue(Duration.ofHours(1))
+				.register(meterRegistry));
+		}
+	}
 
-		Path out = Files.createTempFile(safePrefix, ".stdout");
-		Path err = Files.createTempFile(safePrefix, ".stderr");
-		
-		processBuilder.redirectOutput(out.toFile()).redirectError(err.toFile());
+	private static Result startAndWait(ProcessBuilder processBuilder, Duration timeout, OutputCapture outputCapture, String arg0) throws TimeoutException, IOException {
+		String safePrefix = arg0.replaceAll("[ /]", "-").replaceAll("-+", "-") + "-";
 
-		Process p = processBuilder.start();
+		Capture out;
+		Capture err;
+		Process p;
+		if (outputCapture.inMemory()) {
+			processBuilder.redirectOutput(ProcessBuilder.Redirect.PIPE).redirectError(ProcessBuilder.Redirect.PIPE);
+			p = processBuilder.start();
+			out = new PipeCapture(p.getInputStream(), new SpillingBuffer(outputCapture.spillThreshold(), safePrefix, ".stdout"));
+			err = new PipeCapture(p.getErrorStream(), new SpillingBuffer(outputCapture.spillThreshold(), safePrefix, ".stderr"));
+		} else {
+			Path outFile = Files.createTempFile(safePrefix, ".stdout");
+			Path errFile = Files.createTempFile(safePrefix, ".stderr");
+			processBuilder.redirectOutput(outFile.toFile()).redirectError(errFile.toFile());
+			p = processBuilder.start();
+			out = new FileCapture(outFile);
+			err = new FileCapture(errFile);
+		}
 
 		try {
 			if (!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) { // timeout
@@ -62,26 +155,41 @@ public class NativeProcess {
 			Thread.currentThread().interrupt();
 		}
 
+		ProcessOutput stdout;
+		try {
+			stdout = out.await();
+		} catch (IOException e) {
+			err.discard();
+			throw e;
+		}
+		ProcessOutput stderr;
+		try {
+			stderr = err.await();
+		} catch (IOException e) {
+			stdout.delete();
+			throw e;
+		}
+
 		NativeProcessResultBuilder builder =
 			Result.builder()
 				.exitValue(p.exitValue())
 				.arg0(arg0)
-				.stdout(out)
-				.stderr(err);
+				.stdout(stdout)
+				.stderr(stderr);
 
-		// do not use try-with-resources here, it will delete the capture output files.
+		// do not use try-with-resources here, it will delete the captured output.
 		return builder.build().log();
 	}
 
-	private static void destroy(Process p, String arg0, Path out, Path err) {
+	private static void destroy(Process p, String arg0, Capture out, Capture err) {
 		p.destroy();
 		try {
 			if (!p.waitFor(DESTROY_GRACETIME_MILLIS, TimeUnit.MILLISECONDS)) {
 				if (!p.destroyForcibly().waitFor(DESTROY_GRACETIME_MILLIS, TimeUnit.MILLISECONDS)) {
 					LOGGER.error(
 						"Process '" + arg0 + "' did not stop even after being forcibly destroyed. \n" 
-								+ "Current stdout:\n" + stdioContent(out) + "\n"
-								+ "Current stderr:\n" + stdioContent(err)+"\n");
+								+ "Current stdout:\n" + out.currentContent() + "\n"
+								+ "Current stderr:\n" + err.currentContent() + "\n");
 				}
 			}
 		} catch (InterruptedException e) {
@@ -91,12 +199,93 @@ public class NativeProcess {
 			// Restore the interrupted status
 			Thread.currentThread().interrupt();
 		} finally {
-			deleteIfExists(out);
-			deleteIfExists(err);
+			out.discard();
+			err.discard();
+		}
+	}
+
+	/**
+	 * The capture of one of the output streams of a running process.
+	 */
+	private interface Capture {
+		/**
+		 * Returns the captured output once the process has exited.
+		 */
+		ProcessOutput await() throws IOException;
+
+		String currentContent();
+
+		void discard();
+	}
+
+	private record FileCapture(Path file) implements Capture {
+		@Override
+		public ProcessOutput await() {
+			return ProcessOutput.of(file);
+		}
+
+		@Override
+		public String currentContent() {
+			return stdioContent(file);
+		}
+
+		@Override
+		public void discard() {
+			deleteIfExists(file);
+		}
+	}
+
+	private static class PipeCapture implements Capture {
+		private final InputStream stream;
+		private final Future<ProcessOutput> output;
+
+		PipeCapture(InputStream stream, SpillingBuffer buffer) {
+			this.stream = stream;
+			this.output = OUTPUT_DRAINERS.submit(() -> buffer.drain(stream));
+		}
+
+		@Override
+		public ProcessOutput await() throws IOException {
+			try {
+				try {
+					return output.get(DESTROY_GRACETIME_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// the pipe is still held open by a child of the process, stop reading
+					stream.close();
+					return output.get();
+				}
+			} catch (ExecutionException e) {
+				Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+				throw new IOException("Unable to capture process output", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while capturing process output", e);
+			}
+		}
+
+		@Override
+		public String currentContent() {
+			return "<captured in memory, not available>";
+		}
+
+		@Override
+		public void discard() {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				LOGGER.warn("Error while closing process output", e);
+			}
+			try {
+				output.get(DESTROY_GRACETIME_MILLIS, TimeUnit.MILLISECONDS).delete();
+			} catch (ExecutionException | TimeoutException e) {
+				// nothing has been captured
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
-	private static String stdioContent(Path stdio) {
+	static String stdioContent(Path stdio) {
 		try (Stream<String> lineStream = Files.lines(stdio)) {
 			return lineStream.collect(Collectors.joining("\n"));
 		} catch (IOException e) {
@@ -116,14 +305,14 @@ public class NativeProcess {
 	}
 
 	@RecordBuilder
-	public record Result(int exitValue, String arg0, Path stdout, Path stderr) implements AutoCloseable {
+	public record Result(int exitValue, String arg0, ProcessOutput stdout, ProcessOutput stderr) implements AutoCloseable {
 
 		public InputStream stdoutAsStream() throws IOException {
-			return Files.newInputStream(stdout, StandardOpenOption.READ);
+			return stdout.asStream();
 		}
 
 		public InputStream stderrAsStream() throws IOException {
-			return Files.newInputStream(stderr, StandardOpenOption.READ);
+			return stderr.asStream();
 		}
 
 		Result log() {
@@ -143,13 +332,13 @@ public class NativeProcess {
 			logstdio("stderr", stderr);
 		}
 
-		private void logstdio(String stdioname, Path stdio) {
+		private void logstdio(String stdioname, ProcessOutput stdio) {
 			try {
-				if (Files.size(stdio) > 0) {
+				if (stdio.size() > 0) {
 					if (exitValue() != 0) {
-						LOGGER.error("Process '" + arg0 + "' "+stdioname+":\n" + stdioContent(stdio));
+						LOGGER.error("Process '" + arg0 + "' "+stdioname+":\n" + stdio.content());
 					} else {						
-						LOGGER.debug("Process '" + arg0 + "' "+stdioname+":\n" + stdioContent(stdio));
+						LOGGER.debug("Process '" + arg0 + "' "+stdioname+":\n" + stdio.content());
 					}
 				} else {
 					LOGGER.debug("Process '" + arg0 + "' exited with no content on "+stdioname);
@@ -161,12 +350,12 @@ public class NativeProcess {
 
 		@Override
 		public void close() {
-			deleteIfExists(stdout);
-			deleteIfExists(stderr);
+			stdout.delete();
+			stderr.delete();
 		}
 
 		public static NativeProcessResultBuilder builder() {
 			return NativeProcessResultBuilder.builder();
 		}
 	}
-}
\ No newline at end of file
+}
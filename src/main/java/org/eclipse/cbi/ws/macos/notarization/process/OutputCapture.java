@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.process;
+
+/**
+ * How the stdout and stderr of native processes are captured: either redirected to temporary files,
+ * or drained through pipes into memory. In memory, an output is spilled to a temporary file once it
+ * grows over spillThreshold bytes.
+ */
+public record OutputCapture(boolean inMemory, int spillThreshold) {
+
+	public static final int DEFAULT_SPILL_THRESHOLD = 1024 * 1024;
+
+	public static OutputCapture toFiles() {
+		return new OutputCapture(false, 0);
+	}
+
+	public static OutputCapture inMemory(int spillThreshold) {
+		return new OutputCapture(true, spillThreshold);
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.process;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The captured stdout or stderr of a native process, either held in memory or stored in a file.
+ */
+public sealed interface ProcessOutput permits ProcessOutput.InMemory, ProcessOutput.OnDisk {
+
+	InputStream asStream() throws IOException;
+
+	long size() throws IOException;
+
+	/**
+	 * Returns the output as text, or the error message if it cannot be read. Meant for logging.
+	 */
+	String content();
+
+	/**
+	 * Releases the storage of the output, if any.
+	 */
+	void delete();
+
+	static ProcessOutput of(byte[] bytes) {
+		return new InMemory(bytes);
+	}
+
+	static ProcessOutput of(Path path) {
+		return new OnDisk(path);
+	}
+
+	record InMemory(byte[] bytes) implements ProcessOutput {
+
+		@Override
+		public InputStream asStream() {
+			return new ByteArrayInputStream(bytes);
+		}
+
+		@Override
+		public long size() {
+			return bytes.length;
+		}
+
+		@Override
+		public String content() {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void delete() {
+		}
+
+		@Override
+		public String toString() {
+			return "InMemory[" + bytes.length + " bytes]";
+		}
+	}
+
+	record OnDisk(Path path) implements ProcessOutput {
+
+		@Override
+		public InputStream asStream() throws IOException {
+			return Files.newInputStream(path, StandardOpenOption.READ);
+		}
+
+		@Override
+		public long size() throws IOException {
+			return Files.size(path);
+		}
+
+		@Override
+		public String content() {
+			return NativeProcess.stdioContent(path);
+		}
+
+		@Override
+		public void delete() {
+			NativeProcess.deleteIfExists(path);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Drains a stream in memory, and moves the content to a temporary file once it exceeds a threshold.
+ */
+class SpillingBuffer {
+
+	private final int spillThreshold;
+	private final String tempFilePrefix;
+	private final String tempFileSuffix;
+
+	private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+	private Path file;
+	private OutputStream fileStream;
+
+	SpillingBuffer(int spillThreshold, String tempFilePrefix, String tempFileSuffix) {
+		this.spillThreshold = spillThreshold;
+		this.tempFilePrefix = tempFilePrefix;
+		this.tempFileSuffix = tempFileSuffix;
+	}
+
+	/**
+	 * Reads the given stream until its end and returns what has been read.
+	 */
+	ProcessOutput drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (in) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				write(buffer, read);
+			}
+		} catch (IOException e) {
+			discard();
+			throw e;
+		}
+		return output();
+	}
+
+	private void write(byte[] buffer, int length) throws IOException {
+		if (fileStream == null && memory.size() + length > spillThreshold) {
+			file = Files.createTempFile(tempFilePrefix, tempFileSuffix);
+			fileStream = Files.newOutputStream(file);
+			memory.writeTo(fileStream);
+			memory.reset();
+		}
+		if (fileStream != null) {
+			fileStream.write(buffer, 0, length);
+		} else {
+			memory.write(buffer, 0, length);
+		}
+	}
+
+	private ProcessOutput output() throws IOException {
+		if (fileStream != null) {
+			fileStream.close();
+			return ProcessOutput.of(file);
+		}
+		return ProcessOutput.of(memory.toByteArray());
+	}
+
+	private void discard() {
+		if (fileStream != null) {
+			try {
+				fileStream.close();
+			} catch (IOException e) {
+				// deleted below anyway
+			}
+			NativeProcess.deleteIfExists(file);
+		}
+	}
+}
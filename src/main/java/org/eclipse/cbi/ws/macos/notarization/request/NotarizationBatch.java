@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.request;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The requests created from a batch submission, in the order of the submitted files.
+ */
+@RecordBuilder
+public record NotarizationBatch(UUID batchId, List<NotarizationStatusWithUUID> requests) {
+	public static NotarizationBatchBuilder builder() {
+		return NotarizationBatchBuilder.builder();
+	}
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.request;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.UUID;
+
+/**
+ * The status of a batch submission.
+ *
+ * @param status {@code ERROR} if any of the requests is in error or is not known anymore, {@code IN_PROGRESS}
+ *               if any is still in progress, {@code COMPLETE} otherwise.
+ * @param requests the statuses of the requests of the batch.
+ */
+@RecordBuilder
+public record NotarizationBatchStatus(UUID batchId, NotarizationStatus.State status, NotarizationStatuses requests) {
+	public static NotarizationBatchStatusBuilder builder() {
+		return NotarizationBatchStatusBuilder.builder();
+	}
+}
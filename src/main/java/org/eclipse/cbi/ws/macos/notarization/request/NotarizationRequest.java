@@ -8,9 +8,10 @@
 package org.eclipse.cbi.ws.macos.notarization.request;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -18,22 +19,32 @@ import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
 
+import com.google.common.hash.HashCode;
+
+import io.opentelemetry.context.Context;
 import io.soabase.recordbuilder.core.RecordBuilder;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus.State;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.StaplerResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @RecordBuilder
 public record NotarizationRequest(
 		Path fileToNotarize,
 		@Nullable String submittedFilename,
+		@Nullable HashCode contentHash,
 		NotarizationRequestOptions notarizationOptions,
-		Supplier<NotarizerResult> notarizer,
-		Function<? super NotarizerResult, ? extends NotarizationInfoResult> notarizationInfo,
-		Optional<Function<? super NotarizationInfoResult, ? extends StaplerResult>> staplerResult,
+		Supplier<CompletableFuture<NotarizerResult>> notarizer,
+		Function<? super NotarizerResult, CompletableFuture<NotarizationInfoResult>> notarizationInfo,
+		Optional<Function<? super NotarizationInfoResult, CompletableFuture<StaplerResult>>> staplerResult,
 		Future<NotarizationStatus> request,
-		AtomicReference<NotarizationStatus> status) {
+		AtomicReference<NotarizationStatus> status,
+		AtomicReference<String> appleRequestUUID,
+		List<NotarizationRequestListener> listeners) {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationRequest.class);
 
 	public static NotarizationRequestBuilder builder() {
 		return NotarizationRequestBuilder.builder();
@@ -46,27 +57,54 @@ public record NotarizationRequest(
 							NotarizationStatus.builder()
 								.status(State.IN_PROGRESS)
 								.message("Uploading file to Apple notarization service")
-								.build()));
+								.build()))
+				.appleRequestUUID(new AtomicReference<>())
+				.listeners(new CopyOnWriteArrayList<>());
+	}
+
+	/**
+	 * Registers a listener that will be notified of every subsequent status change of this request.
+	 */
+	public NotarizationRequest addListener(NotarizationRequestListener listener) {
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Unregisters a listener, it will not be notified of the subsequent status changes of this request.
+	 */
+	public NotarizationRequest removeListener(NotarizationRequestListener listener) {
+		listeners.remove(listener);
+		return this;
 	}
 
-	public NotarizationRequest execute(Executor executor) {
-		CompletableFuture<? extends NotarizationInfoResult> future =
-			CompletableFuture.supplyAsync(notarizer, executor)
+	/**
+	 * Starts the upload, then polls the notarization info and staples the ticket if requested. Each
+	 * stage is asynchronous and only holds a thread while it is actually running, not while it waits
+	 * between attempts.
+	 */
+	public NotarizationRequest execute() {
+		// the stages start on the threads that completed the previous ones, they are
+		// traced as children of the context the request has been executed from
+		Context context = Context.current();
+		CompletableFuture<NotarizationInfoResult> future =
+			CompletableFuture.completedFuture(null)
+				.thenCompose(v -> notarizer.get())
 				.whenComplete(this::updateNotarizerStatus)
-				.thenApply(notarizationInfo)
+				.thenCompose(context.wrapFunction(notarizationInfo))
 				.whenComplete(this::updateNotarizationInfoStatus);
 
 		CompletableFuture<NotarizationStatus> result;
 		if (staplerResult.isPresent()) {
 			result =
-				future.thenApply(staplerResult.get())
+				future.thenCompose(context.wrapFunction(staplerResult.get()))
 					  .whenComplete(this::updateStaplerStatus)
 					  .thenApply(r -> status.get());
 		} else {
 			result =
 				future.thenApply(r -> {
 					if (status.get().status() == State.IN_PROGRESS) {
-						status.set(NotarizationStatusBuilder.builder(status.get()).status(State.COMPLETE).build());
+						updateStatus(NotarizationStatusBuilder.builder(status.get()).status(State.COMPLETE).build());
 					}
 					return status.get();
 				});
@@ -91,6 +129,7 @@ public record NotarizationRequest(
 							.message("Issue happened while uploading file to Apple notarization service");
 						break;
 					case UPLOAD_SUCCESSFUL:
+						appleRequestUUID.set(result.appleRequestUUID());
 						statusBuilder
 							.status(State.IN_PROGRESS)
 							.message("File has been successfully uploaded to Apple notarization service");
@@ -100,7 +139,7 @@ public record NotarizationRequest(
 				}
 				statusBuilder.moreInfo(result.message());
 			}
-			status.set(statusBuilder.build());
+			updateStatus(statusBuilder.build());
 		}
 	}
 
@@ -140,7 +179,7 @@ public record NotarizationRequest(
 				statusBuilder.log(result.notarizationLog());
 				statusBuilder.moreInfo(result.message());
 			}
-			status.set(statusBuilder.build());
+			updateStatus(statusBuilder.build());
 		}
 	}
 
@@ -171,7 +210,18 @@ public record NotarizationRequest(
 				}
 				statusBuilder.moreInfo(result.message());
 			}
-			status.set(statusBuilder.build());
+			updateStatus(statusBuilder.build());
+		}
+	}
+
+	private void updateStatus(NotarizationStatus newStatus) {
+		status.set(newStatus);
+		for (NotarizationRequestListener listener : listeners) {
+			try {
+				listener.statusChanged(this, newStatus);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Listener " + listener + " failed to handle status change of request " + fileToNotarize, e);
+			}
 		}
 	}
-}
\ No newline at end of file
+}
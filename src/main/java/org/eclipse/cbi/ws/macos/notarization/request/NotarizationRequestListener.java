@@ -0,0 +1,17 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.request;
+
+/**
+ * Gets notified of the status changes of a {@link NotarizationRequest}. Listeners are called
+ * synchronously from the thread that executes the request, so they are expected to return quickly.
+ */
+@FunctionalInterface
+public interface NotarizationRequestListener {
+	void statusChanged(NotarizationRequest request, NotarizationStatus status);
+}
@@ -7,10 +7,15 @@
  *******************************************************************************/
 package org.eclipse.cbi.ws.macos.notarization.request;
 
+import javax.annotation.Nullable;
+
 import io.soabase.recordbuilder.core.RecordBuilder;
 
+/**
+ * @param callbackUrl the URL the final status of the request is posted to, if any.
+ */
 @RecordBuilder
-public record NotarizationRequestOptions(String primaryBundleId, boolean staple) {
+public record NotarizationRequestOptions(String primaryBundleId, boolean staple, @Nullable String callbackUrl) {
     public static NotarizationRequestOptionsBuilder builder() {
         return NotarizationRequestOptionsBuilder.builder();
     }
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.request;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The statuses of several requests.
+ *
+ * @param version the version to query the subsequent changes of these requests from.
+ * @param statuses the statuses of the known requests, only those that have changed if a version has been given.
+ * @param unknown the requests that are unknown or have expired.
+ */
+@RecordBuilder
+public record NotarizationStatuses(long version, List<NotarizationStatusWithUUID> statuses, List<UUID> unknown) {
+	public static NotarizationStatusesBuilder builder() {
+		return NotarizationStatusesBuilder.builder();
+	}
+}
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.request;
+
+import io.soabase.recordbuilder.core.RecordBuilder;
+
+import java.util.UUID;
+
+/**
+ * A resumable upload session, and the number of bytes that have been committed to it so far. The next
+ * chunk must be uploaded at that offset.
+ */
+@RecordBuilder
+public record NotarizationUpload(UUID uploadId, long offset) {
+	public static NotarizationUploadBuilder builder() {
+		return NotarizationUploadBuilder.builder();
+	}
+}
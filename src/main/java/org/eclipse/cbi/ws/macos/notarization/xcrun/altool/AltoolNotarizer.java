@@ -28,7 +28,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class AltoolNotarizer extends NotarizationTool {
+public class AltoolNotarizer extends XcrunNotarizationTool {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AltoolNotarizer.class);
 
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.io.MoreFiles;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polling schedule learned from the time Apple took to notarize previous artifacts of the same type
+ * and of a similar size. Polls are sparse until the earliest expected completion time, dense until
+ * the latest expected completion time, and then back off. The fixed default delay is used until
+ * enough completions have been observed for an artifact type and size.
+ * <p>
+ * If a samples file is given, the observed completion times are loaded from it on creation and saved
+ * to it after each completion, so that the schedule survives restarts. Each line of the file holds the
+ * artifact type, the size class and the completion times in milliseconds, separated by tabs.
+ */
+public class AdaptivePollingSchedule {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptivePollingSchedule.class);
+
+	static final int MAX_SAMPLES = 64;
+	static final int MIN_SAMPLES = 3;
+
+	private static final long MEBIBYTE = 1024 * 1024;
+	// extensions are chosen by clients, only known artifact types get their own samples
+	private static final Set<String> ARTIFACT_TYPES = Set.of("app", "dmg", "pkg", "zip");
+
+	private final Duration defaultDelay;
+	private final Duration minDelay;
+	private final Duration maxDelay;
+
+	@Nullable
+	private final Path samplesFile;
+
+	private final ConcurrentMap<Bucket, Samples> samples = new ConcurrentHashMap<>();
+
+	public AdaptivePollingSchedule(Duration defaultDelay, Duration minDelay, Duration maxDelay) {
+		this(defaultDelay, minDelay, maxDelay, null);
+	}
+
+	public AdaptivePollingSchedule(Duration defaultDelay, Duration minDelay, Duration maxDelay, @Nullable Path samplesFile) {
+		this.defaultDelay = defaultDelay;
+		this.minDelay = minDelay;
+		this.maxDelay = maxDelay;
+		this.samplesFile = samplesFile;
+		if (samplesFile != null) {
+			load(samplesFile);
+		}
+	}
+
+	/**
+	 * Returns the schedule to poll the notarization info of the given file.
+	 */
+	public PollingSchedule forFile(Path file) {
+		long size;
+		try {
+			size = Files.size(file);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to get size of file '" + file + "', polling will not be adapted to its size", e);
+			size = -1;
+		}
+		return forFile(file, size);
+	}
+
+	/**
+	 * Returns the schedule to poll the notarization info of the given file of the given size, which may
+	 * not exist anymore.
+	 */
+	public PollingSchedule forFile(Path file, long size) {
+		return forArtifact(MoreFiles.getFileExtension(file), size);
+	}
+
+	PollingSchedule forArtifact(String extension, long size) {
+		String type = extension.toLowerCase(Locale.ROOT);
+		Bucket bucket = new Bucket(ARTIFACT_TYPES.contains(type) ? type : "", sizeClass(size));
+		return new PollingSchedule() {
+			@Override
+			public Duration nextDelay(Duration elapsed) {
+				Samples s = samples.get(bucket);
+				return s != null ? s.nextDelay(elapsed) : defaultDelay;
+			}
+
+			@Override
+			public void completed(Duration elapsed) {
+				samples.computeIfAbsent(bucket, b -> new Samples()).add(elapsed.toMillis());
+				if (samplesFile != null) {
+					save(samplesFile);
+				}
+			}
+		};
+	}
+
+	private void load(Path file) {
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				if (fields.length != 3) {
+					LOGGER.warn("Ignoring malformed polling samples '{}'", line);
+					continue;
+				}
+				try {
+					Samples s = samples.computeIfAbsent(new Bucket(fields[0], Integer.parseInt(fields[1])), b -> new Samples());
+					for (String millis : fields[2].split(",")) {
+						s.add(Long.parseLong(millis));
+					}
+				} catch (NumberFormatException e) {
+					LOGGER.warn("Ignoring malformed polling samples '{}'", line, e);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read polling samples from '" + file + "', polling will be learned again", e);
+		}
+	}
+
+	private synchronized void save(Path file) {
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (Map.Entry<Bucket, Samples> entry : samples.entrySet()) {
+					long[] completionMillis = entry.getValue().completionMillis();
+					if (completionMillis.length == 0) {
+						continue;
+					}
+					writer.write(entry.getKey().extension() + "\t" + entry.getKey().sizeClass() + "\t" +
+								 Arrays.stream(completionMillis).mapToObj(Long::toString).collect(Collectors.joining(",")));
+					writer.newLine();
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to save polling samples to '" + file + "'", e);
+		}
+	}
+
+	/**
+	 * Sizes are grouped by powers of 4 MiB: below 1 MiB, below 4 MiB, below 16 MiB, and so on.
+	 */
+	static int sizeClass(long size) {
+		if (size < 0) {
+			return -1;
+		}
+		int sizeClass = 0;
+		for (long limit = MEBIBYTE; size >= limit && limit > 0; limit *= 4) {
+			sizeClass++;
+		}
+		return sizeClass;
+	}
+
+	private static Duration clamp(Duration delay, Duration min, Duration max) {
+		if (delay.compareTo(min) < 0) {
+			return min;
+		} else if (delay.compareTo(max) > 0) {
+			return max;
+		}
+		return delay;
+	}
+
+	private record Bucket(String extension, int sizeClass) {}
+
+	private class Samples {
+		// guarded by this
+		private final Deque<Long> completionMillis = new ArrayDeque<>();
+		// guarded by this, sorted copy of completionMillis
+		private long[] sorted = new long[0];
+
+		synchronized void add(long elapsedMillis) {
+			if (completionMillis.size() == MAX_SAMPLES) {
+				completionMillis.removeFirst();
+			}
+			completionMillis.addLast(elapsedMillis);
+			sorted = completionMillis.stream().mapToLong(Long::longValue).sorted().toArray();
+		}
+
+		// oldest first
+		synchronized long[] completionMillis() {
+			return completionMillis.stream().mapToLong(Long::longValue).toArray();
+		}
+
+		synchronized Duration nextDelay(Duration elapsed) {
+			if (sorted.length < MIN_SAMPLES) {
+				return defaultDelay;
+			}
+
+			Duration earliest = Duration.ofMillis(percentile(10));
+			Duration latest = Duration.ofMillis(percentile(90));
+			if (elapsed.compareTo(earliest) < 0) {
+				// too early, wake up at the earliest expected completion time
+				return clamp(earliest.minus(elapsed), minDelay, maxDelay);
+			} else if (elapsed.compareTo(latest) <= 0) {
+				return minDelay;
+			} else {
+				// slower than usual, back off
+				return clamp(elapsed.minus(latest).dividedBy(2), minDelay, maxDelay);
+			}
+		}
+
+		private long percentile(int p) {
+			int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+		}
+	}
+}
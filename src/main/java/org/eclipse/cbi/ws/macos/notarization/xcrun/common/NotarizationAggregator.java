@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+
+import javax.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+/**
+ * Packs the small files submitted within a short window into a single container zip, submitted once
+ * to Apple. The upload and the polling of the notarization info of the container are shared by all the
+ * requests of the files it contains, while each of them is still stapled separately: the ticket Apple
+ * issues for the container covers all the code signatures it contains.
+ * <p>
+ * A container is submitted when the window that started with its first file elapses, or as soon as it
+ * holds maxFiles files. A container holding a single file is not created, the file is uploaded as is.
+ * The scheduler only times the windows, containers are packed on the given stage.
+ * <p>
+ * Apple notarizes a container as a single unit: if any of its files is invalid, the whole container
+ * is rejected. Callers must then notarize each file of a rejected {@link Submission#container()
+ * container} again on its own, so that a request does not fail because of the files of other requests.
+ */
+public class NotarizationAggregator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationAggregator.class);
+
+	private final ScheduledExecutorService scheduler;
+	private final Scheduler stage;
+	private final Path folder;
+	private final Duration window;
+	private final long maxFileSize;
+	private final int maxFiles;
+
+	// guarded by this
+	private Submission open;
+
+	public NotarizationAggregator(ScheduledExecutorService scheduler, Scheduler stage, Path folder, Duration window, long maxFileSize, int maxFiles) {
+		this.scheduler = scheduler;
+		this.stage = stage;
+		this.folder = folder;
+		this.window = window;
+		this.maxFileSize = maxFileSize;
+		this.maxFiles = maxFiles;
+	}
+
+	/**
+	 * Returns whether the given file is small enough to be submitted along with other files.
+	 */
+	public boolean accepts(Path file) {
+		try {
+			return Files.size(file) <= maxFileSize;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the given file, with the digest of its content, to the submission being filled, and returns it.
+	 * If the file opens a new submission, the given uploader will upload its container along with the
+	 * digest of the container.
+	 */
+	public Submission add(Path file, @Nullable HashCode contentHash, BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> uploader) {
+		Submission full = null;
+		Submission submission;
+		synchronized (this) {
+			if (open == null) {
+				Submission opened = new Submission(uploader);
+				opened.timer = scheduler.schedule(() -> close(opened), window.toNanos(), TimeUnit.NANOSECONDS);
+				open = opened;
+			}
+			submission = open;
+			submission.files.add(file);
+			submission.contentHashes.add(contentHash);
+			if (submission.files.size() >= maxFiles) {
+				submission.timer.cancel(false);
+				full = submission;
+				open = null;
+			}
+		}
+		if (full != null) {
+			submitOnStage(full);
+		}
+		return submission;
+	}
+
+	private void close(Submission submission) {
+		synchronized (this) {
+			if (open != submission) {
+				// already submitted because it was full
+				return;
+			}
+			open = null;
+		}
+		submitOnStage(submission);
+	}
+
+	private void submitOnStage(Submission submission) {
+		try {
+			stage.schedule(() -> {
+				submit(submission);
+				return null;
+			}, 0, TimeUnit.NANOSECONDS);
+		} catch (RuntimeException e) {
+			LOGGER.error("Unable to submit {} files", submission.files.size(), e);
+			submission.upload.completeExceptionally(e);
+		}
+	}
+
+	private void submit(Submission submission) {
+		List<Path> files = submission.files;
+		if (files.size() == 1) {
+			submission.uploaded(files.get(0), size(files.get(0)));
+			submission.uploader.apply(files.get(0), submission.contentHashes.get(0)).whenComplete(submission::complete);
+			return;
+		}
+
+		Path container;
+		HashCode containerHash;
+		try {
+			container = pack(files);
+			containerHash = MoreFiles.asByteSource(container).hash(Hashing.sha256());
+			submission.uploaded(container, Files.size(container));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.error("Unable to pack {} files in a single submission", files.size(), e);
+			submission.upload.completeExceptionally(e);
+			return;
+		}
+		LOGGER.info("Submitting {} files in a single container '{}'", files.size(), container);
+		submission.uploader.apply(container, containerHash).whenComplete((result, failure) -> {
+			try {
+				Files.deleteIfExists(container);
+			} catch (IOException e) {
+				LOGGER.warn("Unable to delete container '{}'", container, e);
+			}
+			submission.complete(result, failure);
+		});
+	}
+
+	private static long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private Path pack(List<Path> files) throws IOException {
+		Path container = Files.createTempFile(folder, "aggregated-", ".zip");
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(container)) {
+			// the files are archives already, do not compress them again
+			out.setMethod(ZipEntry.STORED);
+			for (int i = 0; i < files.size(); i++) {
+				Path file = files.get(i);
+				// prefixed, as files may have been submitted with the same name
+				out.putArchiveEntry(new ZipArchiveEntry(file.toFile(), String.format("%03d-%s", i, file.getFileName())));
+				Files.copy(file, out);
+				out.closeArchiveEntry();
+			}
+		} catch (IOException | UncheckedIOException e) {
+			Files.deleteIfExists(container);
+			throw e;
+		}
+		return container;
+	}
+
+	/**
+	 * A single submission to Apple, shared by the requests of the files it contains.
+	 */
+	public static class Submission {
+		private final BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> uploader;
+		// guarded by NotarizationAggregator.this until submitted
+		private final List<Path> files = new ArrayList<>();
+		private final List<HashCode> contentHashes = new ArrayList<>();
+		private final CompletableFuture<NotarizerResult> upload = new CompletableFuture<>();
+		// guarded by NotarizationAggregator.this
+		private ScheduledFuture<?> timer;
+		// guarded by this
+		private CompletableFuture<NotarizationInfoResult> info;
+		// written before the upload starts
+		private volatile Path uploadedFile;
+		private volatile long uploadedSize = -1;
+
+		private Submission(BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> uploader) {
+			this.uploader = uploader;
+		}
+
+		/**
+		 * Returns the result of the upload of this submission, that completes once it has been uploaded.
+		 */
+		public CompletableFuture<NotarizerResult> upload() {
+			return upload;
+		}
+
+		/**
+		 * Returns the file uploaded for this submission, either the container or its single file, or null
+		 * if it has not been uploaded. A container is deleted once uploaded.
+		 */
+		@Nullable
+		public Path uploadedFile() {
+			return uploadedFile;
+		}
+
+		/**
+		 * Returns whether the files of this submission have been uploaded in a container, rather than as
+		 * a single file.
+		 */
+		public boolean container() {
+			return files.size() > 1;
+		}
+
+		/**
+		 * Returns the size of the file uploaded for this submission, or -1 if it is unknown.
+		 */
+		public long uploadedSize() {
+			return uploadedSize;
+		}
+
+		private void uploaded(Path file, long size) {
+			uploadedSize = size;
+			uploadedFile = file;
+		}
+
+		/**
+		 * Returns the notarization info of this submission, retrieved by the given poller the first time
+		 * this method is called.
+		 */
+		public synchronized CompletableFuture<NotarizationInfoResult> info(Supplier<CompletableFuture<NotarizationInfoResult>> poller) {
+			if (info == null) {
+				info = poller.get();
+			}
+			return info;
+		}
+
+		private void complete(NotarizerResult result, Throwable failure) {
+			if (failure != null) {
+				upload.completeExceptionally(failure);
+			} else {
+				upload.complete(result);
+			}
+		}
+	}
+}
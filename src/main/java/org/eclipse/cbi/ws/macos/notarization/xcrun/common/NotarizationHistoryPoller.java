@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+
+/**
+ * Polls the status of all the outstanding notarization requests of an account with a single
+ * {@code history} call per tick, instead of one {@code info} call per request. The full notarization
+ * info (message and log) is only retrieved for the requests whose status has changed, or that are not
+ * listed in the history. A tick happens whenever the {@link PollingSchedule} of one of the requests
+ * is due, the history call then serves the requests of the account that are due.
+ * <p>
+ * When the history call fails, it is retried on the next ticks with an exponential back off, and the
+ * info of each due request is only retrieved once it has failed maxFailedAttempts times in a row, so
+ * that a failing history does not turn into a burst of info calls.
+ * <p>
+ * The scheduler only times the ticks: the history and info calls run on the given stage, so that they
+ * are bounded by its capacity and do not hold the threads that time the other tasks of the service.
+ */
+public class NotarizationHistoryPoller {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationHistoryPoller.class);
+
+	private final ScheduledExecutorService scheduler;
+	private final Scheduler stage;
+	private final Duration delayBetweenPolls;
+	private final int maxFailedAttempts;
+	private final Duration minBackOffDelay;
+	private final Duration maxBackOffDelay;
+
+	// guarded by this
+	private final Map<Account, Map<String, PendingRequest>> pendingRequests = new HashMap<>();
+	// guarded by this
+	private ScheduledFuture<?> nextPoll;
+	// guarded by this
+	private Instant nextPollTime;
+	// guarded by this
+	private boolean polling;
+	// guarded by this, the number of consecutive failures of the history call of each account
+	private final Map<Account, Integer> historyFailures = new HashMap<>();
+
+	public NotarizationHistoryPoller(ScheduledExecutorService scheduler, Scheduler stage, Duration delayBetweenPolls, int maxFailedAttempts,
+									 Duration minBackOffDelay, Duration maxBackOffDelay) {
+		this.scheduler = scheduler;
+		this.stage = stage;
+		this.delayBetweenPolls = delayBetweenPolls;
+		this.maxFailedAttempts = maxFailedAttempts;
+		this.minBackOffDelay = minBackOffDelay;
+		this.maxBackOffDelay = maxBackOffDelay;
+	}
+
+	/**
+	 * Returns a future that completes once Apple reports that the given request is not in progress
+	 * anymore, or when it has been in progress for more than maxTotalDuration.
+	 *
+	 * @throws IllegalArgumentException if the tool of the given request is not a {@link NotarizationHistoryTool}.
+	 */
+	public CompletableFuture<NotarizationInfoResult> poll(NotarizationInfo info, Duration maxTotalDuration) {
+		if (!(info.tool() instanceof NotarizationHistoryTool tool)) {
+			throw new IllegalArgumentException(info.tool().getClass().getSimpleName() + " cannot retrieve the notarization history");
+		}
+		PendingRequest request = new PendingRequest(info, info.pollingScheduleOrDefault(delayBetweenPolls), Instant.now(), maxTotalDuration);
+		Account account = new Account(tool, info.appleIDUsername(), info.appleIDPassword(), info.appleIDTeamID());
+		synchronized (this) {
+			pendingRequests.computeIfAbsent(account, a -> new LinkedHashMap<>()).put(info.appleRequestUUID(), request);
+			scheduleNextPoll();
+		}
+		// stop polling for requests that are not awaited anymore
+		request.result.whenComplete((r, t) -> remove(account, request));
+		return request.result;
+	}
+
+	private synchronized void scheduleNextPoll() {
+		if (polling) {
+			// the next poll will be scheduled once the current one is done
+			return;
+		}
+		Instant earliest = pendingRequests.values().stream()
+			.flatMap(requests -> requests.values().stream())
+			.map(PendingRequest::nextPollTime)
+			.min(Instant::compareTo)
+			.orElse(null);
+		if (earliest == null || (nextPollTime != null && !earliest.isBefore(nextPollTime))) {
+			return;
+		}
+		if (nextPoll != null && !nextPoll.cancel(false)) {
+			// about to poll
+			return;
+		}
+		nextPollTime = earliest;
+		long delay = Math.max(0, Duration.between(Instant.now(), earliest).toNanos());
+		nextPoll = scheduler.schedule(this::pollAll, delay, TimeUnit.NANOSECONDS);
+	}
+
+	private synchronized void remove(Account account, PendingRequest request) {
+		Map<String, PendingRequest> requests = pendingRequests.get(account);
+		if (requests != null && requests.remove(request.info.appleRequestUUID(), request) && requests.isEmpty()) {
+			pendingRequests.remove(account);
+			historyFailures.remove(account);
+		}
+	}
+
+	private void pollAll() {
+		Instant now = Instant.now();
+		Map<Account, List<PendingRequest>> snapshot = new HashMap<>();
+		synchronized (this) {
+			nextPoll = null;
+			nextPollTime = null;
+			polling = true;
+			pendingRequests.forEach((account, requests) -> {
+				// only call the history of the accounts that have a request due, for the requests due
+				List<PendingRequest> due = requests.values().stream().filter(r -> !r.nextPollTime().isAfter(now)).toList();
+				if (!due.isEmpty()) {
+					snapshot.put(account, due);
+				}
+			});
+		}
+		CompletableFuture<?>[] polls =
+			snapshot.entrySet().stream()
+				.map(e -> poll(e.getKey(), e.getValue()))
+				.toArray(CompletableFuture<?>[]::new);
+		CompletableFuture.allOf(polls).whenComplete((v, t) -> {
+			if (t != null) {
+				LOGGER.error("Unexpected error while polling notarization history", t);
+			}
+			synchronized (this) {
+				polling = false;
+				scheduleNextPoll();
+			}
+		});
+	}
+
+	private CompletableFuture<Void> poll(Account account, List<PendingRequest> requests) {
+		return onStage(() -> retrieveHistory(account, requests)).thenCompose(retrieved -> {
+			Map<String, NotarizationInfoResult.Status> history;
+			if (retrieved.isPresent()) {
+				history = retrieved.get();
+				historySucceeded(account);
+			} else {
+				int failures = historyFailed(account);
+				if (failures < maxFailedAttempts) {
+					Duration backOff = backOff(failures);
+					LOGGER.warn("Failed to retrieve notarization history of {} ({} attempt(s)), retrying in {}", account, failures, backOff);
+					requests.forEach(r -> r.polled(backOff));
+					return CompletableFuture.completedFuture(null);
+				}
+				LOGGER.warn("Failed to retrieve notarization history of {} ({} attempts), falling back to retrieving the info of the {} due request(s)",
+							account, failures, requests.size());
+				history = Map.of();
+			}
+			List<CompletableFuture<Void>> infos = new ArrayList<>();
+			for (PendingRequest request : requests) {
+				if (history.get(request.info.appleRequestUUID()) == NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS) {
+					request.stillInProgress(null);
+				} else {
+					// status has changed or is unknown, get the details
+					infos.add(onStage(() -> {
+						retrieveInfo(request);
+						return null;
+					}));
+				}
+			}
+			return CompletableFuture.allOf(infos.toArray(CompletableFuture<?>[]::new));
+		});
+	}
+
+	/**
+	 * Returns the status of the requests listed in the history of the given account, or an empty optional
+	 * if the history cannot be retrieved.
+	 */
+	private Optional<Map<String, NotarizationInfoResult.Status>> retrieveHistory(Account account, List<PendingRequest> requests) {
+		StatusPolls.history();
+		try {
+			return Optional.of(account.tool().retrieveHistory(account.appleIDUsername(), account.appleIDPassword(), account.appleIDTeamID(),
+															  requests.get(0).info.pollingTimeout()));
+		} catch (ExecutionException | IOException e) {
+			LOGGER.debug("Failed to retrieve notarization history of " + account, e);
+			return Optional.empty();
+		}
+	}
+
+	private synchronized void historySucceeded(Account account) {
+		historyFailures.remove(account);
+	}
+
+	private synchronized int historyFailed(Account account) {
+		if (!pendingRequests.containsKey(account)) {
+			// all the requests of the account are done
+			return 1;
+		}
+		return historyFailures.merge(account, 1, Integer::sum);
+	}
+
+	/**
+	 * Returns the delay before the next attempt after the given number of failed attempts, exponential as
+	 * the one of the attempts of the non batched polling.
+	 */
+	private Duration backOff(int attempts) {
+		long backOff = minBackOffDelay.toNanos() << Math.min(attempts - 1, 30);
+		return Duration.ofNanos(backOff > 0 ? Math.min(backOff, maxBackOffDelay.toNanos()) : maxBackOffDelay.toNanos());
+	}
+
+	/**
+	 * Runs the given call on the stage, and returns its result.
+	 */
+	private <T> CompletableFuture<T> onStage(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		try {
+			stage.schedule(() -> {
+				try {
+					result.complete(call.call());
+				} catch (Exception | Error e) {
+					result.completeExceptionally(e);
+				}
+				return null;
+			}, 0, TimeUnit.NANOSECONDS);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	private void retrieveInfo(PendingRequest request) {
+		NotarizationInfo info = request.info;
+		StatusPolls.info();
+		try {
+			NotarizationInfoResult result =
+				info.tool().retrieveInfo(info.appleIDUsername(), info.appleIDPassword(), info.appleIDTeamID(),
+										 info.appleRequestUUID(), info.pollingTimeout());
+			switch (result.status()) {
+				case NOTARIZATION_IN_PROGRESS -> request.stillInProgress(result);
+				case RETRIEVAL_FAILED -> request.failedAttempt(result);
+				default -> request.result.complete(result);
+			}
+		} catch (ExecutionException | IOException e) {
+			LOGGER.trace("Failed to fetch notarization info of request '" + info.appleRequestUUID() + "'", e);
+			request.failedAttempt(
+				NotarizationInfoResult.builder()
+					.status(NotarizationInfoResult.Status.RETRIEVAL_FAILED)
+					.message("Failed to retrieve notarization info: " + e.getMessage())
+					.build());
+		}
+	}
+
+	/**
+	 * The account a request has been submitted with. Requests of the same account share history calls.
+	 */
+	private record Account(NotarizationHistoryTool tool, String appleIDUsername, String appleIDPassword, String appleIDTeamID) {
+		@Override
+		public String toString() {
+			return appleIDUsername + " (team " + appleIDTeamID + ")";
+		}
+	}
+
+	private class PendingRequest {
+		private final NotarizationInfo info;
+		private final PollingSchedule schedule;
+		private final Instant start;
+		private final Instant deadline;
+		private final CompletableFuture<NotarizationInfoResult> result = new CompletableFuture<>();
+		// only accessed from one polling task at a time
+		private volatile int failedAttempts;
+		// guarded by NotarizationHistoryPoller.this
+		private Instant nextPollTime;
+
+		PendingRequest(NotarizationInfo info, PollingSchedule schedule, Instant start, Duration maxTotalDuration) {
+			this.info = info;
+			this.schedule = schedule;
+			this.start = start;
+			this.deadline = start.plus(maxTotalDuration);
+			this.nextPollTime = start.plus(schedule.nextDelay(Duration.ZERO));
+		}
+
+		Instant nextPollTime() {
+			synchronized (NotarizationHistoryPoller.this) {
+				return nextPollTime;
+			}
+		}
+
+		private void polled(Duration delay) {
+			Instant now = Instant.now();
+			synchronized (NotarizationHistoryPoller.this) {
+				nextPollTime = now.plus(delay);
+			}
+		}
+
+		void stillInProgress(NotarizationInfoResult lastResult) {
+			failedAttempts = 0;
+			polled(schedule.nextDelay(Duration.between(start, Instant.now())));
+			if (Instant.now().isAfter(deadline)) {
+				LOGGER.error("Notarization of request '" + info.appleRequestUUID() + "' is still in progress after the maximum polling duration");
+				result.complete(lastResult != null ? lastResult :
+					NotarizationInfoResult.builder()
+						.status(NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS)
+						.message("Notarization in progress")
+						.build());
+			}
+		}
+
+		void failedAttempt(NotarizationInfoResult lastResult) {
+			int attempts = ++failedAttempts;
+			polled(backOff(attempts));
+			if (attempts >= maxFailedAttempts) {
+				LOGGER.error("Fail to fetch notarization info of request '" + info.appleRequestUUID() + "' after " + failedAttempts + " attempts");
+				result.complete(lastResult);
+			}
+		}
+	}
+}
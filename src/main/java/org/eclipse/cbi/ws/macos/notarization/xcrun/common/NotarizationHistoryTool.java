@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link NotarizationTool} that can also retrieve the status of all the recent submissions of an
+ * account with a single call, which the {@link NotarizationHistoryPoller} uses instead of polling each
+ * submission.
+ */
+public interface NotarizationHistoryTool extends NotarizationTool {
+
+    /**
+     * Retrieves the status of all the recent submissions of the given account, as a map from Apple
+     * request UUID to status.
+     */
+    Map<String, NotarizationInfoResult.Status> retrieveHistory(String appleIDUsername,
+                                                               String appleIDPassword,
+                                                               String appleIDTeamID,
+                                                               Duration pollingTimeout) throws ExecutionException, IOException;
+}
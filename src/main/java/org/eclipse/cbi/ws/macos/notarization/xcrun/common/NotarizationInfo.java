@@ -8,14 +8,19 @@
 package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.util.concurrent.Scheduler;
 
 import io.soabase.recordbuilder.core.RecordBuilder;
 
@@ -26,7 +31,9 @@ public record NotarizationInfo(
 		String appleIDTeamID,
 		String appleRequestUUID,
 		Duration pollingTimeout,
-		NotarizationTool tool) {
+		NotarizationTool tool,
+		@Nullable NotarizationHistoryPoller historyPoller,
+		@Nullable PollingSchedule pollingSchedule) {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(NotarizationInfo.class);
 
@@ -34,18 +41,54 @@ public record NotarizationInfo(
 		return NotarizationInfoBuilder.builder();
 	}
 
-	public NotarizationInfoResult retrieveInfoFailsafe(Duration maxTotalDuration,
-													   Duration delayBetweenPolling,
-													   int maxFailedAttempt,
-													   Duration minBackOffDelay,
-													   Duration maxBackOffDelay) {
+	/**
+	 * Polls the notarization info until Apple reports that the notarization is not in progress anymore.
+	 * The polls run on the given scheduler, which does not hold any thread while waiting between polls.
+	 */
+	public CompletableFuture<NotarizationInfoResult> retrieveInfoFailsafe(Scheduler scheduler,
+																		  Duration maxTotalDuration,
+																		  Duration delayBetweenPolling,
+																		  int maxFailedAttempt,
+																		  Duration minBackOffDelay,
+																		  Duration maxBackOffDelay) {
+		Instant start = Instant.now();
+		CompletableFuture<NotarizationInfoResult> result;
+		if (historyPoller() != null && tool() instanceof NotarizationHistoryTool) {
+			result = historyPoller().poll(this, maxTotalDuration);
+		} else {
+			result = pollInfo(scheduler, maxTotalDuration, delayBetweenPolling, maxFailedAttempt, minBackOffDelay, maxBackOffDelay);
+		}
+
+		return result.thenApply(r -> {
+			if (pollingSchedule() != null && (r.status() == NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL ||
+											  r.status() == NotarizationInfoResult.Status.NOTARIZATION_FAILED)) {
+				pollingSchedule().completed(Duration.between(start, Instant.now()));
+			}
+			return r;
+		});
+	}
+
+	/**
+	 * Returns the schedule to follow when polling this request, defaults to a fixed delay.
+	 */
+	PollingSchedule pollingScheduleOrDefault(Duration delayBetweenPolling) {
+		return pollingSchedule() != null ? pollingSchedule() : PollingSchedule.fixed(delayBetweenPolling);
+	}
+
+	private CompletableFuture<NotarizationInfoResult> pollInfo(Scheduler scheduler,
+															   Duration maxTotalDuration,
+															   Duration delayBetweenPolling,
+															   int maxFailedAttempt,
+															   Duration minBackOffDelay,
+															   Duration maxBackOffDelay) {
+		PollingSchedule schedule = pollingScheduleOrDefault(delayBetweenPolling);
 		RetryPolicy<NotarizationInfoResult> watchUntilCompleted =
 			new RetryPolicy<NotarizationInfoResult>()
 				.handleResultIf(info -> info.status() == NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS)
 				.withMaxAttempts(-1)
 				.abortOn(t -> !(t instanceof ExecutionException))
 				.withMaxDuration(maxTotalDuration)
-				.withDelay(delayBetweenPolling)
+				.withDelay((r, f, ctx) -> schedule.nextDelay(ctx.getElapsedTime()))
 				.onFailedAttempt(l ->
 					LOGGER.trace("Notarization is still in progress on Apple services (attempt#"+l.getAttemptCount()+", " +
 							 	 "elapsedTime="+l.getElapsedTime()+"), lastResult:\n"+l.getLastResult() +
@@ -62,9 +105,13 @@ public record NotarizationInfo(
 							     l.getElapsedTime()+"), lastResult:\n"+l.getLastResult() + ", lastFailure:\n"+l.getLastFailure()));
 
 		return Failsafe.with(retryOnFailure, watchUntilCompleted)
+				.with(scheduler)
 				.onFailure(l ->
 					LOGGER.error("Fail to fetch notarization info retrieval attempt #" + l.getAttemptCount() + ", cause: " +
 							     l.getFailure().getMessage() + ", elapsed time: " + l.getElapsedTime(), l.getFailure()))
-				.get(() -> tool().retrieveInfo(appleIDUsername(), appleIDPassword(), appleIDTeamID(), appleRequestUUID(), pollingTimeout()));
+				.getAsync(() -> {
+					StatusPolls.info();
+					return tool().retrieveInfo(appleIDUsername(), appleIDPassword(), appleIDTeamID(), appleRequestUUID(), pollingTimeout());
+				});
 	}
 }
@@ -10,13 +10,18 @@ package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CompletableFuture;
 
+import javax.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
 import io.soabase.recordbuilder.core.RecordBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.util.concurrent.Scheduler;
 
 @RecordBuilder
 public record Notarizer(
@@ -25,6 +30,7 @@ public record Notarizer(
 		String appleIDPassword,
 		String appleIDTeamID,
 		Path fileToNotarize,
+		@Nullable HashCode contentHash,
 		Duration uploadTimeout,
 		NotarizationTool tool) {
 
@@ -34,7 +40,12 @@ public record Notarizer(
 		return NotarizerBuilder.builder();
 	}
 
-	public NotarizerResult uploadFailsafe(int maxFailedAttempts, Duration minBackOffDelay, Duration maxBackOffDelay) {
+	/**
+	 * Uploads the file, retrying on failure. The attempts run on the given scheduler, which does not
+	 * hold any thread while waiting between attempts.
+	 */
+	public CompletableFuture<NotarizerResult> uploadFailsafe(Scheduler scheduler,
+															 int maxFailedAttempts, Duration minBackOffDelay, Duration maxBackOffDelay) {
 		RetryPolicy<NotarizerResult> retryOnFailure =
 			new RetryPolicy<NotarizerResult>()
 				.handleResultIf(info -> info.status() == NotarizerResult.Status.UPLOAD_FAILED)
@@ -50,11 +61,12 @@ public record Notarizer(
 
 		return
 			Failsafe.with(retryOnFailure)
+				.with(scheduler)
 				.onFailure(
 					l -> LOGGER.error(
 							String.format("Failure on notarization upload attempt #%d, cause: %s, elapsed time: %s",
 									      l.getAttemptCount(), l.getFailure().getMessage(), l.getElapsedTime()),
 							l.getFailure()))
-				.get(() -> tool().upload(appleIDUsername(), appleIDPassword(), appleIDTeamID(), primaryBundleId(), fileToNotarize(), uploadTimeout()));
+				.getAsync(() -> tool().upload(appleIDUsername(), appleIDPassword(), appleIDTeamID(), primaryBundleId(), fileToNotarize(), contentHash(), uploadTimeout()));
 	}
 }
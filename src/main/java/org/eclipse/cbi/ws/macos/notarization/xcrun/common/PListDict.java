@@ -7,7 +7,6 @@
  *******************************************************************************/
 package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
@@ -19,6 +18,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
@@ -38,36 +41,60 @@ public class PListDict extends ForwardingMap<String, Object> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PListDict.class);
 
+	/**
+	 * SAX parsers are not thread-safe, but can be reset and reused once a parse is done. Creating them
+	 * looks up the factory implementation and allocates its buffers and symbol tables, which used to
+	 * dominate the parsing of the small documents notarytool prints.
+	 * <p>
+	 * Idle parsers are shared through a small pool rather than a thread local, which would create a
+	 * parser per virtual thread and never reuse it. Parsers are created as needed when the pool is empty,
+	 * and at most MAX_POOLED_PARSERS of them are kept.
+	 */
+	private static final int MAX_POOLED_PARSERS = 8;
+	private static final Queue<SAXParser> PARSERS = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED_PARSERS = new AtomicInteger();
+
 	private static final class PListDictHandler extends DefaultHandler {
 		private static final ImmutableSet<String> VALID_CF_SIMPLE_TYPE_XML = ImmutableSet.of("string", "real",
 				"integer", "date", "data");
 
-		private final Deque<String> simpleElementStack = new ArrayDeque<>();
+		private final Set<String> keys;
 		private final Deque<Object> compositeStack = new ArrayDeque<>();
+		private final StringBuilder text = new StringBuilder();
+		private boolean inSimpleElement;
+		private int skippedDepth;
+		private boolean skipNextValue;
 		private String lastSeenKeyName;
 		private PListDict ret;
 
+		/**
+		 * @param keys the keys of the root dictionary to keep, or {@code null} to keep all of them.
+		 */
+		PListDictHandler(Set<String> keys) {
+			this.keys = keys;
+		}
+
 		@Override
 		public void startElement(String uri, String localName, String qName, Attributes attributes) {
-			if ("dict".equals(qName)) {
+			if (skippedDepth > 0 || skipNextValue) {
+				skipNextValue = false;
+				skippedDepth++;
+			} else if ("dict".equals(qName)) {
 				compositeStack.push(addValueToParentComposite(new HashMap<String, Object>()));
 			} else if ("array".equals(qName)) {
 				compositeStack.push(addValueToParentComposite(new ArrayList<String>()));
 			} else if ("true".equals(qName) || "false".equals(qName)) {
 				addValueToParentComposite(qName);
-			} else {
-				simpleElementStack.push(qName);
+			} else if ("key".equals(qName) || VALID_CF_SIMPLE_TYPE_XML.contains(qName)) {
+				inSimpleElement = true;
+				text.setLength(0);
 			}
 		}
 
 		@Override
 		public void characters(char[] ch, int start, int length) {
-			String str = new String(ch, start, length);
-			String simpleElementPeek = simpleElementStack.peek();
-			if ("key".equals(simpleElementPeek)) {
-				lastSeenKeyName = str;
-			} else if (VALID_CF_SIMPLE_TYPE_XML.contains(simpleElementPeek)) {
-				addValueToParentComposite(str);
+			if (inSimpleElement) {
+				text.append(ch, start, length);
 			}
 		}
 
@@ -85,20 +112,24 @@ public class PListDict extends ForwardingMap<String, Object> {
 		@SuppressWarnings("unchecked")
 		@Override
 		public void endElement(String uri, String localName, String qName) {
-			if ("dict".equals(qName)) {
-				ret = new PListDict((Map<String, Object>) compositeStack.pop());
+			if (skippedDepth > 0) {
+				skippedDepth--;
+			} else if ("dict".equals(qName)) {
+				Map<String, Object> dict = (Map<String, Object>) compositeStack.pop();
+				if (compositeStack.isEmpty()) {
+					ret = new PListDict(dict);
+				}
 			} else if ("array".equals(qName)) {
 				compositeStack.pop();
-			} else if ("true".equals(qName) || "false".equals(qName)) {
-				// do nothing
-			} else if ("plist".equals(qName)) {
-				assert "plist".equals(simpleElementStack.pop());
-				assert compositeStack.isEmpty() && simpleElementStack.isEmpty();
-				assert ret != null;
-			} else {
-				simpleElementStack.pop();
+			} else if ("key".equals(qName)) {
+				inSimpleElement = false;
+				lastSeenKeyName = text.toString();
+				// only the values of the root dictionary are filtered
+				skipNextValue = keys != null && compositeStack.size() == 1 && !keys.contains(lastSeenKeyName);
+			} else if (inSimpleElement) {
+				inSimpleElement = false;
+				addValueToParentComposite(text.toString());
 			}
-
 		}
 
 		public PListDict getResult() {
@@ -112,29 +143,69 @@ public class PListDict extends ForwardingMap<String, Object> {
 		this.delegate = delegate;
 	}
 
-	public static PListDict fromXML(InputStream xml) throws SAXException, IOException {
+	private static SAXParser newParser() {
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 		try {
 			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
 	        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-		} catch (ParserConfigurationException e) {
+		} catch (ParserConfigurationException | SAXException e) {
 			LOGGER.warn("Error while setting SAX parser factory feature", e);
 		}
 
-		SAXParser saxParser;
 		try {
-			saxParser = factory.newSAXParser();
-		} catch (ParserConfigurationException e) {
+			return factory.newSAXParser();
+		} catch (ParserConfigurationException | SAXException e) {
 			throw new RuntimeException("Cannot parse PList file", e);
 		}
+	}
+
+	private static SAXParser acquireParser() {
+		SAXParser parser = PARSERS.poll();
+		if (parser == null) {
+			return newParser();
+		}
+		POOLED_PARSERS.decrementAndGet();
+		return parser;
+	}
+
+	private static void releaseParser(SAXParser parser) {
+		if (POOLED_PARSERS.incrementAndGet() <= MAX_POOLED_PARSERS) {
+			PARSERS.offer(parser);
+		} else {
+			POOLED_PARSERS.decrementAndGet();
+		}
+	}
 
-		PListDictHandler pListDictHandler = new PListDictHandler();
-		try (InputStream is = new BufferedInputStream(xml)) {
+	/**
+	 * Returns the number of idle parsers in the pool.
+	 */
+	static int pooledParsers() {
+		return POOLED_PARSERS.get();
+	}
+
+	public static PListDict fromXML(InputStream xml) throws SAXException, IOException {
+		return parse(xml, new PListDictHandler(null));
+	}
+
+	/**
+	 * Parses only the given keys of the root dictionary. The values of other keys are skipped without
+	 * being materialized, which is cheaper when the caller reads a few entries of a large document.
+	 */
+	public static PListDict fromXML(InputStream xml, Set<String> keys) throws SAXException, IOException {
+		return parse(xml, new PListDictHandler(keys));
+	}
+
+	private static PListDict parse(InputStream xml, PListDictHandler pListDictHandler) throws SAXException, IOException {
+		SAXParser saxParser = acquireParser();
+		try (InputStream is = xml) {
 			saxParser.parse(is, pListDictHandler);
+		} finally {
+			saxParser.reset();
+			releaseParser(saxParser);
 		}
-		
+
 		PListDict result = pListDictHandler.getResult();
-		LOGGER.trace("Parsed plist=" + result);
+		LOGGER.trace("Parsed plist={}", result);
 		return result;
 	}
 
@@ -191,6 +262,26 @@ public class PListDict extends ForwardingMap<String, Object> {
 		return Optional.empty();
 	}
 
+	/**
+	 * Returns the status of each submission listed in the output of {@code notarytool history}, by submission id.
+	 */
+	public Map<String, String> submissionStatusesFromHistory() {
+		Map<String, String> statuses = new HashMap<>();
+		Object rawHistory = get("history");
+		if (rawHistory instanceof List<?> history) {
+			for (Object rawSubmission : history) {
+				if (rawSubmission instanceof Map<?, ?> submission
+						&& submission.get("id") instanceof String id
+						&& submission.get("status") instanceof String status) {
+					statuses.put(id, status);
+				}
+			}
+		} else {
+			LOGGER.debug("Unable to retrieve 'history' from " + this);
+		}
+		return statuses;
+	}
+
 	@Override
 	protected Map<String, Object> delegate() {
 		return delegate;
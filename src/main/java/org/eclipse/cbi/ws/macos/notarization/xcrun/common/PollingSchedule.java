@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import java.time.Duration;
+
+/**
+ * Decides when the notarization info of a request shall be polled next.
+ */
+public interface PollingSchedule {
+
+	/**
+	 * Returns the delay before the next poll of a request whose notarization has been in progress
+	 * for the given elapsed time.
+	 */
+	Duration nextDelay(Duration elapsed);
+
+	/**
+	 * Notifies the schedule that Apple has completed the notarization after the given elapsed time.
+	 */
+	void completed(Duration elapsed);
+
+	/**
+	 * Returns a schedule polling as this one, but that is not notified of completions. It is meant for
+	 * requests whose elapsed time does not start with their upload, e.g. those resumed after a restart.
+	 */
+	default PollingSchedule withoutSampling() {
+		PollingSchedule schedule = this;
+		return new PollingSchedule() {
+			@Override
+			public Duration nextDelay(Duration elapsed) {
+				return schedule.nextDelay(elapsed);
+			}
+
+			@Override
+			public void completed(Duration elapsed) {
+			}
+		};
+	}
+
+	static PollingSchedule fixed(Duration delay) {
+		return new PollingSchedule() {
+			@Override
+			public Duration nextDelay(Duration elapsed) {
+				return delay;
+			}
+
+			@Override
+			public void completed(Duration elapsed) {
+			}
+		};
+	}
+}
@@ -10,12 +10,18 @@ package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -24,20 +30,24 @@ import java.util.stream.Stream;
 import com.google.common.collect.ImmutableList;
 
 import io.soabase.recordbuilder.core.RecordBuilder;
-import org.eclipse.cbi.common.util.Zips;
 import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.zip.ZipExtractor;
+import org.eclipse.cbi.ws.macos.notarization.zip.ZipRewriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.jodah.failsafe.Failsafe;
+import net.jodah.failsafe.FailsafeException;
 import net.jodah.failsafe.RetryPolicy;
+import net.jodah.failsafe.util.concurrent.Scheduler;
 
 @RecordBuilder
-public record Stapler(Path fileToStaple, Duration staplingTimeout) {
+public record Stapler(Path fileToStaple, Duration staplingTimeout, Scheduler bundleStage, int bundleMaxAttempts, int zipParallelism) {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(Stapler.class);
 	private static final String DOT_APP_GLOB_PATTERN = "glob:**.{app,plugin,framework}";
 	private static final String TMPDIR = "TMPDIR";
+	private static final Duration BUNDLE_RETRY_DELAY = Duration.ofSeconds(2);
 
 	public static StaplerBuilder builder() {
 		return StaplerBuilder.builder();
@@ -54,31 +64,88 @@ public record Stapler(Path fileToStaple, Duration staplingTimeout) {
 	private StaplerResult stapleZipFile(Path zipFile) throws ExecutionException {
 		try {
 			Path unzipFolder = zipFile.getParent().resolve(zipFile.getFileName().toString() + "-unzip");
-			Zips.unpackZip(zipFile, unzipFolder);
-			try (Stream<Path> pathStream = Files.list(unzipFolder)) {
-				final PathMatcher dotAppPattern = unzipFolder.getFileSystem().getPathMatcher(DOT_APP_GLOB_PATTERN);
-				List<StaplerResult> results = pathStream
-					.filter(p -> Files.isDirectory(p) && dotAppPattern.matches(p))
-					.map(p -> {
-						try {
-							return stapleFile(p);
-						} catch (ExecutionException | IOException e) {
-							LOGGER.error("Error while stapling a file from a zip", e);
-							return new SimpleStaplerResult(StaplerResult.Status.ERROR, e.getMessage());
-						}
-					})
-					.collect(Collectors.toList());
-				if (Zips.packZip(unzipFolder, zipFile, false) <= 0) {
-					throw new IOException("Something wrong happened when trying to zip it back after stapling zip content");
-				}
-				return StaplerResult.from(results);
+			ZipExtractor.extract(zipFile, unzipFolder, zipParallelism());
+			ZipRewriter rewriter = ZipRewriter.snapshot(zipFile, unzipFolder);
+			StaplerResult result = stapleBundles(unzipFolder, findBundles(unzipFolder), this::stapleFile);
+			// only the stapled files are compressed again, the other entries are copied as is
+			if (rewriter.rewrite(zipParallelism()) <= 0) {
+				throw new IOException("Something wrong happened when trying to zip it back after stapling zip content");
 			}
+			return result;
 		} catch (IOException e) {
 			LOGGER.error("Error while stapling notarization ticket to zip file " + zipFile, e);
 			throw new ExecutionException("Error happened while stapling notarization ticket to the uploaded zip file", e);
 		}
 	}
 
+	@FunctionalInterface
+	interface BundleStapler {
+		StaplerResult staple(Path bundle) throws ExecutionException, IOException;
+	}
+
+	/**
+	 * Finds the bundles in the given folder at any depth, grouped by depth from the deepest to the
+	 * shallowest, so that nested bundles are stapled before the bundles containing them.
+	 */
+	static List<List<Path>> findBundles(Path folder) throws IOException {
+		PathMatcher dotAppPattern = folder.getFileSystem().getPathMatcher(DOT_APP_GLOB_PATTERN);
+		try (Stream<Path> pathStream = Files.walk(folder)) {
+			Map<Integer, List<Path>> bundlesByDepth = pathStream
+				.filter(p -> !p.equals(folder) && Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS) && dotAppPattern.matches(p))
+				.collect(Collectors.groupingBy(p -> nestingDepth(folder.relativize(p), dotAppPattern),
+											   () -> new TreeMap<Integer, List<Path>>(Comparator.reverseOrder()),
+											   Collectors.toList()));
+			return new ArrayList<>(bundlesByDepth.values());
+		}
+	}
+
+	private static int nestingDepth(Path relativeBundle, PathMatcher dotAppPattern) {
+		int depth = 0;
+		for (Path parent = relativeBundle.getParent(); parent != null; parent = parent.getParent()) {
+			if (dotAppPattern.matches(parent)) {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * Staples the given bundles, the ones of a same depth concurrently, each one being retried up to
+	 * bundleMaxAttempts times. The attempts run on the bundleStage scheduler, which is shared by all
+	 * the stapled zip files and bounds the number of stapler processes of the whole service. It does
+	 * not hold any thread while waiting between attempts.
+	 */
+	StaplerResult stapleBundles(Path folder, List<List<Path>> bundlesByDepth, BundleStapler stapler) {
+		RetryPolicy<StaplerResult> retryOnFailure = new RetryPolicy<StaplerResult>()
+			.handleResultIf(r -> r.status() == StaplerResult.Status.ERROR)
+			.withMaxAttempts(Math.max(1, bundleMaxAttempts()))
+			.withDelay(BUNDLE_RETRY_DELAY);
+
+		List<StaplerResult> results = new ArrayList<>();
+		for (List<Path> bundles : bundlesByDepth) {
+			List<CompletableFuture<StaplerResult>> level = bundles.stream()
+				.map(bundle -> stapleBundle(folder, bundle, stapler, retryOnFailure))
+				.collect(Collectors.toList());
+			level.forEach(result -> results.add(result.join()));
+		}
+		return StaplerResult.from(results);
+	}
+
+	private CompletableFuture<StaplerResult> stapleBundle(Path folder, Path bundle, BundleStapler stapler, RetryPolicy<StaplerResult> retryOnFailure) {
+		Path relativeBundle = folder.relativize(bundle);
+		return Failsafe.with(retryOnFailure)
+			.with(bundleStage())
+			.getAsync(() -> stapler.staple(bundle))
+			.handle((result, failure) -> {
+				if (failure == null) {
+					return new SimpleStaplerResult(result.status(), relativeBundle + ": " + result.message());
+				}
+				Throwable cause = failure instanceof CompletionException || failure instanceof FailsafeException ? failure.getCause() : failure;
+				LOGGER.error("Error while stapling " + relativeBundle + " from a zip", cause);
+				return new SimpleStaplerResult(StaplerResult.Status.ERROR, relativeBundle + ": " + cause.getMessage());
+			});
+	}
+
 	private StaplerResult stapleFile(Path file) throws ExecutionException, IOException {
 		Path xcrunTempFolder = Files.createTempDirectory("-xcrun-stapler-");
 
@@ -114,7 +181,12 @@ public record Stapler(Path fileToStaple, Duration staplingTimeout) {
 		}
 	}
 
-	public StaplerResult stapleFailsafe(int maxFailedAttempts, Duration minBackOffDelay, Duration maxBackOffDelay) {
+	/**
+	 * Staples the file, retrying on failure. The attempts run on the given scheduler, which does not
+	 * hold any thread while waiting between attempts.
+	 */
+	public CompletableFuture<StaplerResult> stapleFailsafe(Scheduler scheduler,
+														   int maxFailedAttempts, Duration minBackOffDelay, Duration maxBackOffDelay) {
 		RetryPolicy<StaplerResult> retryOnFailure = new RetryPolicy<StaplerResult>()
 			.handleResultIf(info -> info.status() == StaplerResult.Status.ERROR)
 			.withMaxAttempts(maxFailedAttempts)
@@ -128,9 +200,10 @@ public record Stapler(Path fileToStaple, Duration staplingTimeout) {
 
 		return
 			Failsafe.with(retryOnFailure)
+				.with(scheduler)
 				.onFailure(l -> LOGGER.error(String.format("Failure on notarization ticket stapling attempt #%d, cause: %s, elapsed time: %s",
 								                           l.getAttemptCount(), l.getFailure().getMessage(), l.getElapsedTime()),
 											 l.getFailure()))
-				.get(this::staple);
+				.getAsync(this::staple);
 	}
 }
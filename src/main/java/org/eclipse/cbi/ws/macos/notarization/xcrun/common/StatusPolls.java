@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Counts the calls made to Apple to know the status of the requests, either the info of a single
+ * request or the history of an account, whatever the tool making them.
+ */
+public final class StatusPolls {
+
+	private static volatile MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+	private StatusPolls() {
+	}
+
+	/**
+	 * Sets the registry in which the status polls are counted.
+	 */
+	public static void setMeterRegistry(MeterRegistry registry) {
+		meterRegistry = registry;
+	}
+
+	static void info() {
+		count("info");
+	}
+
+	static void history() {
+		count("history");
+	}
+
+	private static void count(String method) {
+		Counter.builder("notarization.status.polls")
+			.description("Calls made to retrieve the status of the notarization requests")
+			.tag("method", method)
+			.register(meterRegistry)
+			.increment();
+	}
+}
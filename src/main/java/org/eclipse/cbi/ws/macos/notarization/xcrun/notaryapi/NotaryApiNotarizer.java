@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import okhttp3.*;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link NotarizationHistoryTool} talking to the Notary REST API directly instead of running {@code xcrun notarytool}.
+ * Calls are authenticated with an App Store Connect API key, so the Apple ID credentials given to each
+ * method are ignored. It does not need any native process and thus runs on any OS.
+ */
+public class NotaryApiNotarizer implements NotarizationHistoryTool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotaryApiNotarizer.class);
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl apiUrl;
+    private final NotaryApiTokenProvider tokenProvider;
+    private final ObjectStoreUploader uploader;
+
+    /**
+     * @param apiUrl the base URL of the API, e.g. https://appstoreconnect.apple.com/notary/v2
+     */
+    public NotaryApiNotarizer(OkHttpClient httpClient, HttpUrl apiUrl, NotaryApiTokenProvider tokenProvider, ObjectStoreUploader uploader) {
+        this.httpClient = httpClient;
+        this.apiUrl = apiUrl;
+        this.tokenProvider = tokenProvider;
+        this.uploader = uploader;
+    }
+
+    @Override
+    public NotarizerResult upload(String appleIDUsername,
+                                  String appleIDPassword,
+                                  String appleIDTeamID,
+                                  String primaryBundleId,
+                                  Path fileToNotarize,
+                                  @Nullable HashCode contentHash,
+                                  Duration uploadTimeout) throws ExecutionException {
+        NotarizerResultBuilder resultBuilder = NotarizerResult.builder();
+        try {
+            JsonObject body = Json.createObjectBuilder()
+                .add("submissionName", fileToNotarize.getFileName().toString())
+                .add("sha256", (contentHash != null ? contentHash : sha256(fileToNotarize)).toString())
+                .build();
+            ApiResponse response = call(new Request.Builder()
+                                            .url(apiUrl.newBuilder().addPathSegment("submissions").build())
+                                            .post(RequestBody.create(body.toString(), JSON)), uploadTimeout);
+            if (!response.isSuccessful()) {
+                return resultBuilder
+                    .status(NotarizerResult.Status.UPLOAD_FAILED)
+                    .message("Failed to notarize the requested file. Reason: " + response.errorMessage())
+                    .build();
+            }
+
+            JsonObject data = response.json().getJsonObject("data");
+            JsonObject attributes = data.getJsonObject("attributes");
+            String requestUUID = data.getString("id");
+            uploader.upload(new ObjectStoreUploader.Credentials(attributes.getString("awsAccessKeyId"),
+                                                                attributes.getString("awsSecretAccessKey"),
+                                                                attributes.getString("awsSessionToken")),
+                            attributes.getString("bucket"),
+                            attributes.getString("object"),
+                            fileToNotarize,
+                            uploadTimeout);
+
+            NotarizerResult result = resultBuilder
+                .status(NotarizerResult.Status.UPLOAD_SUCCESSFUL)
+                .message("Successfully uploaded file")
+                .appleRequestUUID(requestUUID)
+                .build();
+            LOGGER.trace("Notarization upload result:\n" + result);
+            return result;
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout happened during notarization upload of file " + fileToNotarize, e);
+            throw new ExecutionException("Timeout happened during notarization upload", e);
+        } catch (IOException e) {
+            LOGGER.error("IOException happened during notarization upload of file " + fileToNotarize, e);
+            throw new ExecutionException("IOException happened during notarization upload", e);
+        }
+    }
+
+    @Override
+    public NotarizationInfoResult retrieveInfo(String appleIDUsername,
+                                               String appleIDPassword,
+                                               String appleIDTeamID,
+                                               String appleRequestUUID,
+                                               Duration pollingTimeout) throws ExecutionException {
+        NotarizationInfoResultBuilder resultBuilder = NotarizationInfoResult.builder();
+        try {
+            ApiResponse response = call(new Request.Builder().url(submissionUrl(appleRequestUUID).build()).get(), pollingTimeout);
+            if (!response.isSuccessful()) {
+                resultBuilder
+                    .status(NotarizationInfoResult.Status.RETRIEVAL_FAILED)
+                    .message(response.errorMessage());
+            } else {
+                String status = response.json().getJsonObject("data").getJsonObject("attributes").getString("status");
+                NotarizationInfoResult.Status infoStatus = statusOf(status);
+                resultBuilder.status(infoStatus);
+                switch (infoStatus) {
+                    case NOTARIZATION_SUCCESSFUL -> resultBuilder.message("Notarization status: " + status);
+                    case NOTARIZATION_IN_PROGRESS -> resultBuilder.message("Notarization in progress");
+                    default -> resultBuilder.message("Failed to notarize the requested file (status=" + status + "). See the notarization log for details.");
+                }
+                if (infoStatus != NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS) {
+                    resultBuilder.notarizationLog(retrieveLog(appleIDUsername, appleIDPassword, appleIDTeamID, appleRequestUUID, pollingTimeout));
+                }
+            }
+            NotarizationInfoResult result = resultBuilder.build();
+            LOGGER.trace("Notarization info retriever result:\n{}", result);
+            return result;
+        } catch (IOException e) {
+            LOGGER.error("Error while retrieving notarization info of request '" + appleRequestUUID + "'", e);
+            throw new ExecutionException("Failed to retrieve notarization info", e);
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while retrieving notarization info of request '" + appleRequestUUID + "'", e);
+            throw new ExecutionException("Timeout while retrieving notarization info", e);
+        }
+    }
+
+    @Override
+    public String retrieveLog(String appleIDUsername,
+                              String appleIDPassword,
+                              String appleIDTeamID,
+                              String appleRequestUUID,
+                              Duration pollingTimeout) throws ExecutionException {
+        try {
+            ApiResponse response = call(new Request.Builder().url(submissionUrl(appleRequestUUID).addPathSegment("logs").build()).get(), pollingTimeout);
+            if (!response.isSuccessful()) {
+                throw new ExecutionException("Failed to retrieve notarization log: " + response.errorMessage(), null);
+            }
+            String logUrl = response.json().getJsonObject("data").getJsonObject("attributes").getString("developerLogUrl");
+            // the log URL is pre-signed, it must not carry the API token
+            Call call = httpClient.newCall(new Request.Builder().url(logUrl).build());
+            call.timeout().timeout(pollingTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            try (Response logResponse = call.execute()) {
+                if (!logResponse.isSuccessful()) {
+                    throw new ExecutionException("Failed to download notarization log: HTTP " + logResponse.code(), null);
+                }
+                return logResponse.body().string();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error while retrieving notarization log of request '" + appleRequestUUID + "'", e);
+            throw new ExecutionException("Failed to retrieve notarization log", e);
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while retrieving notarization log of request '" + appleRequestUUID + "'", e);
+            throw new ExecutionException("Timeout while retrieving notarization log", e);
+        }
+    }
+
+    @Override
+    public Map<String, NotarizationInfoResult.Status> retrieveHistory(String appleIDUsername,
+                                                                      String appleIDPassword,
+                                                                      String appleIDTeamID,
+                                                                      Duration pollingTimeout) throws ExecutionException {
+        try {
+            ApiResponse response = call(new Request.Builder().url(apiUrl.newBuilder().addPathSegment("submissions").build()).get(), pollingTimeout);
+            if (!response.isSuccessful()) {
+                throw new ExecutionException("Failed to retrieve notarization history: " + response.errorMessage(), null);
+            }
+            Map<String, NotarizationInfoResult.Status> statuses = new HashMap<>();
+            for (JsonValue submission : response.json().getJsonArray("data")) {
+                JsonObject data = submission.asJsonObject();
+                statuses.put(data.getString("id"), statusOf(data.getJsonObject("attributes").getString("status")));
+            }
+            LOGGER.trace("Notarization history result:\n{}", statuses);
+            return statuses;
+        } catch (IOException e) {
+            LOGGER.error("Error while retrieving notarization history", e);
+            throw new ExecutionException("Failed to retrieve notarization history", e);
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while retrieving notarization history", e);
+            throw new ExecutionException("Timeout while retrieving notarization history", e);
+        }
+    }
+
+    private static NotarizationInfoResult.Status statusOf(String status) {
+        if ("Accepted".equalsIgnoreCase(status)) {
+            return NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL;
+        } else if ("In Progress".equalsIgnoreCase(status)) {
+            return NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS;
+        } else {
+            return NotarizationInfoResult.Status.NOTARIZATION_FAILED;
+        }
+    }
+
+    private HttpUrl.Builder submissionUrl(String appleRequestUUID) {
+        return apiUrl.newBuilder().addPathSegment("submissions").addPathSegment(appleRequestUUID);
+    }
+
+    private record ApiResponse(int code, JsonObject json) {
+        boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        String errorMessage() {
+            if (json != null && json.get("errors") instanceof JsonArray errors && !errors.isEmpty()
+                && errors.get(0) instanceof JsonObject error && error.get("detail") instanceof JsonString detail) {
+                return detail.getString();
+            }
+            return "Notary API returned HTTP " + code;
+        }
+    }
+
+    /**
+     * Sends an authenticated request to the API. Client errors are returned to be reported as failures,
+     * server errors are thrown to be retried. A rejected token is renewed once.
+     */
+    private ApiResponse call(Request.Builder request, Duration timeout) throws IOException, TimeoutException {
+        ApiResponse response = send(request, timeout);
+        if (response.code() == 401) {
+            tokenProvider.invalidate();
+            response = send(request, timeout);
+        }
+        if (response.code() >= 500) {
+            throw new IOException(response.errorMessage());
+        }
+        return response;
+    }
+
+    private ApiResponse send(Request.Builder request, Duration timeout) throws IOException, TimeoutException {
+        Call call = httpClient.newCall(request.header("Authorization", "Bearer " + tokenProvider.token()).build());
+        call.timeout().timeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        try (Response response = call.execute()) {
+            String body = response.body().string();
+            JsonObject json = null;
+            if (!body.isEmpty()) {
+                try (JsonReader reader = Json.createReader(new StringReader(body))) {
+                    json = reader.readObject();
+                } catch (JsonException e) {
+                    if (response.isSuccessful()) {
+                        throw new IOException("Cannot parse the response of the Notary API", e);
+                    }
+                }
+            }
+            return new ApiResponse(response.code(), json);
+        } catch (IOException e) {
+            if (call.isCanceled()) {
+                throw new TimeoutException("Notary API request timed out: " + e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Hashes files whose digest was not computed when they were received, e.g. the containers of
+     * aggregated submissions.
+     */
+    private static HashCode sha256(Path file) throws IOException {
+        return MoreFiles.asByteSource(file).hash(Hashing.sha256());
+    }
+}
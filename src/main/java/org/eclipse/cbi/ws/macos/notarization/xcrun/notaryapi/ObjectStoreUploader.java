@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi;
+
+import okhttp3.*;
+import okio.BufferedSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads submissions to the S3 bucket returned by the Notary API, with the temporary credentials that come
+ * along. Files larger than a part are sent with a multipart upload whose parts are uploaded in parallel.
+ */
+public class ObjectStoreUploader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObjectStoreUploader.class);
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+    private static final MediaType XML = MediaType.get("application/xml");
+    private static final Duration PART_TIMEOUT_MARGIN = Duration.ofSeconds(30);
+
+    private final OkHttpClient httpClient;
+    private final HttpUrl endpoint;
+    private final String region;
+    private final long partSize;
+    private final int parallelism;
+    private final long minPartThroughput;
+
+    /**
+     * @param endpoint the S3 endpoint, buckets are addressed in path-style.
+     * @param partSize the size of the parts of a multipart upload; S3 rejects parts below 5 MiB but the last one.
+     * @param parallelism how many parts of a file are uploaded concurrently.
+     * @param minPartThroughput the slowest throughput, in bytes per second, a part is given to be uploaded before
+     *                          its call times out.
+     */
+    public ObjectStoreUploader(OkHttpClient httpClient, HttpUrl endpoint, String region, long partSize, int parallelism, long minPartThroughput) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.region = region;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.minPartThroughput = minPartThroughput;
+    }
+
+    public record Credentials(String accessKeyId, String secretAccessKey, String sessionToken) {}
+
+    /**
+     * Uploads the given file as the object of the given bucket, and waits for the upload to complete.
+     */
+    public void upload(Credentials credentials, String bucket, String object, Path file, Duration timeout) throws IOException, TimeoutException {
+        long size = Files.size(file);
+        HttpUrl objectUrl = objectUrl(bucket, object).build();
+        if (size <= partSize) {
+            execute(credentials, new Request.Builder().url(objectUrl).put(new FilePartBody(file, 0, size)), timeout).close();
+            return;
+        }
+
+        String uploadId;
+        try (Response response = execute(credentials, new Request.Builder().url(objectUrl(bucket, object).addEncodedQueryParameter("uploads", null).build())
+                                                           .post(RequestBody.create(new byte[0], null)), timeout)) {
+            uploadId = parseUploadId(response.body().byteStream());
+        }
+
+        MultipartUpload upload = new MultipartUpload(credentials, bucket, object, uploadId, file, size);
+        try {
+            upload.start().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            upload.complete(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            upload.abort();
+            throw new IOException("Interrupted while uploading " + file, e);
+        } catch (ExecutionException e) {
+            upload.abort();
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException("Failed to upload " + file, e.getCause());
+        } catch (TimeoutException | IOException e) {
+            upload.abort();
+            throw e;
+        }
+    }
+
+    private class MultipartUpload {
+        private final Credentials credentials;
+        private final String bucket;
+        private final String object;
+        private final String uploadId;
+        private final Path file;
+        private final long size;
+        private final int partCount;
+        private final String[] etags;
+        private final AtomicInteger nextPart = new AtomicInteger();
+        private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+
+        MultipartUpload(Credentials credentials, String bucket, String object, String uploadId, Path file, long size) {
+            this.credentials = credentials;
+            this.bucket = bucket;
+            this.object = object;
+            this.uploadId = uploadId;
+            this.file = file;
+            this.size = size;
+            this.partCount = Math.toIntExact((size + partSize - 1) / partSize);
+            this.etags = new String[partCount];
+        }
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        /**
+         * Starts uploading the parts. The returned future fails as soon as a part fails, without waiting for the
+         * other parts, and no more parts are started then.
+         */
+        CompletableFuture<Void> start() {
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, partCount)];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = uploadRemainingParts().whenComplete((r, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+            CompletableFuture.allOf(workers).thenRun(() -> result.complete(null));
+            return result;
+        }
+
+        private CompletableFuture<Void> uploadRemainingParts() {
+            int part = nextPart.getAndIncrement();
+            if (part >= partCount || result.isDone()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return uploadPart(part).thenCompose(etag -> {
+                etags[part] = etag;
+                return uploadRemainingParts();
+            });
+        }
+
+        private CompletableFuture<String> uploadPart(int part) {
+            long offset = part * partSize;
+            HttpUrl url = objectUrl(bucket, object)
+                .addEncodedQueryParameter("partNumber", Integer.toString(part + 1))
+                .addEncodedQueryParameter("uploadId", uriEncode(uploadId))
+                .build();
+            long length = Math.min(partSize, size - offset);
+            Call call = httpClient.newCall(sign(new Request.Builder().url(url).put(new FilePartBody(file, offset, length)), credentials));
+            call.timeout().timeout(partTimeout(length).toNanos(), TimeUnit.NANOSECONDS);
+            calls.add(call);
+            CompletableFuture<String> etag = new CompletableFuture<>();
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    calls.remove(call);
+                    etag.completeExceptionally(new IOException("Failed to upload part " + (part + 1) + " of " + file, e));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    calls.remove(call);
+                    try (response) {
+                        checkSuccessful(response);
+                        String value = response.header("ETag");
+                        if (value == null) {
+                            throw new IOException("No ETag returned for part " + (part + 1) + " of " + file);
+                        }
+                        etag.complete(value);
+                    } catch (IOException e) {
+                        etag.completeExceptionally(e);
+                    }
+                }
+            });
+            return etag;
+        }
+
+        void complete(Duration timeout) throws IOException, TimeoutException {
+            StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < partCount; i++) {
+                xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                   .append(etags[i].replace("\"", "&quot;")).append("</ETag></Part>");
+            }
+            xml.append("</CompleteMultipartUpload>");
+            HttpUrl url = objectUrl(bucket, object).addEncodedQueryParameter("uploadId", uriEncode(uploadId)).build();
+            execute(credentials, new Request.Builder().url(url).post(RequestBody.create(xml.toString(), XML)), timeout).close();
+        }
+
+        void abort() {
+            calls.forEach(Call::cancel);
+            HttpUrl url = objectUrl(bucket, object).addEncodedQueryParameter("uploadId", uriEncode(uploadId)).build();
+            try {
+                execute(credentials, new Request.Builder().url(url).delete(), Duration.ofMinutes(1)).close();
+            } catch (IOException | TimeoutException e) {
+                LOGGER.warn("Failed to abort the multipart upload of " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Returns how long the upload of a part of the given length may take, at the minimal throughput.
+     */
+    Duration partTimeout(long length) {
+        return PART_TIMEOUT_MARGIN.plusMillis(length * 1000 / Math.max(1, minPartThroughput));
+    }
+
+    private Response execute(Credentials credentials, Request.Builder request, Duration timeout) throws IOException, TimeoutException {
+        Call call = httpClient.newCall(sign(request, credentials));
+        call.timeout().timeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            if (call.isCanceled()) {
+                throw new TimeoutException("Object store request timed out: " + e.getMessage());
+            }
+            throw e;
+        }
+        try {
+            checkSuccessful(response);
+        } catch (IOException e) {
+            response.close();
+            throw e;
+        }
+        return response;
+    }
+
+    private static void checkSuccessful(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Object store returned " + response.code() + " for " + response.request().method() +
+                                  " " + response.request().url().encodedPath() + ": " + response.body().string());
+        }
+    }
+
+    private HttpUrl.Builder objectUrl(String bucket, String object) {
+        HttpUrl.Builder url = endpoint.newBuilder().addEncodedPathSegment(uriEncode(bucket));
+        for (String segment : object.split("/", -1)) {
+            url.addEncodedPathSegment(uriEncode(segment));
+        }
+        return url;
+    }
+
+    private static String parseUploadId(InputStream xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            NodeList uploadId = factory.newDocumentBuilder().parse(xml).getElementsByTagName("UploadId");
+            if (uploadId.getLength() == 0) {
+                throw new IOException("No UploadId in the response of the object store");
+            }
+            return uploadId.item(0).getTextContent();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot parse the response of the object store", e);
+        }
+    }
+
+    /**
+     * Signs the request with AWS Signature Version 4. The payload is not part of the signature, which lets the
+     * parts be streamed from the file.
+     */
+    Request sign(Request.Builder builder, Credentials credentials) {
+        Request request = builder.build();
+        String amzDate = AMZ_DATE.format(Instant.now());
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/s3/aws4_request";
+
+        SortedMap<String, String> headers = new TreeMap<>();
+        headers.put("host", hostHeader(request.url()));
+        headers.put("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+        headers.put("x-amz-date", amzDate);
+        headers.put("x-amz-security-token", credentials.sessionToken());
+
+        SortedMap<String, String> query = new TreeMap<>();
+        for (int i = 0; i < request.url().querySize(); i++) {
+            String value = request.url().queryParameterValue(i);
+            query.put(uriEncode(request.url().queryParameterName(i)), value == null ? "" : uriEncode(value));
+        }
+
+        StringJoiner canonicalQuery = new StringJoiner("&");
+        query.forEach((name, value) -> canonicalQuery.add(name + "=" + value));
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", headers.keySet());
+
+        String canonicalRequest = request.method() + "\n" +
+                                  request.url().encodedPath() + "\n" +
+                                  canonicalQuery + "\n" +
+                                  canonicalHeaders + "\n" +
+                                  signedHeaders + "\n" +
+                                  UNSIGNED_PAYLOAD;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + hex(sha256(canonicalRequest));
+
+        byte[] key = hmac(("AWS4" + credentials.secretAccessKey()).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        String signature = hex(hmac(key, stringToSign));
+
+        Request.Builder signed = request.newBuilder()
+            .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + credentials.accessKeyId() + "/" + scope +
+                                     ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        headers.forEach((name, value) -> {
+            if (!"host".equals(name)) {
+                signed.header(name, value);
+            }
+        });
+        return signed.build();
+    }
+
+    /**
+     * Percent-encodes everything but the unreserved characters of RFC 3986, as required by the signature.
+     */
+    static String uriEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8)
+            .replace("+", "%20")
+            .replace("*", "%2A")
+            .replace("%7E", "~");
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static String hostHeader(HttpUrl url) {
+        return url.port() == HttpUrl.defaultPort(url.scheme()) ? url.host() : url.host() + ":" + url.port();
+    }
+
+    /**
+     * Streams a region of a file, so that parts are never held in memory.
+     */
+    private static final class FilePartBody extends RequestBody {
+        private final Path file;
+        private final long offset;
+        private final long length;
+
+        FilePartBody(Path file, long offset, long length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                channel.position(offset);
+                long remaining = length;
+                InputStream in = Channels.newInputStream(channel);
+                byte[] buffer = new byte[64 * 1024];
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("Unexpected end of " + file);
+                    }
+                    sink.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+    }
+}
@@ -16,16 +16,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
-public class NotarytoolNotarizer extends NotarizationTool {
+public class NotarytoolNotarizer extends XcrunNotarizationTool implements NotarizationHistoryTool {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NotarytoolNotarizer.class);
 
+    // the only keys read from the plist outputs, the others are skipped while parsing
+    private static final Set<String> SUBMISSION_KEYS = Set.of("id", "message", "product-errors");
+    private static final Set<String> INFO_KEYS = Set.of("status", "message", "product-errors");
+    private static final Set<String> HISTORY_KEYS = Set.of("history", "message");
+
     @Override
     protected List<String> getUploadCommand(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId, Path fileToNotarize) {
         return ImmutableList.<String>builder()
@@ -42,7 +52,7 @@ public class NotarytoolNotarizer extends NotarizationTool {
     protected NotarizerResult analyzeSubmissionResult(NativeProcess.Result nativeProcessResult, Path fileToNotarize) {
         NotarizerResultBuilder resultBuilder = NotarizerResult.builder();
         try {
-            PListDict plist = PListDict.fromXML(nativeProcessResult.stdoutAsStream());
+            PListDict plist = PListDict.fromXML(nativeProcessResult.stdoutAsStream(), SUBMISSION_KEYS);
             if (nativeProcessResult.exitValue() == 0) {
                 String requestUUID = (String) plist.get("id");
                 if (requestUUID != null) {
@@ -103,7 +113,7 @@ public class NotarytoolNotarizer extends NotarizationTool {
                                         NotarizationInfoResultBuilder resultBuilder,
                                         String appleRequestUUID) throws ExecutionException {
         try {
-            PListDict plist = PListDict.fromXML(nativeProcessResult.stdoutAsStream());
+            PListDict plist = PListDict.fromXML(nativeProcessResult.stdoutAsStream(), INFO_KEYS);
             if (nativeProcessResult.exitValue() == 0) {
                 return parseNotarizationInfo(plist, resultBuilder);
             } else {
@@ -118,6 +128,75 @@ public class NotarytoolNotarizer extends NotarizationTool {
         }
     }
 
+    @Override
+    public Map<String, NotarizationInfoResult.Status> retrieveHistory(String appleIDUsername,
+                                                                      String appleIDPassword,
+                                                                      String appleIDTeamID,
+                                                                      Duration pollingTimeout) throws ExecutionException, IOException {
+
+        List<String> cmd = getHistoryCommand(appleIDUsername, appleIDPassword, appleIDTeamID);
+
+        Path xcrunTempFolder = Files.createTempDirectory("-xcrun-notarization-history-");
+
+        ProcessBuilder processBuilder = new ProcessBuilder().command(cmd);
+        processBuilder.environment().put(APPLEID_PASSWORD_ENV_VAR_NAME, appleIDPassword);
+        processBuilder.environment().put(TMPDIR, xcrunTempFolder.toString());
+
+        try (NativeProcess.Result nativeProcessResult = NativeProcess.startAndWait(processBuilder, pollingTimeout)) {
+            Map<String, NotarizationInfoResult.Status> result = analyzeHistoryResult(nativeProcessResult);
+            LOGGER.trace("Notarization history result:\n{}", result);
+            return result;
+        } catch (IOException e) {
+            LOGGER.error("Error while retrieving notarization history", e);
+            throw new ExecutionException("Failed to retrieve notarization history", e);
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while retrieving notarization history", e);
+            throw new ExecutionException("Timeout while retrieving notarization history", e);
+        } finally {
+            LOGGER.trace("Deleting xcrun-notarization-history temporary folder " + xcrunTempFolder);
+            try (Stream<File> filesToDelete = Files.walk(xcrunTempFolder).sorted(Comparator.reverseOrder()).map(Path::toFile)) {
+                filesToDelete.forEach(File::delete);
+            } catch (IOException e) {
+                LOGGER.warn("IOException happened during deletion of xcrun-notarization-history temporary folder " + xcrunTempFolder, e);
+            }
+        }
+    }
+
+    protected List<String> getHistoryCommand(String appleIDUsername, String appleIDPassword, String appleIDTeamID) {
+        return ImmutableList.<String>builder().add("xcrun", "notarytool")
+            .add("history")
+            .add("--output-format", "plist")
+            .add("--apple-id", appleIDUsername)
+            .add("--password", appleIDPassword)
+            .add("--team-id", appleIDTeamID)
+            .build();
+    }
+
+    protected Map<String, NotarizationInfoResult.Status> analyzeHistoryResult(NativeProcess.Result nativeProcessResult) throws ExecutionException {
+        try {
+            PListDict plist = PListDict.fromXML(nativeProcessResult.stdoutAsStream(), HISTORY_KEYS);
+            if (nativeProcessResult.exitValue() != 0) {
+                throw new ExecutionException("Failed to retrieve notarization history: " + plist.get("message"), null);
+            }
+            Map<String, NotarizationInfoResult.Status> statuses = new HashMap<>();
+            plist.submissionStatusesFromHistory().forEach((id, status) -> statuses.put(id, statusOf(status)));
+            return statuses;
+        } catch (IOException | SAXException e) {
+            LOGGER.error("Cannot parse notarization history", e);
+            throw new ExecutionException("Failed to retrieve notarization history.", e);
+        }
+    }
+
+    private static NotarizationInfoResult.Status statusOf(String status) {
+        if ("accepted".equalsIgnoreCase(status)) {
+            return NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL;
+        } else if ("in progress".equalsIgnoreCase(status)) {
+            return NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS;
+        } else {
+            return NotarizationInfoResult.Status.NOTARIZATION_FAILED;
+        }
+    }
+
     private boolean parseNotarizationInfo(PListDict plist,
                                           NotarizationInfoResultBuilder resultBuilder) {
         Object status = plist.get("status");
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates a stream in independent blocks compressed concurrently, the way pigz does. Each block is
+ * primed with the last 32 KiB of the previous one and ends with a sync flush, so that the concatenation
+ * of the compressed blocks is a single raw deflate stream, readable by any zip implementation.
+ */
+class BlockDeflater {
+
+	static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	record Result(long size, long compressedSize, long crc) {}
+
+	private final Executor executor;
+	private final int maxBlocksInFlight;
+
+	/**
+	 * @param parallelism the number of blocks compressed concurrently on the given executor.
+	 */
+	BlockDeflater(Executor executor, int parallelism) {
+		this.executor = executor;
+		this.maxBlocksInFlight = Math.max(1, parallelism) * 2;
+	}
+
+	/**
+	 * Reads the input until its end and writes its raw deflate stream to the output.
+	 */
+	Result deflate(InputStream in, OutputStream out) throws IOException {
+		CRC32 crc = new CRC32();
+		Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+		long size = 0;
+		long compressedSize = 0;
+		byte[] previous = null;
+		byte[] block = in.readNBytes(BLOCK_SIZE);
+		try {
+			while (true) {
+				byte[] next = block.length == BLOCK_SIZE ? in.readNBytes(BLOCK_SIZE) : new byte[0];
+				boolean last = next.length == 0;
+				crc.update(block);
+				size += block.length;
+				byte[] dictionary = previous == null ? null : Arrays.copyOfRange(previous, previous.length - DICTIONARY_SIZE, previous.length);
+				byte[] input = block;
+				inFlight.add(CompletableFuture.supplyAsync(() -> compress(input, dictionary, last), executor));
+				while (inFlight.size() >= maxBlocksInFlight || (last && !inFlight.isEmpty())) {
+					byte[] compressed = inFlight.poll().join();
+					out.write(compressed);
+					compressedSize += compressed.length;
+				}
+				if (last) {
+					return new Result(size, compressedSize, crc.getValue());
+				}
+				previous = block;
+				block = next;
+			}
+		} catch (CompletionException e) {
+			throw new IOException("Failed to deflate block", e.getCause());
+		} finally {
+			inFlight.forEach(f -> f.cancel(false));
+		}
+	}
+
+	private static byte[] compress(byte[] block, byte[] dictionary, boolean last) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(block);
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.length / 2 + 64);
+			byte[] buffer = new byte[16 * 1024];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				// flush until the deflater has consumed the block and emitted the sync marker
+				int length;
+				do {
+					length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, length);
+				} while (length == buffer.length || !deflater.needsInput());
+			}
+			return compressed.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+}
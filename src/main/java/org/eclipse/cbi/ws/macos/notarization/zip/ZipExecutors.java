@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+final class ZipExecutors {
+
+	private ZipExecutors() {}
+
+	/**
+	 * Returns an executor for the tasks of a single zip operation. Without parallelism, tasks run inline.
+	 */
+	static ExecutorService newExecutor(int parallelism) {
+		if (parallelism <= 1) {
+			return MoreExecutors.newDirectExecutorService();
+		}
+		return Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+				.setNameFormat("macos-notarization-service-zip-%d")
+				.setDaemon(true)
+				.build());
+	}
+}
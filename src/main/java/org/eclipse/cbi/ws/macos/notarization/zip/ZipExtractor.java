@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Extracts zip files with their entries written concurrently. Entries are located through the central
+ * directory, and their content is read with positional reads, so that entries can be read in parallel.
+ * Unix permissions and symbolic links are restored.
+ * <p>
+ * Symbolic links are only created once all the other entries have been written, so that no entry can
+ * be written through a link of the archive. Entries whose real parent folder is outside the extraction
+ * folder, and links that resolve outside of it, are rejected.
+ */
+public class ZipExtractor {
+
+	private ZipExtractor() {}
+
+	/**
+	 * Extracts the given zip file into the given folder with up to parallelism threads, and returns the
+	 * number of extracted entries.
+	 */
+	public static int extract(Path zipFile, Path outputFolder, int parallelism) throws IOException {
+		Path folder = outputFolder.toAbsolutePath().normalize();
+		Files.createDirectories(folder);
+		Path realFolder = folder.toRealPath();
+		ExecutorService executor = ZipExecutors.newExecutor(parallelism);
+		try (ZipFile zip = ZipFile.builder().setPath(zipFile).get()) {
+			List<ZipArchiveEntry> entries = Collections.list(zip.getEntries());
+			List<ZipArchiveEntry> directories = new ArrayList<>();
+			List<ZipArchiveEntry> symlinks = new ArrayList<>();
+			List<CompletableFuture<Void>> files = new ArrayList<>();
+			for (ZipArchiveEntry entry : entries) {
+				Path target = folder.resolve(entry.getName()).normalize();
+				if (!target.startsWith(folder) || target.equals(folder)) {
+					throw new IOException("Entry '" + entry.getName() + "' is outside of the extraction folder");
+				}
+				if (entry.isDirectory()) {
+					createDirectories(realFolder, entry, target);
+					directories.add(entry);
+				} else if (entry.isUnixSymlink()) {
+					symlinks.add(entry);
+				} else {
+					createDirectories(realFolder, entry, target.getParent());
+					files.add(CompletableFuture.runAsync(() -> {
+						try {
+							extractFile(zip, entry, target);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}, executor));
+				}
+			}
+			CompletableFuture.allOf(files.toArray(new CompletableFuture<?>[0])).join();
+
+			for (ZipArchiveEntry symlink : symlinks) {
+				Path target = folder.resolve(symlink.getName()).normalize();
+				createDirectories(realFolder, symlink, target.getParent());
+				createSymbolicLink(realFolder, symlink, target, zip.getUnixSymlink(symlink));
+			}
+
+			// restricted directories would have prevented the extraction of their content
+			for (ZipArchiveEntry directory : directories) {
+				setPermissions(folder.resolve(directory.getName()), directory.getUnixMode());
+			}
+			return entries.size();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof UncheckedIOException io ? io.getCause() : new IOException("Failed to extract " + zipFile, e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Creates the given folder of the given entry, after checking that its nearest existing ancestor is
+	 * really within the extraction folder, so that folders are never created through a link.
+	 */
+	private static void createDirectories(Path realFolder, ZipArchiveEntry entry, Path directory) throws IOException {
+		Path existing = directory;
+		while (!Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+			existing = existing.getParent();
+		}
+		checkInside(realFolder, entry, existing.toRealPath());
+		Files.createDirectories(directory);
+		checkInside(realFolder, entry, directory.toRealPath());
+	}
+
+	private static void createSymbolicLink(Path realFolder, ZipArchiveEntry entry, Path link, String linkTarget) throws IOException {
+		// relative links are resolved from the real folder of the link
+		Path resolved = link.getParent().toRealPath().resolve(linkTarget).normalize();
+		checkInside(realFolder, entry, resolved);
+		if (Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException("Link '" + entry.getName() + "' conflicts with the folder of other entries");
+		}
+		Files.deleteIfExists(link);
+		Files.createSymbolicLink(link, Paths.get(linkTarget));
+		if (Files.exists(link)) {
+			// the target may go through other links of the archive
+			checkInside(realFolder, entry, link.toRealPath());
+		}
+	}
+
+	private static void checkInside(Path realFolder, ZipArchiveEntry entry, Path realPath) throws IOException {
+		if (!realPath.startsWith(realFolder)) {
+			throw new IOException("Entry '" + entry.getName() + "' is outside of the extraction folder");
+		}
+	}
+
+	private static void extractFile(ZipFile zip, ZipArchiveEntry entry, Path target) throws IOException {
+		try (InputStream in = zip.getInputStream(entry)) {
+			Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		setPermissions(target, entry.getUnixMode());
+		if (entry.getTime() != -1) {
+			Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getTime()));
+		}
+	}
+
+	private static void setPermissions(Path file, int unixMode) throws IOException {
+		if ((unixMode & 0777) == 0) {
+			return;
+		}
+		Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+		for (PosixFilePermission permission : PosixFilePermission.values()) {
+			if ((unixMode & (1 << (8 - permission.ordinal()))) != 0) {
+				permissions.add(permission);
+			}
+		}
+		try {
+			Files.setPosixFilePermissions(file, permissions);
+		} catch (UnsupportedOperationException e) {
+			file.toFile().setExecutable((unixMode & 0100) != 0);
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes back a zip file after some of its extracted files have been modified. The files are compared
+ * to a snapshot taken right after the extraction: the compressed bytes of the entries whose file is
+ * unchanged are copied verbatim from the original zip, only the modified and added files are deflated.
+ * <p>
+ * Files to deflate are compressed concurrently, ahead of their turn to be written. Large files are split
+ * in blocks compressed concurrently, see {@link BlockDeflater}.
+ */
+public class ZipRewriter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ZipRewriter.class);
+
+	/** Files from this size are deflated in blocks rather than at once. */
+	static final long BLOCK_DEFLATE_THRESHOLD = 4L * BlockDeflater.BLOCK_SIZE;
+
+	private final Path zipFile;
+	private final Path folder;
+	private final Map<String, FileState> snapshot;
+
+	private ZipRewriter(Path zipFile, Path folder, Map<String, FileState> snapshot) {
+		this.zipFile = zipFile;
+		this.folder = folder;
+		this.snapshot = snapshot;
+	}
+
+	private record FileState(long size, FileTime lastModifiedTime) {
+		static FileState of(BasicFileAttributes attributes) {
+			return new FileState(attributes.size(), attributes.lastModifiedTime());
+		}
+	}
+
+	/**
+	 * An entry to write: either copied from the original zip, or deflated from a file of the folder.
+	 */
+	private record PlannedEntry(@Nullable ZipArchiveEntry original, @Nullable Path file, String name, int unixMode) {
+		boolean isSmallFile() throws IOException {
+			return file != null && Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) && Files.size(file) < BLOCK_DEFLATE_THRESHOLD;
+		}
+	}
+
+	private record Deflated(byte[] compressed, long size, long crc) {}
+
+	/**
+	 * Records the state of the files that have been extracted from the given zip file into the given folder.
+	 * Must be called before any of them is modified.
+	 */
+	public static ZipRewriter snapshot(Path zipFile, Path extractedFolder) throws IOException {
+		Path folder = extractedFolder.toAbsolutePath().normalize();
+		Map<String, FileState> snapshot = new HashMap<>();
+		try (Stream<Path> files = Files.walk(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+				if (!attributes.isDirectory()) {
+					snapshot.put(entryName(folder, file), FileState.of(attributes));
+				}
+			}
+		}
+		return new ZipRewriter(zipFile, folder, Collections.unmodifiableMap(snapshot));
+	}
+
+	/**
+	 * Zips the whole content of the given folder into the given zip file, deflating with up to parallelism
+	 * threads, and returns the number of entries written.
+	 */
+	public static int pack(Path folder, Path zipFile, int parallelism) throws IOException {
+		ZipRewriter packer = new ZipRewriter(zipFile, folder.toAbsolutePath().normalize(), Map.of());
+		return packer.write(null, parallelism);
+	}
+
+	/**
+	 * Replaces the zip file with the current content of the folder, and returns the number of entries written.
+	 */
+	public int rewrite() throws IOException {
+		return rewrite(1);
+	}
+
+	/**
+	 * Replaces the zip file with the current content of the folder, deflating with up to parallelism threads,
+	 * and returns the number of entries written.
+	 */
+	public int rewrite(int parallelism) throws IOException {
+		try (ZipFile original = ZipFile.builder().setPath(zipFile).get()) {
+			return write(original, parallelism);
+		}
+	}
+
+	private int write(@Nullable ZipFile original, int parallelism) throws IOException {
+		List<PlannedEntry> plan = plan(original);
+		Path rewritten = zipFile.resolveSibling(zipFile.getFileName() + ".rewrite");
+		ExecutorService executor = ZipExecutors.newExecutor(parallelism);
+		BlockDeflater blockDeflater = new BlockDeflater(executor, parallelism);
+		// small files are deflated this many entries ahead of the one being written
+		int lookahead = Math.max(1, parallelism) * 4;
+		Map<Integer, CompletableFuture<Deflated>> pending = new HashMap<>();
+		int copied = 0;
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(rewritten)) {
+			int nextToDeflate = 0;
+			for (int i = 0; i < plan.size(); i++) {
+				for (; nextToDeflate < Math.min(plan.size(), i + lookahead); nextToDeflate++) {
+					PlannedEntry next = plan.get(nextToDeflate);
+					if (next.isSmallFile()) {
+						pending.put(nextToDeflate, CompletableFuture.supplyAsync(() -> deflate(next.file()), executor));
+					}
+				}
+
+				PlannedEntry entry = plan.get(i);
+				CompletableFuture<Deflated> deflated = pending.remove(i);
+				if (entry.original() != null) {
+					out.addRawArchiveEntry(entry.original(), original.getRawInputStream(entry.original()));
+					copied++;
+				} else if (deflated != null) {
+					Deflated result = deflated.join();
+					out.addRawArchiveEntry(deflatedEntry(entry, result.size(), result.compressed().length, result.crc()),
+										   new ByteArrayInputStream(result.compressed()));
+				} else if (Files.isRegularFile(entry.file(), LinkOption.NOFOLLOW_LINKS)) {
+					writeBlockDeflated(out, entry, blockDeflater);
+				} else {
+					writeEntry(out, entry);
+				}
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(rewritten);
+			throw e;
+		} catch (CompletionException e) {
+			Files.deleteIfExists(rewritten);
+			throw e.getCause() instanceof UncheckedIOException io ? io.getCause() : new IOException("Failed to deflate", e.getCause());
+		} finally {
+			pending.values().forEach(f -> f.cancel(false));
+			executor.shutdownNow();
+		}
+		Files.move(rewritten, zipFile, StandardCopyOption.REPLACE_EXISTING);
+		LOGGER.trace("Wrote zip file {}: {} entries, {} copied from the original", zipFile, plan.size(), copied);
+		return plan.size();
+	}
+
+	/**
+	 * Lists the entries to write: the ones of the original zip in their order, except the deleted ones,
+	 * followed by the added files.
+	 */
+	private List<PlannedEntry> plan(@Nullable ZipFile original) throws IOException {
+		List<PlannedEntry> plan = new ArrayList<>();
+		Set<String> planned = new HashSet<>();
+		if (original != null) {
+			for (ZipArchiveEntry entry : Collections.list(original.getEntriesInPhysicalOrder())) {
+				Path file = folder.resolve(entry.getName()).normalize();
+				if (!file.startsWith(folder)) {
+					// never extracted, kept as is
+					plan.add(new PlannedEntry(entry, null, entry.getName(), entry.getUnixMode()));
+				} else if (Files.exists(file, LinkOption.NOFOLLOW_LINKS) && planned.add(entryName(folder, file))) {
+					if (entry.isDirectory() || isUnchanged(entry.getName(), file)) {
+						plan.add(new PlannedEntry(entry, null, entry.getName(), entry.getUnixMode()));
+					} else {
+						plan.add(new PlannedEntry(null, file, entry.getName(), entry.getUnixMode()));
+					}
+				}
+			}
+		}
+
+		try (Stream<Path> files = Files.walk(folder)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				String name = entryName(folder, file);
+				if (!file.equals(folder) && planned.add(name)) {
+					plan.add(new PlannedEntry(null, file, Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS) ? name + "/" : name, 0));
+				}
+			}
+		}
+		return plan;
+	}
+
+	private boolean isUnchanged(String entryName, Path file) throws IOException {
+		FileState state = snapshot.get(entryName);
+		return state != null && state.equals(FileState.of(Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)));
+	}
+
+	private static Deflated deflate(Path file) {
+		try {
+			byte[] content = Files.readAllBytes(file);
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(content);
+				deflater.finish();
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 64);
+				byte[] buffer = new byte[16 * 1024];
+				while (!deflater.finished()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+				return new Deflated(compressed.toByteArray(), content.length, crc.getValue());
+			} finally {
+				deflater.end();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeBlockDeflated(ZipArchiveOutputStream out, PlannedEntry entry, BlockDeflater blockDeflater) throws IOException {
+		// the sizes and CRC must be known before the entry is written
+		Path compressed = Files.createTempFile(zipFile.getParent(), "block-deflate-", ".tmp");
+		try {
+			BlockDeflater.Result result;
+			try (InputStream in = Files.newInputStream(entry.file()); OutputStream compressedOut = Files.newOutputStream(compressed)) {
+				result = blockDeflater.deflate(in, compressedOut);
+			}
+			try (InputStream in = Files.newInputStream(compressed)) {
+				out.addRawArchiveEntry(deflatedEntry(entry, result.size(), result.compressedSize(), result.crc()), in);
+			}
+		} finally {
+			Files.deleteIfExists(compressed);
+		}
+	}
+
+	private static ZipArchiveEntry deflatedEntry(PlannedEntry planned, long size, long compressedSize, long crc) throws IOException {
+		ZipArchiveEntry entry = new ZipArchiveEntry(planned.name());
+		entry.setMethod(ZipArchiveEntry.DEFLATED);
+		entry.setLastModifiedTime(Files.getLastModifiedTime(planned.file(), LinkOption.NOFOLLOW_LINKS));
+		entry.setUnixMode(planned.unixMode() != 0 ? planned.unixMode() : UnixStat.FILE_FLAG | permissions(planned.file()));
+		entry.setSize(size);
+		entry.setCompressedSize(compressedSize);
+		entry.setCrc(crc);
+		return entry;
+	}
+
+	private static void writeEntry(ZipArchiveOutputStream out, PlannedEntry planned) throws IOException {
+		Path file = planned.file();
+		ZipArchiveEntry entry = new ZipArchiveEntry(planned.name());
+		entry.setMethod(ZipArchiveEntry.DEFLATED);
+		entry.setLastModifiedTime(Files.getLastModifiedTime(file, LinkOption.NOFOLLOW_LINKS));
+		if (Files.isSymbolicLink(file)) {
+			entry.setUnixMode(UnixStat.LINK_FLAG | UnixStat.DEFAULT_LINK_PERM);
+			out.putArchiveEntry(entry);
+			out.write(Files.readSymbolicLink(file).toString().getBytes(StandardCharsets.UTF_8));
+		} else {
+			entry.setUnixMode(planned.unixMode() != 0 ? planned.unixMode() : UnixStat.DIR_FLAG | permissions(file));
+			out.putArchiveEntry(entry);
+		}
+		out.closeArchiveEntry();
+	}
+
+	private static int permissions(Path file) throws IOException {
+		try {
+			int mode = 0;
+			for (PosixFilePermission permission : Files.getPosixFilePermissions(file, LinkOption.NOFOLLOW_LINKS)) {
+				mode |= 1 << (8 - permission.ordinal());
+			}
+			return mode;
+		} catch (UnsupportedOperationException e) {
+			return Files.isDirectory(file) ? UnixStat.DEFAULT_DIR_PERM : UnixStat.DEFAULT_FILE_PERM;
+		}
+	}
+
+	private static String entryName(Path folder, Path file) {
+		return folder.relativize(file).toString().replace('\\', '/');
+	}
+}
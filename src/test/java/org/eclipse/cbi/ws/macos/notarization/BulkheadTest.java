@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    private ScheduledExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newScheduledThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrencyIsBoundedPerStage() throws Exception {
+        Bulkhead uploads = new Bulkhead("upload", Scheduler.of(executor), 2);
+        Bulkhead stapling = new Bulkhead("stapling", Scheduler.of(executor), 2);
+        AtomicInteger runningUploads = new AtomicInteger();
+        AtomicInteger maxRunningUploads = new AtomicInteger();
+        CountDownLatch releaseUploads = new CountDownLatch(1);
+
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(uploads.schedule(() -> {
+                maxRunningUploads.accumulateAndGet(runningUploads.incrementAndGet(), Math::max);
+                releaseUploads.await();
+                runningUploads.decrementAndGet();
+                return null;
+            }, 0, TimeUnit.MILLISECONDS));
+        }
+
+        // stapling still has capacity while uploads are queued
+        assertEquals("stapled", stapling.schedule(() -> "stapled", 0, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+        awaitQueueDepth(uploads, 8);
+        assertEquals(2, uploads.running());
+        // dispatched attempts may not have started yet on a busy machine
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (runningUploads.get() != 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        releaseUploads.countDown();
+        for (ScheduledFuture<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(2, maxRunningUploads.get());
+        assertEquals(0, uploads.queueDepth());
+        assertEquals(10, uploads.dispatched());
+        assertTrue(uploads.maxWaitTime().compareTo(Duration.ZERO) > 0);
+    }
+
+    private static void awaitQueueDepth(Bulkhead bulkhead, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.queueDepth() != depth && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(depth, bulkhead.queueDepth());
+    }
+
+    @Test
+    public void cancelQueuedTask() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("upload", Scheduler.of(executor), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        ScheduledFuture<?> running = bulkhead.schedule(() -> {
+            release.await();
+            return null;
+        }, 0, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> queued = bulkhead.schedule(calls::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> next = bulkhead.schedule(calls::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(queued.cancel(false));
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals(1, next.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+}
@@ -16,7 +16,7 @@ import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResultBuilder;
-import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationTool;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.XcrunNotarizationTool;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -87,7 +87,7 @@ public class FailingNotarizationServiceTest {
         assertEquals(NotarizationStatus.State.ERROR, status.notarizationStatus().status());
     }
 
-    static class FailingNotarizationTool extends NotarizationTool {
+    static class FailingNotarizationTool extends XcrunNotarizationTool {
 
         @Override
         protected List<String> getUploadCommand(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId, Path fileToNotarize) {
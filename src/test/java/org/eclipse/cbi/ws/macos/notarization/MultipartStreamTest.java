@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartStreamTest {
+
+    private static final String BOUNDARY = "Xu02xqR9Y2EgqOnHDgh0TRyhO5hfjb";
+
+    @Test
+    public void readParts() throws IOException {
+        byte[] content = new byte[300 * 1024];
+        new Random(42).nextBytes(content);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("preamble\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"app.zip\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + BOUNDARY + "\r\n" +
+                "content-disposition: form-data; name=\"options\"\r\n" +
+                "\r\n" +
+                "{\"primaryBundleId\": \"id\"}" +
+                "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        try (MultipartStream multipart = new MultipartStream(new SlowInputStream(body.toByteArray()), BOUNDARY)) {
+            MultipartStream.Part file = multipart.nextPart().orElseThrow();
+            assertEquals(Optional.of("file"), file.name());
+            assertEquals(Optional.of("app.zip"), file.submittedFilename());
+            assertEquals(Optional.of("application/octet-stream"), file.header("content-type"));
+
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            Hasher hasher = Hashing.sha256().newHasher();
+            assertEquals(content.length, file.transferTo(Channels.newChannel(written), hasher));
+            assertArrayEquals(content, written.toByteArray());
+            assertEquals(Hashing.sha256().hashBytes(content), hasher.hash());
+
+            MultipartStream.Part options = multipart.nextPart().orElseThrow();
+            assertEquals(Optional.of("options"), options.name());
+            assertEquals(Optional.empty(), options.submittedFilename());
+            assertEquals("{\"primaryBundleId\": \"id\"}", new String(options.body().readAllBytes(), StandardCharsets.US_ASCII));
+
+            assertTrue(multipart.nextPart().isEmpty());
+        }
+    }
+
+    @Test
+    public void skipUnreadParts() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"first\"\r\n" +
+                "\r\n" +
+                "not read\r\n--" + BOUNDARY.substring(0, 10) + "\r\n" +
+                "\r\n--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"second\"\r\n" +
+                "\r\n" +
+                "read" +
+                "\r\n--" + BOUNDARY + "--";
+
+        try (MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)), BOUNDARY)) {
+            assertEquals(Optional.of("first"), multipart.nextPart().orElseThrow().name());
+            MultipartStream.Part second = multipart.nextPart().orElseThrow();
+            assertEquals(Optional.of("second"), second.name());
+            assertEquals("read", new String(second.body().readAllBytes(), StandardCharsets.US_ASCII));
+            assertTrue(multipart.nextPart().isEmpty());
+        }
+    }
+
+    @Test
+    public void truncatedBody() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"\r\n" +
+                "\r\n" +
+                "truncated";
+
+        try (MultipartStream multipart = new MultipartStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.US_ASCII)), BOUNDARY)) {
+            MultipartStream.Part file = multipart.nextPart().orElseThrow();
+            assertThrows(MultipartStream.MalformedMultipartException.class, () -> file.body().readAllBytes());
+        }
+    }
+
+    /**
+     * Returns data in small chunks, to exercise delimiters spanning several reads.
+     */
+    private static class SlowInputStream extends ByteArrayInputStream {
+        SlowInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1021));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationBatchStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatuses;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationCacheTest {
+
+    @TempDir
+    Path folder;
+
+    private Jsonb jsonb;
+
+    private NotarizationCache cache;
+
+    @BeforeEach
+    public void setup() {
+        jsonb = JsonbBuilder.create();
+        cache = new NotarizationCache("P1D", new NotarizationJournal(false, folder.resolve("journal.jsonl").toString(), "P1D", Long.MAX_VALUE, jsonb));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    public void statusesChangedSinceVersion() {
+        CompletableFuture<NotarizerResult> upload = new CompletableFuture<>();
+        UUID changed = cache.put(request(upload, new CompletableFuture<>()));
+        UUID unchanged = cache.put(request(new CompletableFuture<>(), new CompletableFuture<>()));
+
+        NotarizationStatuses all = cache.statuses(List.of(changed, unchanged), 0);
+        assertEquals(2, all.statuses().size());
+        assertEquals(List.of(), cache.statuses(List.of(changed, unchanged), all.version()).statuses());
+
+        upload.complete(NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_SUCCESSFUL).message("uploaded").appleRequestUUID("apple").build());
+
+        NotarizationStatuses changes = cache.statuses(List.of(changed, unchanged), all.version());
+        assertEquals(List.of(changed), changes.statuses().stream().map(NotarizationStatusWithUUID::uuid).toList());
+        assertEquals("File has been successfully uploaded to Apple notarization service", changes.statuses().get(0).notarizationStatus().message());
+        assertTrue(changes.version() > all.version());
+    }
+
+    @Test
+    public void batchWithExpiredRequestIsInError() {
+        CompletableFuture<NotarizerResult> upload = new CompletableFuture<>();
+        CompletableFuture<NotarizationInfoResult> info = new CompletableFuture<>();
+        UUID cached = cache.put(request(upload, info));
+        upload.complete(NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_SUCCESSFUL).message("uploaded").appleRequestUUID("apple").build());
+        info.complete(NotarizationInfoResult.builder().status(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL).message("accepted").build());
+
+        UUID complete = cache.putBatch(List.of(cached));
+        assertEquals(NotarizationStatus.State.COMPLETE, cache.batchStatus(complete, 0).orElseThrow().status());
+
+        // e.g. a shared request, submitted long before the batch
+        UUID expired = UUID.randomUUID();
+        NotarizationBatchStatus status = cache.batchStatus(cache.putBatch(List.of(cached, expired)), 0).orElseThrow();
+        assertEquals(NotarizationStatus.State.ERROR, status.status());
+        assertEquals(List.of(expired), status.requests().unknown());
+    }
+
+    private NotarizationRequest request(CompletableFuture<NotarizerResult> upload, CompletableFuture<NotarizationInfoResult> info) {
+        // executed then cached, as NotarizationService does
+        return NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(folder.resolve("app.zip"))
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(false).build())
+                .notarizer(() -> upload)
+                .notarizationInfo(r -> info)
+                .staplerResult(Optional.empty())
+                .build()
+                .execute();
+    }
+}
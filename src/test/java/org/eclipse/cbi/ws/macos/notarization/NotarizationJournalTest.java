@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationJournalTest {
+
+    @TempDir
+    Path folder;
+
+    private Jsonb jsonb;
+
+    @BeforeEach
+    public void setup() {
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    public void replayLatestStateOfRequests() throws IOException {
+        Path journalFile = folder.resolve("journal.jsonl");
+        NotarizationJournal journal = new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb);
+
+        UUID inProgress = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        NotarizationRequest request =
+            NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(folder.resolve("app.zip"))
+                .submittedFilename("app.zip")
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(true).build())
+                .build();
+
+        journal.record(inProgress, request);
+        journal.record(removed, request);
+        request.appleRequestUUID().set("ac9a4320-49c8-453c-82a3-996d83bd20f5");
+        request.status().set(NotarizationStatus.builder()
+                                .status(NotarizationStatus.State.IN_PROGRESS)
+                                .message("File has been successfully uploaded to Apple notarization service")
+                                .build());
+        journal.record(inProgress, request);
+        journal.recordRemoval(removed);
+        journal.close();
+
+        assertEquals(4, Files.readAllLines(journalFile).size());
+
+        List<JournalEntry> entries = new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb).replay();
+        assertEquals(1, entries.size());
+        JournalEntry entry = entries.get(0);
+        assertEquals(inProgress, entry.uuid());
+        assertEquals(folder.resolve("app.zip").toString(), entry.fileToNotarize());
+        assertEquals("ac9a4320-49c8-453c-82a3-996d83bd20f5", entry.appleRequestUUID());
+        assertEquals(request.notarizationOptions(), entry.options());
+        assertEquals(request.status().get(), entry.status());
+
+        // the journal has been compacted
+        assertEquals(1, Files.readAllLines(journalFile).size());
+    }
+
+    @Test
+    public void compactWhileRunning() throws IOException {
+        Path journalFile = folder.resolve("journal.jsonl");
+        NotarizationJournal journal = new NotarizationJournal(true, journalFile.toString(), "P1D", 4096, jsonb);
+        assertTrue(journal.replay().isEmpty());
+
+        UUID live = UUID.randomUUID();
+        NotarizationRequest request =
+            NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(folder.resolve("app.zip"))
+                .submittedFilename("app.zip")
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(true).build())
+                .build();
+        request.appleRequestUUID().set("ac9a4320-49c8-453c-82a3-996d83bd20f5");
+        request.status().set(NotarizationStatus.builder()
+                                .status(NotarizationStatus.State.IN_PROGRESS)
+                                .message("Notarization has successfully completed on Apple notarization service")
+                                .log("a large notarization log".repeat(1000))
+                                .build());
+        journal.record(live, request);
+        for (int i = 0; i < 1000; i++) {
+            UUID removed = UUID.randomUUID();
+            journal.record(removed, request);
+            journal.recordRemoval(removed);
+        }
+        assertTrue(Files.size(journalFile) < 3 * 4096, "journal has not been compacted: " + Files.size(journalFile));
+        journal.close();
+
+        List<JournalEntry> entries = new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb).replay();
+        assertEquals(1, entries.size());
+        assertEquals(live, entries.get(0).uuid());
+        assertEquals("ac9a4320-49c8-453c-82a3-996d83bd20f5", entries.get(0).appleRequestUUID());
+        // the log is not journaled
+        assertNull(entries.get(0).status().log());
+        assertEquals(request.status().get().message(), entries.get(0).status().message());
+    }
+
+    @Test
+    public void ignoreTruncatedEntries() throws IOException {
+        Path journalFile = folder.resolve("journal.jsonl");
+        Files.writeString(journalFile, "{\"uuid\":\"e68713e3-2ee7-4ebd-8672-20949a9ecdb9\",\"timest");
+
+        assertTrue(new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb).replay().isEmpty());
+    }
+
+    @Test
+    public void disabledJournal() throws IOException {
+        Path journalFile = folder.resolve("journal.jsonl");
+        NotarizationJournal journal = new NotarizationJournal(false, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb);
+        journal.recordRemoval(UUID.randomUUID());
+
+        assertFalse(Files.exists(journalFile));
+        assertTrue(journal.replay().isEmpty());
+    }
+
+    @Test
+    public void replayStatusChangesOfCachedRequests() throws IOException {
+        Path journalFile = folder.resolve("journal.jsonl");
+        NotarizationJournal journal = new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb);
+        NotarizationCache cache = new NotarizationCache("P1D", journal);
+        CompletableFuture<NotarizerResult> upload = new CompletableFuture<>();
+        CompletableFuture<NotarizationInfoResult> info = new CompletableFuture<>();
+
+        // executed then cached, as NotarizationService does
+        NotarizationRequest request =
+            NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(folder.resolve("app.zip"))
+                .submittedFilename("app.zip")
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(false).build())
+                .notarizer(() -> upload)
+                .notarizationInfo(r -> info)
+                .staplerResult(Optional.empty())
+                .build()
+                .execute();
+        UUID uuid = cache.put(request);
+
+        upload.complete(NotarizerResult.builder()
+                            .status(NotarizerResult.Status.UPLOAD_SUCCESSFUL)
+                            .message("uploaded")
+                            .appleRequestUUID("ac9a4320-49c8-453c-82a3-996d83bd20f5")
+                            .build());
+        info.complete(NotarizationInfoResult.builder()
+                          .status(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL)
+                          .message("accepted")
+                          .build());
+        journal.close();
+        // the put, the upload, the notarization info and the completion
+        assertEquals(4, Files.readAllLines(journalFile).size());
+
+        List<JournalEntry> entries = new NotarizationJournal(true, journalFile.toString(), "P1D", Long.MAX_VALUE, jsonb).replay();
+        assertEquals(1, entries.size());
+        assertEquals(uuid, entries.get(0).uuid());
+        assertEquals("ac9a4320-49c8-453c-82a3-996d83bd20f5", entries.get(0).appleRequestUUID());
+        assertEquals(NotarizationStatus.State.COMPLETE, entries.get(0).status().status());
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.jboss.resteasy.plugins.providers.sse.SseImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationStatusEventsTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void closeStreamOfClientGoneAwayWithoutStatusChange() throws Exception {
+        NotarizationRequest request = request(new CompletableFuture<>());
+        RecordingSink sink = new RecordingSink();
+        NotarizationStatusEvents.stream(UUID.randomUUID(), request, sink, new SseImpl(), scheduler, Duration.ofMillis(20));
+        assertEquals(List.of("status"), sink.names());
+        assertEquals(1, request.listeners().size());
+
+        // heartbeats are sent while the status does not change
+        for (int i = 0; i < 100 && sink.events.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("heartbeat", sink.events.get(2).getComment());
+
+        sink.gone = true;
+        for (int i = 0; i < 100 && !sink.closed; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(sink.closed);
+        assertEquals(List.of(), request.listeners());
+    }
+
+    @Test
+    public void stopHeartbeatOnceComplete() throws Exception {
+        CompletableFuture<NotarizerResult> upload = new CompletableFuture<>();
+        NotarizationRequest request = request(upload);
+        RecordingSink sink = new RecordingSink();
+        NotarizationStatusEvents.stream(UUID.randomUUID(), request, sink, new SseImpl(), scheduler, Duration.ofMillis(20));
+
+        upload.complete(NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_FAILED).message("rejected").build());
+        assertTrue(sink.closed);
+        assertEquals(List.of(), request.listeners());
+        int sent = sink.events.size();
+        Thread.sleep(100);
+        assertEquals(sent, sink.events.size());
+    }
+
+    private static NotarizationRequest request(CompletableFuture<NotarizerResult> upload) {
+        return NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(Path.of("app.zip"))
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(false).build())
+                .notarizer(() -> upload)
+                .notarizationInfo(r -> new CompletableFuture<NotarizationInfoResult>())
+                .staplerResult(Optional.empty())
+                .build()
+                .execute();
+    }
+
+    private static class RecordingSink implements SseEventSink {
+        final List<OutboundSseEvent> events = new CopyOnWriteArrayList<>();
+        // writes fail once the client has gone away, while the sink is not closed yet
+        volatile boolean gone;
+        volatile boolean closed;
+
+        List<String> names() {
+            return events.stream().map(OutboundSseEvent::getName).toList();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            if (gone) {
+                return CompletableFuture.failedFuture(new IOException("Broken pipe"));
+            }
+            events.add(event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.api.trace.TracerProvider;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequest;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationWebhooksTest {
+
+    private final NotarizationStatusWithUUID status =
+            NotarizationStatusWithUUID.from(UUID.randomUUID(),
+                                            NotarizationStatus.builder().status(NotarizationStatus.State.COMPLETE).message("done").build());
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresBeforeSuccess = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private HttpServer server;
+    private ScheduledExecutorService executor;
+    private Jsonb jsonb;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/callback", exchange -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+                received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                exchange.sendResponseHeaders(failuresBeforeSuccess.getAndDecrement() > 0 ? 503 : 204, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+        executor = Executors.newScheduledThreadPool(8);
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.stop(0);
+        executor.shutdownNow();
+        jsonb.close();
+    }
+
+    @Test
+    public void retryUntilDelivered() throws ExecutionException, InterruptedException {
+        failuresBeforeSuccess.set(2);
+
+        assertEquals(204, webhooks(10, 2).deliver(callbackUrl(), status).get());
+
+        assertEquals(3, received.size());
+        assertTrue(received.get(2).contains(status.uuid().toString()), received.get(2));
+        assertTrue(received.get(2).contains("COMPLETE"), received.get(2));
+    }
+
+    @Test
+    public void limitConcurrencyPerEndpoint() throws InterruptedException {
+        release = new CountDownLatch(1);
+        NotarizationWebhooks webhooks = webhooks(10, 2);
+
+        List<CompletableFuture<Integer>> deliveries = List.of(
+                webhooks.deliver(callbackUrl(), status),
+                webhooks.deliver(callbackUrl(), status),
+                webhooks.deliver(callbackUrl(), status),
+                webhooks.deliver(callbackUrl(), status));
+        Thread.sleep(500);
+        assertEquals(4, webhooks.pending());
+        release.countDown();
+
+        deliveries.forEach(CompletableFuture::join);
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, webhooks.pending());
+    }
+
+    @Test
+    public void dropWhenTooManyPending() {
+        release = new CountDownLatch(1);
+        NotarizationWebhooks webhooks = webhooks(1, 1);
+
+        CompletableFuture<Integer> first = webhooks.deliver(callbackUrl(), status);
+        assertThrows(ExecutionException.class, () -> webhooks.deliver(callbackUrl(), status).get());
+        release.countDown();
+        assertEquals(204, first.join());
+    }
+
+    @Test
+    public void evictIdleEndpoints() {
+        release = new CountDownLatch(1);
+        NotarizationWebhooks webhooks = webhooks(10, 1);
+
+        CompletableFuture<Integer> first = webhooks.deliver(callbackUrl(), status);
+        CompletableFuture<Integer> second = webhooks.deliver(callbackUrl(), status);
+        assertEquals(1, webhooks.endpoints());
+        release.countDown();
+        first.join();
+        second.join();
+        assertEquals(0, webhooks.endpoints());
+    }
+
+    @Test
+    public void allowOnlyConfiguredHosts() {
+        NotarizationWebhooks webhooks = new NotarizationWebhooks(new OkHttpClient(), jsonb, Scheduler.of(executor), TracerProvider.noop().get("test"),
+                                                                 10, 1, 4, Duration.ofMillis(10), Duration.ofMillis(50),
+                                                                 List.of("ci.example.org", " *.Example.COM "), false);
+        assertTrue(webhooks.isAllowedCallbackUrl("https://ci.example.org/notarized"));
+        assertTrue(webhooks.isAllowedCallbackUrl("http://hooks.example.com:8080/notarized"));
+        assertFalse(webhooks.isAllowedCallbackUrl("https://example.com/notarized"));
+        assertFalse(webhooks.isAllowedCallbackUrl("https://other.example.org/notarized"));
+        assertFalse(webhooks.isAllowedCallbackUrl("http://169.254.169.254/latest/meta-data/"));
+        assertFalse(webhooks.isAllowedCallbackUrl("ftp://ci.example.org/"));
+        assertFalse(webhooks(10, 1, List.of()).isAllowedCallbackUrl(callbackUrl().toString()));
+    }
+
+    @Test
+    public void leaveLogOut() throws InterruptedException {
+        NotarizationRequest request = NotarizationRequest.builderWithDefaultStatus()
+                .fileToNotarize(Path.of("app.zip"))
+                .notarizationOptions(NotarizationRequestOptions.builder().primaryBundleId("id").staple(false).build())
+                .build();
+        request.status().set(NotarizationStatus.builder().status(NotarizationStatus.State.ERROR).message("rejected").log("large log").build());
+
+        webhooks(10, 1).register(status.uuid(), request, callbackUrl().toString());
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).contains("rejected"), received.get(0));
+        assertFalse(received.get(0).contains("large log"), received.get(0));
+    }
+
+    private NotarizationWebhooks webhooks(int maxPending, int maxConcurrencyPerEndpoint) {
+        return webhooks(maxPending, maxConcurrencyPerEndpoint, List.of("localhost"));
+    }
+
+    private NotarizationWebhooks webhooks(int maxPending, int maxConcurrencyPerEndpoint, List<String> allowedHosts) {
+        return new NotarizationWebhooks(new OkHttpClient(), jsonb, Scheduler.of(executor), TracerProvider.noop().get("test"),
+                                        maxPending, maxConcurrencyPerEndpoint, 4, Duration.ofMillis(10), Duration.ofMillis(50),
+                                        allowedHosts, false);
+    }
+
+    private HttpUrl callbackUrl() {
+        return HttpUrl.get("http://localhost:" + server.getAddress().getPort() + "/callback");
+    }
+}
@@ -7,36 +7,86 @@
  *******************************************************************************/
 package org.eclipse.cbi.ws.macos.notarization;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.response.ExtractableResponse;
 import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.json.bind.JsonbBuilder;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationBatch;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationBatchStatus;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationRequestOptions;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatus;
 import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatusWithUUID;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationStatuses;
+import org.eclipse.cbi.ws.macos.notarization.request.NotarizationUpload;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResultBuilder;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationAggregator;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationTool;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.XcrunNotarizationTool;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.get;
 import static io.restassured.RestAssured.given;
+import static java.util.Comparator.comparing;
 import static org.junit.jupiter.api.Assertions.*;
 
 @QuarkusTest
 public class PassingNotarizationServiceTest {
 
+    private static final String BOUNDARY = "compressed-upload-boundary";
+
     @Inject
     NotarizationService service;
 
+    @Inject
+    InMemorySpanExporter spanExporter;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    @Named("macos-notarization-service-pool")
+    ScheduledExecutorService executor;
+
+    @Inject
+    @Named("upload")
+    Bulkhead uploadStage;
+
     @BeforeAll
     public static void setup() {
         // For debugging only
@@ -83,7 +133,537 @@ public class PassingNotarizationServiceTest {
         assertEquals(NotarizationStatus.State.COMPLETE, status.notarizationStatus().status());
     }
 
-    static class PassingNotarizationTool extends NotarizationTool {
+    @Test
+    public void identicalSubmissionsAreShared() {
+        service.notarizationTool = new PassingNotarizationTool();
+
+        NotarizationRequestOptions options =
+                NotarizationRequestOptions
+                        .builder()
+                        .primaryBundleId("shared")
+                        .staple(false)
+                        .build();
+
+        NotarizationStatusWithUUID first = submit(options);
+        NotarizationStatusWithUUID second = submit(options);
+        assertEquals(first.uuid(), second.uuid());
+
+        NotarizationStatusWithUUID other = submit(NotarizationRequestOptions.builder().primaryBundleId("other").staple(false).build());
+        assertNotEquals(first.uuid(), other.uuid());
+    }
+
+    @Test
+    public void exposeMetrics() throws InterruptedException {
+        service.notarizationTool = new PassingNotarizationTool();
+        submit(NotarizationRequestOptions.builder().primaryBundleId("metrics").staple(false).build());
+
+        Thread.sleep(1000);
+
+        String metrics = get("/q/metrics").then().statusCode(200).extract().asString();
+        assertTrue(metrics.contains("notarization_stage_seconds_count{outcome=\"UPLOAD_SUCCESSFUL\",stage=\"upload\"}"), metrics);
+        assertTrue(metrics.contains("notarization_stage_seconds_bucket{outcome=\"NOTARIZATION_SUCCESSFUL\",stage=\"infoPolling\""), metrics);
+        assertTrue(metrics.contains("notarization_stage_queued{stage=\"stapling\"}"), metrics);
+        assertTrue(metrics.contains("notarization_requests{state=\"COMPLETE\"}"), metrics);
+        assertTrue(metrics.contains("cache_gets_total{cache=\"notarization.cache\",result=\"miss\"}"), metrics);
+        assertTrue(metrics.contains("notarization_process_seconds_count{command=\"pwd\",outcome=\"success\"}"), metrics);
+        assertTrue(metrics.contains("notarization_pendingFiles_size_bytes"), metrics);
+        assertTrue(metrics.contains("executor_queued_tasks{name=\"macos-notarization-service-pool\"}"), metrics);
+    }
+
+    @Test
+    public void longPollStatus() {
+        service.notarizationTool = new PassingNotarizationTool();
+        NotarizationStatusWithUUID submitted = submit(NotarizationRequestOptions.builder().primaryBundleId("long-poll").staple(false).build());
+        String statusUrl = "/macos-notarization-service/%1$s/status".formatted(submitted.uuid());
+
+        ExtractableResponse<Response> extract = get(statusUrl).then().statusCode(200).extract();
+        NotarizationStatusWithUUID status = extract.body().as(NotarizationStatusWithUUID.class);
+        String etag = extract.header("ETag");
+        assertNotNull(etag);
+        for (int i = 0; i < 10 && status.notarizationStatus().status() == NotarizationStatus.State.IN_PROGRESS; i++) {
+            extract = given().header("If-None-Match", etag).get(statusUrl + "?wait=5").then().extract();
+            if (extract.statusCode() == 200) {
+                assertNotEquals(etag, extract.header("ETag"));
+                status = extract.body().as(NotarizationStatusWithUUID.class);
+                etag = extract.header("ETag");
+            } else {
+                assertEquals(304, extract.statusCode());
+            }
+        }
+        assertEquals(NotarizationStatus.State.COMPLETE, status.notarizationStatus().status());
+
+        // completed requests do not wait
+        given().header("If-None-Match", etag).get(statusUrl + "?wait=30").then().statusCode(304).header("ETag", etag);
+        given().header("If-None-Match", "\"other\"").get(statusUrl).then().statusCode(200).header("ETag", etag);
+    }
+
+    @Test
+    public void streamStatusEvents() {
+        service.notarizationTool = new PassingNotarizationTool();
+        NotarizationStatusWithUUID submitted = submit(NotarizationRequestOptions.builder().primaryBundleId("events").staple(false).build());
+
+        // the stream is closed by the service once the request is complete
+        String events =
+            given()
+                .accept("text/event-stream")
+                .get("/macos-notarization-service/%1$s/status/events".formatted(submitted.uuid()))
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+        assertTrue(events.contains("event: status"), events);
+        assertTrue(events.contains("\"status\":\"COMPLETE\""), events);
+        assertEquals(events.indexOf("\"status\":\"COMPLETE\""), events.lastIndexOf("\"status\":\"COMPLETE\""), events);
+
+        get("/macos-notarization-service/%1$s/status/events".formatted(UUID.randomUUID())).then().statusCode(404);
+    }
+
+    @Test
+    public void bulkStatus() throws InterruptedException {
+        service.notarizationTool = new PassingNotarizationTool();
+        UUID first = submit(NotarizationRequestOptions.builder().primaryBundleId("bulk-1").staple(false).build()).uuid();
+        UUID second = submit(NotarizationRequestOptions.builder().primaryBundleId("bulk-2").staple(false).build()).uuid();
+        UUID unknown = UUID.randomUUID();
+
+        NotarizationStatuses statuses = null;
+        for (int i = 0; i < 50; i++) {
+            statuses = statuses(List.of(first.toString(), second.toString(), unknown.toString()), 0);
+            if (statuses.statuses().stream().allMatch(s -> s.notarizationStatus().status() == NotarizationStatus.State.COMPLETE)) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(List.of(first, second), statuses.statuses().stream().map(NotarizationStatusWithUUID::uuid).sorted(comparing(List.of(first, second)::indexOf)).toList());
+        assertTrue(statuses.statuses().stream().allMatch(s -> s.notarizationStatus().status() == NotarizationStatus.State.COMPLETE), statuses.toString());
+        assertEquals(List.of(unknown), statuses.unknown());
+
+        // nothing changed since
+        NotarizationStatuses unchanged = statuses(List.of(first.toString(), second.toString()), statuses.version());
+        assertEquals(List.of(), unchanged.statuses());
+        assertTrue(unchanged.version() >= statuses.version());
+
+        given().contentType("application/json").body(List.of("not-a-uuid")).post("/macos-notarization-service/status").then().statusCode(400);
+    }
+
+    private static NotarizationStatuses statuses(List<String> uuids, long since) {
+        return given()
+                .contentType("application/json")
+                .body(uuids)
+                .post("/macos-notarization-service/status?since=" + since)
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .as(NotarizationStatuses.class);
+    }
+
+    @Test
+    public void batchSubmission() throws InterruptedException {
+        service.notarizationTool = new PassingNotarizationTool();
+        NotarizationRequestOptions options = NotarizationRequestOptions.builder().primaryBundleId("batch").staple(false).build();
+
+        NotarizationBatch batch = given()
+                .when()
+                .multiPart("file", Paths.get("pom.xml").toFile())
+                .multiPart("file", Paths.get("src/test/resources/application.properties").toFile())
+                .multiPart("options", options, "application/json")
+                .post("/macos-notarization-service/notarize/batch")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .as(NotarizationBatch.class);
+        assertEquals(2, batch.requests().size());
+        assertNotEquals(batch.requests().get(0).uuid(), batch.requests().get(1).uuid());
+
+        NotarizationBatchStatus status = null;
+        for (int i = 0; i < 50; i++) {
+            status = get("/macos-notarization-service/batch/%1$s/status".formatted(batch.batchId()))
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .body()
+                    .as(NotarizationBatchStatus.class);
+            if (status.status() != NotarizationStatus.State.IN_PROGRESS) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(NotarizationStatus.State.COMPLETE, status.status());
+        assertEquals(2, status.requests().statuses().size());
+
+        // options must be given once, or once per file
+        given()
+                .when()
+                .multiPart("file", Paths.get("pom.xml").toFile())
+                .multiPart("file", Paths.get("src/test/resources/application.properties").toFile())
+                .multiPart("options", options, "application/json")
+                .multiPart("options", options, "application/json")
+                .multiPart("options", options, "application/json")
+                .post("/macos-notarization-service/notarize/batch")
+                .then()
+                .statusCode(400);
+        get("/macos-notarization-service/batch/%1$s/status".formatted(UUID.randomUUID())).then().statusCode(404);
+    }
+
+    @Test
+    public void notarizeFilesOfRejectedContainerAlone() throws Exception {
+        ContainerRejectingTool tool = new ContainerRejectingTool();
+        service.notarizationTool = tool;
+        NotarizationAggregator aggregator = service.aggregator;
+        service.aggregation = true;
+        service.aggregator = new NotarizationAggregator(executor, uploadStage, Paths.get(service.pendingFilesPath), Duration.ofMillis(200), 1024 * 1024, 10);
+        try {
+            NotarizationRequestOptions options = NotarizationRequestOptions.builder().primaryBundleId("aggregated").staple(false).build();
+            NotarizationBatch batch = given()
+                    .multiPart("file", "good.zip", UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+                    .multiPart("file", "bad.zip", UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))
+                    .multiPart("options", options, "application/json")
+                    .post("/macos-notarization-service/notarize/batch")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .as(NotarizationBatch.class);
+
+            assertEquals(NotarizationStatus.State.COMPLETE, awaitCompletion(batch.requests().get(0).uuid()));
+            assertEquals(NotarizationStatus.State.ERROR, awaitCompletion(batch.requests().get(1).uuid()));
+            // the container, then each of its files on its own
+            assertEquals(3, tool.uploaded.size(), tool.uploaded.toString());
+            assertTrue(tool.uploaded.get(0).startsWith("aggregated-"), tool.uploaded.toString());
+        } finally {
+            service.aggregation = false;
+            service.aggregator = aggregator;
+        }
+    }
+
+    private static NotarizationStatus.State awaitCompletion(UUID uuid) throws InterruptedException {
+        NotarizationStatus.State state = null;
+        for (int i = 0; i < 100; i++) {
+            state = get("/macos-notarization-service/%1$s/status".formatted(uuid))
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .as(NotarizationStatusWithUUID.class)
+                    .notarizationStatus()
+                    .status();
+            if (state != NotarizationStatus.State.IN_PROGRESS) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return state;
+    }
+
+    @Test
+    public void downloadRanges() throws Exception {
+        service.notarizationTool = new PassingNotarizationTool();
+        byte[] content = Files.readAllBytes(Paths.get("pom.xml"));
+        NotarizationStatusWithUUID submitted = submit(NotarizationRequestOptions.builder().primaryBundleId("download").staple(false).build());
+        String downloadUrl = "/macos-notarization-service/%1$s/download".formatted(submitted.uuid());
+        for (int i = 0; i < 50 && get(downloadUrl).statusCode() != 200; i++) {
+            Thread.sleep(100);
+        }
+
+        ExtractableResponse<Response> full = get(downloadUrl).then().statusCode(200).header("Accept-Ranges", "bytes").extract();
+        assertArrayEquals(content, full.asByteArray());
+        String etag = full.header("ETag");
+        assertEquals('"' + Hashing.sha256().hashBytes(content).toString() + '"', etag);
+        assertEquals(String.valueOf(content.length), full.header("Content-Length"));
+
+        ExtractableResponse<Response> partial = given().header("Range", "bytes=10-19").get(downloadUrl).then().statusCode(206).extract();
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), partial.asByteArray());
+        assertEquals("bytes 10-19/" + content.length, partial.header("Content-Range"));
+        ExtractableResponse<Response> suffix = given().header("Range", "bytes=-5").get(downloadUrl).then().statusCode(206).extract();
+        assertArrayEquals(Arrays.copyOfRange(content, content.length - 5, content.length), suffix.asByteArray());
+        // the range is ignored if the file has changed
+        given().header("Range", "bytes=10-19").header("If-Range", "\"other\"").get(downloadUrl).then().statusCode(200);
+
+        given().header("Range", "bytes=" + content.length + "-").get(downloadUrl).then().statusCode(416).header("Content-Range", "bytes */" + content.length);
+        given().header("If-None-Match", etag).get(downloadUrl).then().statusCode(304);
+        given().head(downloadUrl).then().statusCode(200).header("Content-Length", String.valueOf(content.length));
+        get("/macos-notarization-service/%1$s/download".formatted(UUID.randomUUID())).then().statusCode(404);
+
+        // the downloads are traced with the request they serve
+        boolean traced = false;
+        for (int i = 0; i < 50 && !traced; i++) {
+            traced = spanExporter.getFinishedSpanItems().stream()
+                    .anyMatch(span -> span.getName().contains("download")
+                            && submitted.uuid().toString().equals(span.getAttributes().get(AttributeKey.stringKey("notarization.uuid"))));
+            Thread.sleep(100);
+        }
+        assertTrue(traced, "download span has no notarization.uuid attribute");
+    }
+
+    @Test
+    public void resumableUpload() throws Exception {
+        service.notarizationTool = new PassingNotarizationTool();
+        byte[] content = Files.readAllBytes(Paths.get("pom.xml"));
+        String sha256 = Hashing.sha256().hashBytes(content).toString();
+
+        NotarizationUpload upload = given().post("/macos-notarization-service/uploads?filename=pom.xml")
+                .then()
+                .statusCode(201)
+                .extract()
+                .as(NotarizationUpload.class);
+        String uploadUrl = "/macos-notarization-service/uploads/" + upload.uploadId();
+        assertEquals(0, upload.offset());
+
+        assertEquals(100, putChunk(uploadUrl, 0, Arrays.copyOfRange(content, 0, 100), 200).offset());
+        // a chunk that is not at the committed offset is rejected
+        assertEquals(100, putChunk(uploadUrl, 50, Arrays.copyOfRange(content, 50, 100), 409).offset());
+        assertEquals(100, get(uploadUrl).then().statusCode(200).extract().as(NotarizationUpload.class).offset());
+        assertEquals(content.length, putChunk(uploadUrl, 100, Arrays.copyOfRange(content, 100, content.length), 200).offset());
+
+        NotarizationRequestOptions options = NotarizationRequestOptions.builder().primaryBundleId("upload").staple(false).build();
+        NotarizationStatusWithUUID submitted = given().contentType("application/json")
+                .body(options)
+                .post(uploadUrl + "/notarize?sha256=" + sha256)
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(NotarizationStatusWithUUID.class);
+        // the session is closed once notarized
+        get(uploadUrl).then().statusCode(404);
+
+        String downloadUrl = "/macos-notarization-service/%1$s/download".formatted(submitted.uuid());
+        for (int i = 0; i < 50 && get(downloadUrl).statusCode() != 200; i++) {
+            Thread.sleep(100);
+        }
+        assertArrayEquals(content, get(downloadUrl).then().statusCode(200).extract().asByteArray());
+
+        // a file that does not match the given digest is discarded
+        NotarizationUpload corrupted = given().post("/macos-notarization-service/uploads").then().statusCode(201).extract().as(NotarizationUpload.class);
+        putChunk("/macos-notarization-service/uploads/" + corrupted.uploadId(), 0, Arrays.copyOfRange(content, 0, 100), 200);
+        given().contentType("application/json")
+                .body(options)
+                .post("/macos-notarization-service/uploads/%1$s/notarize?sha256=%2$s".formatted(corrupted.uploadId(), sha256))
+                .then()
+                .statusCode(400);
+
+        NotarizationUpload aborted = given().post("/macos-notarization-service/uploads").then().statusCode(201).extract().as(NotarizationUpload.class);
+        given().delete("/macos-notarization-service/uploads/" + aborted.uploadId()).then().statusCode(204);
+        get("/macos-notarization-service/uploads/" + aborted.uploadId()).then().statusCode(404);
+    }
+
+    private static NotarizationUpload putChunk(String uploadUrl, long offset, byte[] chunk, int expectedStatusCode) {
+        return given().contentType("application/octet-stream")
+                .body(chunk)
+                .put(uploadUrl + "?offset=" + offset)
+                .then()
+                .statusCode(expectedStatusCode)
+                .extract()
+                .as(NotarizationUpload.class);
+    }
+
+    @Test
+    public void compressedUploads() throws Exception {
+        service.notarizationTool = new PassingNotarizationTool();
+        byte[] content = Files.readAllBytes(Paths.get("pom.xml"));
+        String options = JsonbBuilder.create().toJson(NotarizationRequestOptions.builder().primaryBundleId("compressed").staple(false).build());
+
+        // the whole body is gzipped
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GzipCompressorOutputStream(gzipped)) {
+            out.write(multipartBody(content, null, options));
+        }
+        NotarizationStatusWithUUID gzipSubmission = postMultipart(gzipped.toByteArray(), "gzip", 200).as(NotarizationStatusWithUUID.class);
+        assertArrayEquals(content, download(gzipSubmission.uuid()));
+
+        // only the file part is compressed, with zstd
+        ByteArrayOutputStream zstdCompressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdCompressorOutputStream(zstdCompressed)) {
+            out.write(content);
+        }
+        double zstdReceived = receivedBytes("zstd");
+        NotarizationStatusWithUUID zstdSubmission = postMultipart(multipartBody(zstdCompressed.toByteArray(), "zstd", options), null, 200).as(NotarizationStatusWithUUID.class);
+        // identical to the gzipped file once decoded
+        assertEquals(gzipSubmission.uuid(), zstdSubmission.uuid());
+        // only the bytes of the file part are counted
+        assertEquals(zstdCompressed.size(), receivedBytes("zstd") - zstdReceived);
+
+        postMultipart(Arrays.copyOf(gzipped.toByteArray(), gzipped.size() / 2), "gzip", 400);
+        postMultipart(multipartBody(content, null, options), "br", 415);
+        postMultipart(multipartBody(content, "br", options), null, 415);
+    }
+
+    @Test
+    public void rejectDecompressionBombs() throws Exception {
+        service.notarizationTool = new PassingNotarizationTool();
+        String options = JsonbBuilder.create().toJson(NotarizationRequestOptions.builder().primaryBundleId("bomb").staple(false).build());
+        // a few kilobytes of zstd, far larger than the decoded size limit of the tests
+        ByteArrayOutputStream bomb = new ByteArrayOutputStream();
+        try (OutputStream out = new ZstdCompressorOutputStream(bomb)) {
+            byte[] zeros = new byte[1024 * 1024];
+            for (int i = 0; i < 64; i++) {
+                out.write(zeros);
+            }
+        }
+        assertTrue(bomb.size() < 64 * 1024, "bomb is " + bomb.size() + " bytes");
+
+        postMultipart(multipartBody("bomb.dmg", bomb.toByteArray(), "zstd", options), null, 413);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GzipCompressorOutputStream(gzipped)) {
+            out.write(multipartBody("bomb.dmg", new byte[64 * 1024 * 1024], null, options));
+        }
+        postMultipart(gzipped.toByteArray(), "gzip", 413);
+
+        // the partial files have been deleted
+        try (Stream<Path> files = Files.list(Paths.get("/tmp/macos-notarization-service/pending-files"))) {
+            assertEquals(List.of(), files.filter(f -> f.getFileName().toString().startsWith("bomb-")).toList());
+        }
+    }
+
+    private double receivedBytes(String encoding) {
+        Counter counter = registry.find("notarization.upload.received").tag("encoding", encoding).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static byte[] multipartBody(byte[] file, String fileEncoding, String options) throws IOException {
+        return multipartBody("pom.xml", file, fileEncoding, options);
+    }
+
+    private static byte[] multipartBody(String filename, byte[] file, String fileEncoding, String options) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + (fileEncoding != null ? "Content-Encoding: " + fileEncoding + "\r\n" : "")
+                + "\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(file);
+        body.write(("\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"options\"\r\n"
+                + "Content-Type: application/json\r\n"
+                + "\r\n"
+                + options
+                + "\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private static ExtractableResponse<Response> postMultipart(byte[] body, String contentEncoding, int expectedStatusCode) {
+        RequestSpecification request = given().header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY).body(body);
+        if (contentEncoding != null) {
+            request = request.header("Content-Encoding", contentEncoding);
+        }
+        return request.post("/macos-notarization-service/notarize").then().statusCode(expectedStatusCode).extract();
+    }
+
+    private static byte[] download(UUID uuid) throws InterruptedException {
+        String downloadUrl = "/macos-notarization-service/%1$s/download".formatted(uuid);
+        for (int i = 0; i < 50 && get(downloadUrl).statusCode() != 200; i++) {
+            Thread.sleep(100);
+        }
+        return get(downloadUrl).then().statusCode(200).extract().asByteArray();
+    }
+
+    @Test
+    public void notifyCallback() throws Exception {
+        service.notarizationTool = new PassingNotarizationTool();
+        CompletableFuture<String> notification = new CompletableFuture<>();
+        HttpServer receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/notarized", exchange -> {
+            notification.complete(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        receiver.start();
+        try {
+            String callbackUrl = "http://localhost:" + receiver.getAddress().getPort() + "/notarized";
+            NotarizationStatusWithUUID submitted = submit(NotarizationRequestOptions.builder().primaryBundleId("callback").staple(false).callbackUrl(callbackUrl).build());
+
+            NotarizationStatusWithUUID notified = JsonbBuilder.create().fromJson(notification.get(10, TimeUnit.SECONDS), NotarizationStatusWithUUID.class);
+            assertEquals(submitted.uuid(), notified.uuid());
+            assertEquals(NotarizationStatus.State.COMPLETE, notified.notarizationStatus().status());
+        } finally {
+            receiver.stop(0);
+        }
+
+        given()
+                .when()
+                .multiPart("file", Paths.get("pom.xml").toFile())
+                .multiPart("options", NotarizationRequestOptions.builder().primaryBundleId("callback").callbackUrl("ftp://localhost/").build(), "application/json")
+                .post("/macos-notarization-service/notarize")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    public void traceRequests() throws InterruptedException {
+        service.notarizationTool = new PassingNotarizationTool();
+        NotarizationStatusWithUUID status = submit(NotarizationRequestOptions.builder().primaryBundleId("tracing").staple(false).build());
+
+        SpanData notarization = null;
+        for (int i = 0; i < 50 && notarization == null; i++) {
+            Thread.sleep(100);
+            List<SpanData> spans = spanExporter.getFinishedSpanItems();
+            notarization =
+                spans.stream()
+                    .filter(s -> status.uuid().toString().equals(s.getAttributes().get(AttributeKey.stringKey("notarization.uuid"))))
+                    .flatMap(server -> child(spans, server, "notarization").stream())
+                    .findFirst()
+                    .orElse(null);
+        }
+        assertNotNull(notarization, "request span has not been exported");
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        SpanData upload = child(spans, notarization, "upload").orElseThrow();
+        assertEquals("UPLOAD_SUCCESSFUL", upload.getAttributes().get(AttributeKey.stringKey("notarization.stage.outcome")));
+        SpanData attempt = child(spans, upload, "upload attempt").orElseThrow();
+        assertTrue(child(spans, attempt, "pwd").isPresent());
+        assertTrue(child(spans, notarization, "infoPolling").isPresent());
+    }
+
+    private static Optional<SpanData> child(List<SpanData> spans, SpanData parent, String name) {
+        return spans.stream()
+                .filter(s -> s.getName().equals(name) && s.getParentSpanId().equals(parent.getSpanId()))
+                .findFirst();
+    }
+
+    private static NotarizationStatusWithUUID submit(NotarizationRequestOptions options) {
+        return given()
+                .when()
+                .multiPart("file", Paths.get("pom.xml").toFile())
+                .multiPart("options", options, "application/json")
+                .post("/macos-notarization-service/notarize")
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .as(NotarizationStatusWithUUID.class);
+    }
+
+    /**
+     * Rejects the containers of aggregated files, and the files named "bad".
+     */
+    static class ContainerRejectingTool implements NotarizationTool {
+        final List<String> uploaded = new CopyOnWriteArrayList<>();
+
+        @Override
+        public NotarizerResult upload(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId,
+                                      Path fileToNotarize, HashCode contentHash, Duration uploadTimeout) {
+            uploaded.add(fileToNotarize.getFileName().toString());
+            return NotarizerResult.builder()
+                    .status(NotarizerResult.Status.UPLOAD_SUCCESSFUL)
+                    .appleRequestUUID(fileToNotarize.getFileName().toString())
+                    .build();
+        }
+
+        @Override
+        public NotarizationInfoResult retrieveInfo(String appleIDUsername, String appleIDPassword, String appleIDTeamID,
+                                                   String appleRequestUUID, Duration pollingTimeout) {
+            boolean rejected = appleRequestUUID.startsWith("aggregated-") || appleRequestUUID.startsWith("bad-");
+            return NotarizationInfoResult.builder()
+                    .status(rejected ? NotarizationInfoResult.Status.NOTARIZATION_FAILED : NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL)
+                    .message(appleRequestUUID)
+                    .build();
+        }
+
+        @Override
+        public String retrieveLog(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String appleRequestUUID, Duration pollingTimeout) {
+            return "";
+        }
+    }
+
+    static class PassingNotarizationTool extends XcrunNotarizationTool {
 
         @Override
         protected List<String> getUploadCommand(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId, Path fileToNotarize) {
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadSchedulerTest {
+
+    private ScheduledExecutorService delayScheduler;
+
+    @BeforeEach
+    public void setup() {
+        assumeTrue(VirtualThreadScheduler.isSupported(), "virtual threads require Java 21+");
+        delayScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (delayScheduler != null) {
+            delayScheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrencyIsBoundedByPermits() throws Exception {
+        VirtualThreadScheduler scheduler = VirtualThreadScheduler.create(delayScheduler, 4).orElseThrow();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(scheduler.schedule(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return Thread.currentThread().toString();
+            }, 0, TimeUnit.MILLISECONDS));
+        }
+
+        for (ScheduledFuture<?> future : futures) {
+            assertTrue(future.get(10, TimeUnit.SECONDS).toString().startsWith("VirtualThread"));
+        }
+        assertEquals(4, maxRunning.get());
+    }
+
+    @Test
+    public void cancelDelayedTask() throws Exception {
+        VirtualThreadScheduler scheduler = VirtualThreadScheduler.create(delayScheduler, 4).orElseThrow();
+        AtomicInteger calls = new AtomicInteger();
+
+        ScheduledFuture<?> future = scheduler.schedule(calls::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+        assertTrue(future.getDelay(TimeUnit.MILLISECONDS) > 0);
+        assertTrue(future.cancel(false));
+        assertThrows(CancellationException.class, future::get);
+
+        Thread.sleep(300);
+        assertEquals(0, calls.get());
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.process;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+public class NativeProcessTest {
+
+    @Test
+    public void captureOutputInMemory() throws Exception {
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of("sh", "-c", "echo out; echo err >&2"));
+        try (NativeProcess.Result result = NativeProcess.startAndWait(processBuilder, Duration.ofSeconds(10), OutputCapture.inMemory(1024))) {
+            assertEquals(0, result.exitValue());
+            assertInstanceOf(ProcessOutput.InMemory.class, result.stdout());
+            assertEquals("out\n", new String(result.stdoutAsStream().readAllBytes()));
+            assertEquals("err\n", new String(result.stderrAsStream().readAllBytes()));
+        }
+    }
+
+    @Test
+    public void spillLargeOutputToDisk() throws Exception {
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of("sh", "-c", "head -c 100000 /dev/zero"));
+        Path spilled;
+        try (NativeProcess.Result result = NativeProcess.startAndWait(processBuilder, Duration.ofSeconds(10), OutputCapture.inMemory(1024))) {
+            ProcessOutput.OnDisk stdout = assertInstanceOf(ProcessOutput.OnDisk.class, result.stdout());
+            spilled = stdout.path();
+            assertEquals(100000, result.stdout().size());
+            assertEquals(100000, result.stdoutAsStream().readAllBytes().length);
+            assertInstanceOf(ProcessOutput.InMemory.class, result.stderr());
+        }
+        assertFalse(Files.exists(spilled));
+    }
+
+    @Test
+    public void captureOutputToFiles() throws Exception {
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of("sh", "-c", "echo out; exit 3"));
+        Path stdout;
+        try (NativeProcess.Result result = NativeProcess.startAndWait(processBuilder, Duration.ofSeconds(10), OutputCapture.toFiles())) {
+            assertEquals(3, result.exitValue());
+            stdout = assertInstanceOf(ProcessOutput.OnDisk.class, result.stdout()).path();
+            assertEquals("out\n", new String(result.stdoutAsStream().readAllBytes()));
+        }
+        assertFalse(Files.exists(stdout));
+    }
+
+    @Test
+    public void timeout() {
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of("sleep", "10"));
+        assertThrows(TimeoutException.class,
+                     () -> NativeProcess.startAndWait(processBuilder, Duration.ofMillis(100), OutputCapture.inMemory(1024)));
+    }
+}
@@ -9,6 +9,7 @@ package org.eclipse.cbi.ws.macos.notarization.xcrun.altool;
 
 import okhttp3.OkHttpClient;
 import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.process.ProcessOutput;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResultBuilder;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
@@ -38,8 +39,8 @@ public class AltoolNotarizerTest {
             NativeProcess.Result.builder()
                 .exitValue(0)
                 .arg0("")
-                .stdout(stdout)
-                .stderr(stderr)
+                .stdout(ProcessOutput.of(stdout))
+                .stderr(ProcessOutput.of(stderr))
                 .build();
 
         NotarizerResult result = tool.analyzeSubmissionResult(r, Path.of("Alfred_5.1.2_2145.dmg"));
@@ -58,8 +59,8 @@ public class AltoolNotarizerTest {
             NativeProcess.Result.builder()
                 .exitValue(176)
                 .arg0("")
-                .stdout(stdout)
-                .stderr(stderr)
+                .stdout(ProcessOutput.of(stdout))
+                .stderr(ProcessOutput.of(stderr))
                 .build();
 
         NotarizerResult result = tool.analyzeSubmissionResult(r, Path.of("Alfred_5.1.2_2145.dmg"));
@@ -78,8 +79,8 @@ public class AltoolNotarizerTest {
             NativeProcess.Result.builder()
                 .exitValue(0)
                 .arg0("")
-                .stdout(stdout)
-                .stderr(stderr)
+                .stdout(ProcessOutput.of(stdout))
+                .stderr(ProcessOutput.of(stderr))
                 .build();
 
         // Consider using a mock HttpClient for retrieving the log
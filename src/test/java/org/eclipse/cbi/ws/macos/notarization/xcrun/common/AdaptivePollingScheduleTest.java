@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptivePollingScheduleTest {
+
+    private static final long MEBIBYTE = 1024 * 1024;
+
+    private final AdaptivePollingSchedule adaptive =
+        new AdaptivePollingSchedule(Duration.ofSeconds(20), Duration.ofSeconds(5), Duration.ofMinutes(2));
+
+    @Test
+    public void defaultDelayWithoutEnoughSamples() {
+        PollingSchedule schedule = adaptive.forArtifact("dmg", 700 * MEBIBYTE);
+        assertEquals(Duration.ofSeconds(20), schedule.nextDelay(Duration.ZERO));
+
+        schedule.completed(Duration.ofMinutes(40));
+        schedule.completed(Duration.ofMinutes(42));
+        assertEquals(Duration.ofSeconds(20), schedule.nextDelay(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    public void denseAroundExpectedCompletion() {
+        PollingSchedule schedule = adaptive.forArtifact("dmg", 700 * MEBIBYTE);
+        for (int i = 0; i < 10; i++) {
+            schedule.completed(Duration.ofMinutes(30 + i));
+        }
+
+        // sparse until the earliest expected completion time
+        assertEquals(Duration.ofMinutes(2), schedule.nextDelay(Duration.ZERO));
+        assertEquals(Duration.ofSeconds(30), schedule.nextDelay(Duration.ofMinutes(29).plusSeconds(30)));
+        // dense until the latest expected completion time
+        assertEquals(Duration.ofSeconds(5), schedule.nextDelay(Duration.ofMinutes(30)));
+        assertEquals(Duration.ofSeconds(5), schedule.nextDelay(Duration.ofMinutes(38)));
+        // back off afterwards
+        assertEquals(Duration.ofSeconds(30), schedule.nextDelay(Duration.ofMinutes(39)));
+        assertEquals(Duration.ofMinutes(2), schedule.nextDelay(Duration.ofMinutes(60)));
+    }
+
+    @Test
+    public void samplesAreKeptPerTypeAndSize() {
+        PollingSchedule largeDmg = adaptive.forArtifact("dmg", 700 * MEBIBYTE);
+        for (int i = 0; i < 10; i++) {
+            largeDmg.completed(Duration.ofMinutes(30));
+        }
+
+        assertEquals(Duration.ofMinutes(2), adaptive.forArtifact("DMG", 600 * MEBIBYTE).nextDelay(Duration.ZERO));
+        assertEquals(Duration.ofSeconds(20), adaptive.forArtifact("dmg", 2 * MEBIBYTE).nextDelay(Duration.ZERO));
+        assertEquals(Duration.ofSeconds(20), adaptive.forArtifact("zip", 700 * MEBIBYTE).nextDelay(Duration.ZERO));
+    }
+
+    @Test
+    public void ignoreCompletionsWithoutSampling() {
+        PollingSchedule schedule = adaptive.forArtifact("dmg", 700 * MEBIBYTE).withoutSampling();
+        for (int i = 0; i < 10; i++) {
+            schedule.completed(Duration.ofSeconds(30));
+        }
+        assertEquals(Duration.ofSeconds(20), schedule.nextDelay(Duration.ZERO));
+    }
+
+    @Test
+    public void persistSamples(@TempDir Path tempDir) throws IOException {
+        Path samplesFile = tempDir.resolve("polling-samples.tsv");
+        AdaptivePollingSchedule persisted =
+            new AdaptivePollingSchedule(Duration.ofSeconds(20), Duration.ofSeconds(5), Duration.ofMinutes(2), samplesFile);
+        for (int i = 0; i < 10; i++) {
+            persisted.forArtifact("dmg", 700 * MEBIBYTE).completed(Duration.ofMinutes(30 + i));
+        }
+        persisted.forArtifact("exe", 2 * MEBIBYTE).completed(Duration.ofMinutes(5));
+        assertTrue(Files.exists(samplesFile));
+
+        AdaptivePollingSchedule restored =
+            new AdaptivePollingSchedule(Duration.ofSeconds(20), Duration.ofSeconds(5), Duration.ofMinutes(2), samplesFile);
+        PollingSchedule schedule = restored.forArtifact("dmg", 700 * MEBIBYTE);
+        assertEquals(Duration.ofMinutes(2), schedule.nextDelay(Duration.ZERO));
+        assertEquals(Duration.ofSeconds(5), schedule.nextDelay(Duration.ofMinutes(38)));
+        assertEquals(Duration.ofSeconds(30), schedule.nextDelay(Duration.ofMinutes(39)));
+        // samples of unknown types are restored as well
+        PollingSchedule unknown = restored.forArtifact("bin", 2 * MEBIBYTE);
+        unknown.completed(Duration.ofMinutes(5));
+        unknown.completed(Duration.ofMinutes(5));
+        assertEquals(Duration.ofMinutes(2), unknown.nextDelay(Duration.ZERO));
+    }
+
+    @Test
+    public void ignoreMalformedSamples(@TempDir Path tempDir) throws IOException {
+        Path samplesFile = Files.writeString(tempDir.resolve("polling-samples.tsv"), "dmg\tfive\t1000\ngarbage\n");
+        AdaptivePollingSchedule restored =
+            new AdaptivePollingSchedule(Duration.ofSeconds(20), Duration.ofSeconds(5), Duration.ofMinutes(2), samplesFile);
+        assertEquals(Duration.ofSeconds(20), restored.forArtifact("dmg", 700 * MEBIBYTE).nextDelay(Duration.ZERO));
+    }
+
+    @Test
+    public void sizeClasses() {
+        assertEquals(-1, AdaptivePollingSchedule.sizeClass(-1));
+        assertEquals(0, AdaptivePollingSchedule.sizeClass(MEBIBYTE - 1));
+        assertEquals(1, AdaptivePollingSchedule.sizeClass(MEBIBYTE));
+        assertEquals(2, AdaptivePollingSchedule.sizeClass(4 * MEBIBYTE));
+        assertEquals(5, AdaptivePollingSchedule.sizeClass(700 * MEBIBYTE));
+        assertEquals(5, AdaptivePollingSchedule.sizeClass(600 * MEBIBYTE));
+    }
+}
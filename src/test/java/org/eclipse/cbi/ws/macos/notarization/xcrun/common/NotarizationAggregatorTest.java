@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationAggregatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ScheduledExecutorService executor;
+    private ScheduledExecutorService stageExecutor;
+    private Scheduler stage;
+    private final List<String> packingThreads = new CopyOnWriteArrayList<>();
+    private final List<Path> uploaded = new CopyOnWriteArrayList<>();
+    private final Map<Path, Map<String, String>> uploadedContents = new ConcurrentHashMap<>();
+    private final Map<Path, Long> uploadedSizes = new ConcurrentHashMap<>();
+
+    private final BiFunction<Path, HashCode, CompletableFuture<NotarizerResult>> uploader = (file, contentHash) -> {
+        packingThreads.add(Thread.currentThread().getName());
+        uploaded.add(file);
+        try {
+            if (!sha256(file).equals(contentHash)) {
+                return CompletableFuture.failedFuture(new AssertionError("Wrong digest uploaded for " + file));
+            }
+            uploadedSizes.put(file, Files.size(file));
+            uploadedContents.put(file, file.getFileName().toString().startsWith("aggregated-") ? entries(file) : Map.of());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(
+                NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_SUCCESSFUL).appleRequestUUID("apple-" + uploaded.size()).build());
+    };
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(2, r -> new Thread(r, "scheduler"));
+        stageExecutor = Executors.newScheduledThreadPool(2, r -> new Thread(r, "upload"));
+        stage = Scheduler.of(stageExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    @Test
+    public void packFilesSubmittedWithinWindow() throws Exception {
+        NotarizationAggregator aggregator = new NotarizationAggregator(executor, stage, tempDir, Duration.ofMillis(200), 1024, 10);
+        NotarizationAggregator.Submission first = add(aggregator, file("cli.zip", "first"));
+        NotarizationAggregator.Submission second = add(aggregator, file("cli.zip", "second"));
+        NotarizationAggregator.Submission third = add(aggregator, file("tool.zip", "third"));
+        assertSame(first, second);
+        assertSame(first, third);
+
+        NotarizerResult result = first.upload().get(5, TimeUnit.SECONDS);
+        assertEquals("apple-1", result.appleRequestUUID());
+        assertEquals(1, uploaded.size());
+        assertEquals(Map.of("000-cli.zip", "first", "001-cli.zip", "second", "002-tool.zip", "third"), uploadedContents.get(uploaded.get(0)));
+        // packed on the upload stage, not on the thread timing the window
+        assertEquals(List.of("upload"), packingThreads);
+        assertFalse(Files.exists(uploaded.get(0)), "container has not been deleted");
+        // the notarization time is sampled by the container
+        assertEquals(uploaded.get(0), first.uploadedFile());
+        assertEquals(uploadedSizes.get(uploaded.get(0)), first.uploadedSize());
+
+        // the info is retrieved once for all the files
+        AtomicInteger polls = new AtomicInteger();
+        NotarizationInfoResult info = NotarizationInfoResult.builder().status(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL).build();
+        for (NotarizationAggregator.Submission submission : List.of(first, second, third)) {
+            assertSame(info, submission.info(() -> {
+                polls.incrementAndGet();
+                return CompletableFuture.completedFuture(info);
+            }).get());
+        }
+        assertEquals(1, polls.get());
+
+        // a new window starts with the next file
+        NotarizationAggregator.Submission next = add(aggregator, file("next.zip", "next"));
+        assertNotSame(first, next);
+        assertEquals("apple-2", next.upload().get(5, TimeUnit.SECONDS).appleRequestUUID());
+    }
+
+    @Test
+    public void submitAsSoonAsFull() throws Exception {
+        NotarizationAggregator aggregator = new NotarizationAggregator(executor, stage, tempDir, Duration.ofHours(1), 1024, 2);
+        NotarizationAggregator.Submission first = add(aggregator, file("a.zip", "a"));
+        NotarizationAggregator.Submission second = add(aggregator, file("b.zip", "b"));
+        assertSame(first, second);
+        first.upload().get(5, TimeUnit.SECONDS);
+        assertEquals(2, uploadedContents.get(uploaded.get(0)).size());
+    }
+
+    @Test
+    public void uploadSingleFileAsIs() throws Exception {
+        NotarizationAggregator aggregator = new NotarizationAggregator(executor, stage, tempDir, Duration.ofMillis(50), 1024, 10);
+        Path file = file("alone.zip", "alone");
+        NotarizationAggregator.Submission submission = add(aggregator, file);
+        submission.upload().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(file), uploaded);
+        assertEquals(file, submission.uploadedFile());
+        assertEquals(5, submission.uploadedSize());
+    }
+
+    @Test
+    public void acceptOnlySmallFiles() throws IOException {
+        NotarizationAggregator aggregator = new NotarizationAggregator(executor, stage, tempDir, Duration.ofMillis(50), 8, 10);
+        assertTrue(aggregator.accepts(file("small.zip", "small")));
+        assertFalse(aggregator.accepts(file("large.zip", "larger than 8 bytes")));
+        assertFalse(aggregator.accepts(tempDir.resolve("missing.zip")));
+    }
+
+    private Path file(String name, String content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "submitted-", "-" + name);
+        Files.writeString(file, content);
+        // named as submitted
+        Path renamed = Files.createDirectories(tempDir.resolve(content)).resolve(name);
+        return Files.move(file, renamed);
+    }
+
+    private NotarizationAggregator.Submission add(NotarizationAggregator aggregator, Path file) throws IOException {
+        return aggregator.add(file, sha256(file), uploader);
+    }
+
+    private static HashCode sha256(Path file) throws IOException {
+        return MoreFiles.asByteSource(file).hash(Hashing.sha256());
+    }
+
+    private static Map<String, String> entries(Path zip) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipFile zipFile = ZipFile.builder().setPath(zip).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return entries;
+    }
+}
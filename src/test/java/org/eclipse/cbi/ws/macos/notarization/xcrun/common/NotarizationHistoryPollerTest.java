@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import com.google.common.hash.HashCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationHistoryPollerTest {
+
+    private ScheduledExecutorService scheduler;
+
+    private ScheduledExecutorService stageExecutor;
+
+    private Scheduler stage;
+
+    @BeforeEach
+    public void setup() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "scheduler"));
+        stageExecutor = Executors.newScheduledThreadPool(2, r -> new Thread(r, "infoPolling"));
+        stage = Scheduler.of(stageExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+        stageExecutor.shutdownNow();
+    }
+
+    @Test
+    public void retrieveInfoOnlyForChangedRequests() throws Exception {
+        HistoryTool tool = new HistoryTool();
+        tool.history.put("accepted", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+        tool.history.put("in-progress", NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS);
+
+        NotarizationHistoryPoller poller = poller();
+        CompletableFuture<NotarizationInfoResult> accepted = poller.poll(info(tool, "accepted"), Duration.ofHours(1));
+        CompletableFuture<NotarizationInfoResult> inProgress = poller.poll(info(tool, "in-progress"), Duration.ofHours(1));
+
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, accepted.get(5, TimeUnit.SECONDS).status());
+        assertFalse(inProgress.isDone());
+        assertEquals(List.of("accepted"), tool.infoRequests);
+
+        tool.history.put("in-progress", NotarizationInfoResult.Status.NOTARIZATION_FAILED);
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_FAILED, inProgress.get(5, TimeUnit.SECONDS).status());
+        assertEquals(List.of("accepted", "in-progress"), tool.infoRequests);
+    }
+
+    @Test
+    public void stopAfterMaxTotalDuration() throws Exception {
+        HistoryTool tool = new HistoryTool();
+        tool.history.put("in-progress", NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS);
+
+        NotarizationHistoryPoller poller = poller();
+        NotarizationInfoResult result = poller.poll(info(tool, "in-progress"), Duration.ofMillis(50)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS, result.status());
+        assertTrue(tool.infoRequests.isEmpty());
+    }
+
+    @Test
+    public void retrieveInfoOnStageWhenHistoryFails() throws Exception {
+        HistoryTool tool = new HistoryTool();
+        tool.historyFails = true;
+        tool.history.put("accepted", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+        tool.history.put("rejected", NotarizationInfoResult.Status.NOTARIZATION_FAILED);
+
+        NotarizationHistoryPoller poller = poller();
+        CompletableFuture<NotarizationInfoResult> accepted = poller.poll(info(tool, "accepted"), Duration.ofHours(1));
+        CompletableFuture<NotarizationInfoResult> rejected = poller.poll(info(tool, "rejected"), Duration.ofHours(1));
+
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, accepted.get(5, TimeUnit.SECONDS).status());
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_FAILED, rejected.get(5, TimeUnit.SECONDS).status());
+        // the processes do not hold the thread timing the polls
+        assertFalse(tool.threads.isEmpty());
+        assertTrue(tool.threads.stream().allMatch("infoPolling"::equals), tool.threads.toString());
+    }
+
+    @Test
+    public void retryHistoryWithBackOffWhenItFails() throws Exception {
+        HistoryTool tool = new HistoryTool();
+        tool.remainingHistoryFailures.set(2);
+        tool.history.put("accepted", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+        tool.history.put("in-progress", NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS);
+
+        NotarizationHistoryPoller poller = poller();
+        CompletableFuture<NotarizationInfoResult> accepted = poller.poll(info(tool, "accepted"), Duration.ofHours(1));
+        CompletableFuture<NotarizationInfoResult> inProgress = poller.poll(info(tool, "in-progress"), Duration.ofHours(1));
+
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, accepted.get(5, TimeUnit.SECONDS).status());
+        assertFalse(inProgress.isDone());
+        // the failures of the history did not turn into info calls for every request
+        assertEquals(List.of("accepted"), tool.infoRequests);
+        assertTrue(tool.historyCalls.get() >= 3, "history calls: " + tool.historyCalls.get());
+    }
+
+    @Test
+    public void pollOnlyDueRequests() throws Exception {
+        HistoryTool tool = new HistoryTool();
+        tool.history.put("due", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+        tool.history.put("later", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+
+        NotarizationHistoryPoller poller = poller();
+        CompletableFuture<NotarizationInfoResult> due = poller.poll(info(tool, "due"), Duration.ofHours(1));
+        CompletableFuture<NotarizationInfoResult> later =
+            poller.poll(NotarizationInfoBuilder.builder(info(tool, "later")).pollingSchedule(PollingSchedule.fixed(Duration.ofHours(1))).build(), Duration.ofHours(2));
+
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, due.get(5, TimeUnit.SECONDS).status());
+        assertFalse(later.isDone());
+        assertEquals(List.of("due"), tool.infoRequests);
+        later.cancel(false);
+    }
+
+    @Test
+    public void countStatusPolls() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatusPolls.setMeterRegistry(registry);
+        try {
+            HistoryTool tool = new HistoryTool();
+            tool.history.put("accepted", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL);
+
+            poller().poll(info(tool, "accepted"), Duration.ofHours(1)).get(5, TimeUnit.SECONDS);
+
+            assertEquals(tool.historyCalls.get(), registry.counter("notarization.status.polls", "method", "history").count());
+            assertEquals(1, registry.counter("notarization.status.polls", "method", "info").count());
+        } finally {
+            StatusPolls.setMeterRegistry(Metrics.globalRegistry);
+        }
+    }
+
+    private NotarizationHistoryPoller poller() {
+        return new NotarizationHistoryPoller(scheduler, stage, Duration.ofMillis(10), 3, Duration.ofMillis(10), Duration.ofMillis(100));
+    }
+
+    private static NotarizationInfo info(NotarizationTool tool, String appleRequestUUID) {
+        return NotarizationInfo.builder()
+                .appleIDUsername("user")
+                .appleIDPassword("password")
+                .appleIDTeamID("team")
+                .appleRequestUUID(appleRequestUUID)
+                .pollingTimeout(Duration.ofSeconds(1))
+                .tool(tool)
+                .build();
+    }
+
+    private static class HistoryTool implements NotarizationHistoryTool {
+        final Map<String, NotarizationInfoResult.Status> history = new ConcurrentHashMap<>();
+        final List<String> infoRequests = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final AtomicInteger historyCalls = new AtomicInteger();
+        final AtomicInteger remainingHistoryFailures = new AtomicInteger();
+        volatile boolean historyFails;
+
+        @Override
+        public Map<String, NotarizationInfoResult.Status> retrieveHistory(String appleIDUsername, String appleIDPassword, String appleIDTeamID, Duration pollingTimeout) throws IOException {
+            threads.add(Thread.currentThread().getName());
+            historyCalls.incrementAndGet();
+            if (historyFails || remainingHistoryFailures.getAndDecrement() > 0) {
+                throw new IOException("history is not available");
+            }
+            return Map.copyOf(history);
+        }
+
+        @Override
+        public NotarizationInfoResult retrieveInfo(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String appleRequestUUID, Duration pollingTimeout) {
+            threads.add(Thread.currentThread().getName());
+            infoRequests.add(appleRequestUUID);
+            return NotarizationInfoResult.builder().status(history.get(appleRequestUUID)).message(appleRequestUUID).build();
+        }
+
+        @Override
+        public NotarizerResult upload(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId, Path fileToNotarize, HashCode contentHash, Duration uploadTimeout) {
+            return NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_SUCCESSFUL).appleRequestUUID(fileToNotarize.toString()).build();
+        }
+
+        @Override
+        public String retrieveLog(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String appleRequestUUID, Duration pollingTimeout) {
+            return "";
+        }
+    }
+}
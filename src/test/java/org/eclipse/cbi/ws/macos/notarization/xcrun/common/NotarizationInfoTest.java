@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import com.google.common.hash.HashCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotarizationInfoTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    public void setup() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void pollingDoesNotHoldThreadsBetweenPolls() throws Exception {
+        InProgressTool tool = new InProgressTool(3);
+
+        // far more requests than threads, each waiting between polls
+        List<CompletableFuture<NotarizationInfoResult>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(NotarizationInfo.builder()
+                    .appleIDUsername("user")
+                    .appleIDPassword("password")
+                    .appleIDTeamID("team")
+                    .appleRequestUUID("request-" + i)
+                    .pollingTimeout(Duration.ofSeconds(1))
+                    .tool(tool)
+                    .build()
+                    .retrieveInfoFailsafe(Scheduler.of(scheduler), Duration.ofMinutes(1), Duration.ofMillis(50), 3,
+                                          Duration.ofMillis(10), Duration.ofMillis(100)));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<NotarizationInfoResult> result : results) {
+            assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, result.get().status());
+        }
+        assertEquals(200 * 3, tool.polls.get());
+    }
+
+    private static class InProgressTool implements NotarizationTool {
+        final AtomicInteger polls = new AtomicInteger();
+        final Map<String, Integer> pollsByRequest = new ConcurrentHashMap<>();
+        final int pollsUntilCompleted;
+
+        InProgressTool(int pollsUntilCompleted) {
+            this.pollsUntilCompleted = pollsUntilCompleted;
+        }
+
+        @Override
+        public NotarizationInfoResult retrieveInfo(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String appleRequestUUID, Duration pollingTimeout) {
+            polls.incrementAndGet();
+            int count = pollsByRequest.merge(appleRequestUUID, 1, Integer::sum);
+            return NotarizationInfoResult.builder()
+                    .status(count < pollsUntilCompleted ? NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS
+                                                        : NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL)
+                    .message(appleRequestUUID)
+                    .build();
+        }
+
+        @Override
+        public NotarizerResult upload(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String primaryBundleId, Path fileToNotarize, HashCode contentHash, Duration uploadTimeout) {
+            return NotarizerResult.builder().status(NotarizerResult.Status.UPLOAD_SUCCESSFUL).appleRequestUUID(fileToNotarize.toString()).build();
+        }
+
+        @Override
+        public String retrieveLog(String appleIDUsername, String appleIDPassword, String appleIDTeamID, String appleRequestUUID, Duration pollingTimeout) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PListDictTest {
+
+    private static final String FAILED_INFO = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <!DOCTYPE plist PUBLIC "-//Apple//DTD PLIST 1.0//EN" "http://www.apple.com/DTDs/PropertyList-1.0.dtd">
+        <plist version="1.0">
+        <dict>
+        	<key>product-errors</key>
+        	<array>
+        		<dict>
+        			<key>code</key>
+        			<integer>1519</integer>
+        			<key>message</key>
+        			<string>Could not find the RequestUUID &amp; its logs.</string>
+        			<key>userInfo</key>
+        			<dict>
+        				<key>status</key>
+        				<string>nested</string>
+        			</dict>
+        		</dict>
+        	</array>
+        	<key>archived</key>
+        	<true/>
+        	<key>status</key>
+        	<string>Invalid</string>
+        </dict>
+        </plist>
+        """;
+
+    @Test
+    public void parseAllKeys() throws IOException, SAXException {
+        PListDict plist = PListDict.fromXML(notarytoolOutput("history-success.log"));
+
+        assertEquals("Successfully received submission history.", plist.get("message"));
+        assertEquals(3, ((List<?>) plist.get("history")).size());
+        assertEquals(Map.of("a518bb0a-fdaa-4f73-aa09-c7a9b699ac59", "In Progress",
+                            "ac9a4320-49c8-453c-82a3-996d83bd20f5", "Accepted",
+                            "4c6ee1a8-0b54-4d22-8a49-0e1f7b21a39d", "Invalid"),
+                     plist.submissionStatusesFromHistory());
+    }
+
+    @Test
+    public void parseSelectedKeys() throws IOException, SAXException {
+        PListDict plist = PListDict.fromXML(notarytoolOutput("info-in-progress.log"), Set.of("id", "status"));
+
+        assertEquals(Map.of("id", "70c0e06a-a81a-4b19-b4bb-9bce92023410", "status", "In Progress"), plist);
+    }
+
+    @Test
+    public void skipNestedValuesOfUnselectedKeys() throws IOException, SAXException {
+        PListDict plist = PListDict.fromXML(xml(FAILED_INFO), Set.of("status", "product-errors"));
+
+        assertEquals(Set.of("status", "product-errors"), plist.keySet());
+        assertEquals("Invalid", plist.get("status"));
+        assertEquals(OptionalInt.of(1519), plist.firstProductErrorCode());
+        assertEquals("Could not find the RequestUUID & its logs.", plist.messageFromFirstProductError().orElseThrow());
+
+        assertEquals(Map.of("archived", "true"), PListDict.fromXML(xml(FAILED_INFO), Set.of("archived")));
+    }
+
+    @Test
+    public void reuseParserAfterFailure() throws IOException, SAXException {
+        assertThrows(SAXException.class, () -> PListDict.fromXML(xml("<plist><dict><key>id</key>")));
+
+        PListDict plist = PListDict.fromXML(notarytoolOutput("submission-success.log"));
+
+        assertEquals("ac9a4320-49c8-453c-82a3-996d83bd20f5", plist.get("id"));
+        assertEquals("Successfully uploaded file", plist.get("message"));
+    }
+
+    @Test
+    public void shareBoundedPoolOfParsersAcrossThreads() throws Exception {
+        List<Future<PListDict>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> PListDict.fromXML(notarytoolOutput("submission-success.log"), Set.of("id"))));
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        for (Future<PListDict> result : results) {
+            assertEquals("ac9a4320-49c8-453c-82a3-996d83bd20f5", result.get().get("id"));
+        }
+        int pooled = PListDict.pooledParsers();
+        assertTrue(pooled >= 1 && pooled <= 8, "pooled parsers: " + pooled);
+    }
+
+    private static InputStream notarytoolOutput(String name) {
+        return PListDictTest.class.getResourceAsStream("/org/eclipse/cbi/ws/macos/notarization/xcrun/notarytool/" + name);
+    }
+
+    private static InputStream xml(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.common;
+
+import net.jodah.failsafe.util.concurrent.Scheduler;
+import org.eclipse.cbi.ws.macos.notarization.Bulkhead;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaplerTest {
+
+    @TempDir
+    Path folder;
+
+    private ScheduledExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newScheduledThreadPool(8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void findNestedBundlesDeepestFirst() throws IOException {
+        createBundles();
+
+        List<List<Path>> bundles = Stapler.findBundles(folder);
+
+        assertEquals(List.of(Set.of("A.app/Contents/PlugIns/C.plugin/Contents/Frameworks/D.framework"),
+                             Set.of("A.app/Contents/Frameworks/B.framework", "A.app/Contents/PlugIns/C.plugin"),
+                             Set.of("A.app", "E.app", "F.framework")),
+                     bundles.stream().map(this::relative).toList());
+    }
+
+    @Test
+    public void stapleBundlesConcurrentlyAndRetry() throws IOException {
+        createBundles();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> stapled = new CopyOnWriteArrayList<>();
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        StaplerResult result = stapler(stage(2), 2).stapleBundles(folder, Stapler.findBundles(folder), bundle -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+                String name = bundle.getFileName().toString();
+                if (attempts.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet() == 1 && name.equals("E.app")) {
+                    return new SimpleStaplerResult(StaplerResult.Status.ERROR, "transient failure");
+                }
+                stapled.add(name);
+                return new SimpleStaplerResult(StaplerResult.Status.SUCCESS, "stapled");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertEquals(StaplerResult.Status.SUCCESS, result.status(), result.message());
+        assertTrue(result.message().contains("A.app/Contents/PlugIns/C.plugin: stapled"), result.message());
+        assertEquals(2, maxRunning.get());
+        assertEquals(2, attempts.get("E.app").get());
+        assertEquals("D.framework", stapled.get(0));
+        assertTrue(stapled.indexOf("C.plugin") < stapled.indexOf("A.app"));
+        assertTrue(stapled.indexOf("B.framework") < stapled.indexOf("A.app"));
+    }
+
+    @Test
+    public void shareStageBetweenZipFiles() throws IOException {
+        createBundles();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Stapler stapler = stapler(stage(2), 1);
+        List<List<Path>> bundles = Stapler.findBundles(folder);
+
+        List<CompletableFuture<StaplerResult>> zips = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            zips.add(CompletableFuture.supplyAsync(() -> stapler.stapleBundles(folder, bundles, bundle -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                    return new SimpleStaplerResult(StaplerResult.Status.SUCCESS, "stapled");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+            })));
+        }
+
+        zips.forEach(zip -> assertEquals(StaplerResult.Status.SUCCESS, zip.join().status()));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void reportFailedBundles() throws IOException {
+        createBundles();
+
+        StaplerResult result = stapler(stage(4), 1).stapleBundles(folder, Stapler.findBundles(folder), bundle -> {
+            if (bundle.endsWith("B.framework")) {
+                throw new IOException("cannot staple");
+            }
+            return new SimpleStaplerResult(StaplerResult.Status.SUCCESS, "stapled");
+        });
+
+        assertEquals(StaplerResult.Status.ERROR, result.status());
+        assertTrue(result.message().contains("A.app/Contents/Frameworks/B.framework: cannot staple"), result.message());
+        assertTrue(result.message().contains("E.app: stapled"), result.message());
+    }
+
+    private Bulkhead stage(int maxConcurrency) {
+        return new Bulkhead("staplingBundles", Scheduler.of(executor), maxConcurrency);
+    }
+
+    private static Stapler stapler(Scheduler bundleStage, int bundleMaxAttempts) {
+        return Stapler.builder()
+            .staplingTimeout(Duration.ofSeconds(10))
+            .bundleStage(bundleStage)
+            .bundleMaxAttempts(bundleMaxAttempts)
+            .build();
+    }
+
+    private void createBundles() throws IOException {
+        Files.createDirectories(folder.resolve("A.app/Contents/Frameworks/B.framework"));
+        Files.createDirectories(folder.resolve("A.app/Contents/PlugIns/C.plugin/Contents/Frameworks/D.framework"));
+        Files.createDirectories(folder.resolve("E.app/Contents/MacOS"));
+        Files.createDirectories(folder.resolve("F.framework"));
+        Files.createDirectories(folder.resolve("docs"));
+        Files.createSymbolicLink(folder.resolve("G.app"), folder.resolve("E.app"));
+    }
+
+    private Set<String> relative(List<Path> bundles) {
+        Set<String> relative = new HashSet<>();
+        bundles.forEach(bundle -> relative.add(folder.relativize(bundle).toString()));
+        return relative;
+    }
+}
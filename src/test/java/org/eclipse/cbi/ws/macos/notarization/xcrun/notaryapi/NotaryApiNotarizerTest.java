@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.xcrun.notaryapi;
+
+import com.google.common.hash.HashCode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
+import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.*;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the notarizer against a local stand-in of both the Notary API and the object store.
+ */
+public class NotaryApiNotarizerTest {
+
+    private static final int PART_SIZE = 1024 * 1024;
+    private static final Pattern PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber><ETag>&quot;(\\w+)&quot;</ETag>");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private KeyPair keyPair;
+    private NotaryApiNotarizer notarizer;
+
+    private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+    private final Map<String, byte[]> parts = new ConcurrentHashMap<>();
+    private final AtomicInteger runningParts = new AtomicInteger();
+    private final AtomicInteger maxRunningParts = new AtomicInteger();
+    private volatile int submissionResponseCode = 200;
+    private volatile String submissionStatus = "In Progress";
+    private volatile String submittedSha256;
+    private volatile byte[] object;
+    private volatile int failingPart;
+    private volatile boolean aborted;
+    private ObjectStoreUploader uploader;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        keyPair = generator.generateKeyPair();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/notary/v2/", this::handleApi);
+        server.createContext("/notary-bucket/", this::handleObjectStore);
+        server.createContext("/logs/", exchange -> {
+            assertNull(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, 200, "{\"status\": \"" + submissionStatus + "\"}");
+        });
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        OkHttpClient httpClient = new OkHttpClient();
+        notarizer = new NotaryApiNotarizer(httpClient,
+                                           HttpUrl.get(baseUrl + "/notary/v2"),
+                                           new NotaryApiTokenProvider("issuer", "KEY123", keyPair.getPrivate()),
+                                           uploader = new ObjectStoreUploader(httpClient, HttpUrl.get(baseUrl), "us-west-2", PART_SIZE, 2, 64 * 1024));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void uploadLargeFileInParallelParts() throws Exception {
+        byte[] content = new byte[5 * PART_SIZE / 2];
+        new Random(42).nextBytes(content);
+        Path file = Files.write(tempDir.resolve("app.zip"), content);
+        // the digest computed when the file was received is submitted as is
+        HashCode contentHash = HashCode.fromBytes(MessageDigest.getInstance("SHA-256").digest(content));
+
+        NotarizerResult result = notarizer.upload("", "", "", "bundle", file, contentHash, Duration.ofSeconds(30));
+
+        assertEquals(NotarizerResult.Status.UPLOAD_SUCCESSFUL, result.status());
+        assertEquals("submission-1", result.appleRequestUUID());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), submittedSha256);
+        assertArrayEquals(content, object);
+        assertEquals(3, parts.size());
+        assertTrue(maxRunningParts.get() <= 2);
+    }
+
+    @Test
+    public void abortMultipartUploadWhenPartFails() throws Exception {
+        failingPart = 1;
+        byte[] content = new byte[6 * PART_SIZE];
+        Path file = Files.write(tempDir.resolve("app.zip"), content);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                                            () -> notarizer.upload("", "", "", "bundle", file, null, Duration.ofSeconds(30)));
+
+        assertTrue(e.getCause().getMessage().contains("Object store returned 500"), e.getCause().getMessage());
+        assertTrue(aborted);
+        assertNull(object);
+        // no more parts are started once one has failed
+        assertTrue(parts.size() < 5, parts.keySet().toString());
+    }
+
+    @Test
+    public void scalePartTimeoutWithPartSize() {
+        assertEquals(Duration.ofSeconds(30), uploader.partTimeout(0));
+        assertEquals(Duration.ofSeconds(30 + 256), uploader.partTimeout(16 * 1024 * 1024));
+    }
+
+    @Test
+    public void uploadSmallFileAtOnce() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("app.zip"), "small");
+
+        NotarizerResult result = notarizer.upload("", "", "", "bundle", file, null, Duration.ofSeconds(30));
+
+        assertEquals(NotarizerResult.Status.UPLOAD_SUCCESSFUL, result.status());
+        // hashed when no digest was given
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("small".getBytes(StandardCharsets.UTF_8))), submittedSha256);
+        assertEquals("small", new String(object, StandardCharsets.UTF_8));
+        assertTrue(parts.isEmpty());
+    }
+
+    @Test
+    public void rejectedSubmission() throws Exception {
+        submissionResponseCode = 403;
+        Path file = Files.writeString(tempDir.resolve("app.zip"), "small");
+
+        NotarizerResult result = notarizer.upload("", "", "", "bundle", file, null, Duration.ofSeconds(30));
+
+        assertEquals(NotarizerResult.Status.UPLOAD_FAILED, result.status());
+        assertTrue(result.message().contains("The key is not allowed to submit"), result.message());
+        assertNull(object);
+    }
+
+    @Test
+    public void retrieveInfoReusesToken() throws Exception {
+        NotarizationInfoResult inProgress = notarizer.retrieveInfo("", "", "", "submission-1", Duration.ofSeconds(10));
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS, inProgress.status());
+        assertNull(inProgress.notarizationLog());
+
+        submissionStatus = "Invalid";
+        NotarizationInfoResult failed = notarizer.retrieveInfo("", "", "", "submission-1", Duration.ofSeconds(10));
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_FAILED, failed.status());
+        assertEquals("{\"status\": \"Invalid\"}", failed.notarizationLog());
+
+        submissionStatus = "Accepted";
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL,
+                     notarizer.retrieveInfo("", "", "", "submission-1", Duration.ofSeconds(10)).status());
+
+        assertEquals(Map.of("submission-1", NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL,
+                            "submission-0", NotarizationInfoResult.Status.NOTARIZATION_FAILED),
+                     notarizer.retrieveHistory("", "", "", Duration.ofSeconds(10)));
+
+        assertEquals(1, tokens.size());
+    }
+
+    private void handleApi(HttpExchange exchange) throws IOException {
+        String token = exchange.getRequestHeaders().getFirst("Authorization").substring("Bearer ".length());
+        if (!verify(token)) {
+            respond(exchange, 401, "");
+            return;
+        }
+        tokens.add(token);
+
+        String path = exchange.getRequestURI().getPath().substring("/notary/v2".length());
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        switch (exchange.getRequestMethod() + " " + path) {
+            case "POST /submissions" -> {
+                JsonObject request = Json.createReader(new StringReader(body(exchange))).readObject();
+                if (submissionResponseCode != 200) {
+                    respond(exchange, submissionResponseCode, "{\"errors\": [{\"status\": \"403\", \"detail\": \"The key is not allowed to submit\"}]}");
+                    return;
+                }
+                submittedSha256 = request.getString("sha256");
+                respond(exchange, 200, """
+                    {"data": {"id": "submission-1", "type": "submissions", "attributes": {
+                      "awsAccessKeyId": "AKID", "awsSecretAccessKey": "secret", "awsSessionToken": "session",
+                      "bucket": "notary-bucket", "object": "prefix/app.zip"}}}
+                    """);
+            }
+            case "GET /submissions/submission-1" ->
+                respond(exchange, 200, "{\"data\": {\"id\": \"submission-1\", \"attributes\": {\"status\": \"" + submissionStatus + "\"}}}");
+            case "GET /submissions/submission-1/logs" ->
+                respond(exchange, 200, "{\"data\": {\"id\": \"submission-1\", \"attributes\": {\"developerLogUrl\": \"" + baseUrl + "/logs/submission-1\"}}}");
+            case "GET /submissions" -> respond(exchange, 200, """
+                {"data": [
+                  {"id": "submission-1", "attributes": {"status": "%s"}},
+                  {"id": "submission-0", "attributes": {"status": "Rejected"}}]}
+                """.formatted(submissionStatus));
+            default -> respond(exchange, 404, "");
+        }
+    }
+
+    private void handleObjectStore(HttpExchange exchange) throws IOException {
+        assertTrue(exchange.getRequestHeaders().getFirst("Authorization").startsWith("AWS4-HMAC-SHA256 Credential=AKID/"));
+        assertEquals("session", exchange.getRequestHeaders().getFirst("x-amz-security-token"));
+        assertEquals("/notary-bucket/prefix/app.zip", exchange.getRequestURI().getPath());
+
+        String query = Objects.requireNonNullElse(exchange.getRequestURI().getQuery(), "");
+        if (exchange.getRequestMethod().equals("POST") && query.equals("uploads")) {
+            respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>");
+        } else if (exchange.getRequestMethod().equals("PUT") && query.startsWith("partNumber=")) {
+            maxRunningParts.accumulateAndGet(runningParts.incrementAndGet(), Math::max);
+            try {
+                String partNumber = query.substring("partNumber=".length(), query.indexOf('&'));
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                if (Integer.parseInt(partNumber) == failingPart) {
+                    respond(exchange, 500, "<Error><Code>InternalError</Code></Error>");
+                    return;
+                }
+                parts.put("etag" + partNumber, body);
+                exchange.getResponseHeaders().add("ETag", "\"etag" + partNumber + "\"");
+                respond(exchange, 200, "");
+            } finally {
+                runningParts.decrementAndGet();
+            }
+        } else if (exchange.getRequestMethod().equals("POST") && query.equals("uploadId=upload-1")) {
+            ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+            Matcher matcher = PART.matcher(body(exchange));
+            while (matcher.find()) {
+                assembled.write(parts.get(matcher.group(2)));
+            }
+            object = assembled.toByteArray();
+            respond(exchange, 200, "<CompleteMultipartUploadResult/>");
+        } else if (exchange.getRequestMethod().equals("DELETE") && query.equals("uploadId=upload-1")) {
+            aborted = true;
+            respond(exchange, 204, "");
+        } else if (exchange.getRequestMethod().equals("PUT") && query.isEmpty()) {
+            object = exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "");
+        } else {
+            respond(exchange, 400, "");
+        }
+    }
+
+    private boolean verify(String token) {
+        String[] parts = token.split("\\.");
+        try {
+            JsonObject header = Json.createReader(new StringReader(new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8))).readObject();
+            assertEquals("KEY123", header.getString("kid"));
+            Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+            signature.initVerify(keyPair.getPublic());
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            return signature.verify(Base64.getUrlDecoder().decode(parts[2]));
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+}
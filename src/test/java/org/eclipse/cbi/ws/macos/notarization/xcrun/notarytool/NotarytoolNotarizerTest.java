@@ -8,6 +8,7 @@
 package org.eclipse.cbi.ws.macos.notarization.xcrun.notarytool;
 
 import org.eclipse.cbi.ws.macos.notarization.process.NativeProcess;
+import org.eclipse.cbi.ws.macos.notarization.process.ProcessOutput;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResult;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizationInfoResultBuilder;
 import org.eclipse.cbi.ws.macos.notarization.xcrun.common.NotarizerResult;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -37,8 +39,8 @@ public class NotarytoolNotarizerTest {
             NativeProcess.Result.builder()
                 .exitValue(0)
                 .arg0("")
-                .stdout(stdout)
-                .stderr(stderr)
+                .stdout(ProcessOutput.of(stdout))
+                .stderr(ProcessOutput.of(stderr))
                 .build();
 
         NotarizerResult result = tool.analyzeSubmissionResult(r, Path.of("SuperDuper.dmg"));
@@ -57,8 +59,8 @@ public class NotarytoolNotarizerTest {
                 NativeProcess.Result.builder()
                         .exitValue(0)
                         .arg0("")
-                        .stdout(stdout)
-                        .stderr(stderr)
+                        .stdout(ProcessOutput.of(stdout))
+                        .stderr(ProcessOutput.of(stderr))
                         .build();
 
         NotarizerResult result = tool.analyzeSubmissionResult(r, Path.of("SuperDuper.dmg"));
@@ -77,8 +79,8 @@ public class NotarytoolNotarizerTest {
             NativeProcess.Result.builder()
                 .exitValue(0)
                 .arg0("")
-                .stdout(stdout)
-                .stderr(stderr)
+                .stdout(ProcessOutput.of(stdout))
+                .stderr(ProcessOutput.of(stderr))
                 .build();
 
         NotarizationInfoResultBuilder resultBuilder = NotarizationInfoResult.builder();
@@ -99,8 +101,8 @@ public class NotarytoolNotarizerTest {
                 NativeProcess.Result.builder()
                         .exitValue(0)
                         .arg0("")
-                        .stdout(stdout)
-                        .stderr(stderr)
+                        .stdout(ProcessOutput.of(stdout))
+                        .stderr(ProcessOutput.of(stderr))
                         .build();
 
         NotarizationInfoResultBuilder resultBuilder = NotarizationInfoResult.builder();
@@ -111,4 +113,25 @@ public class NotarytoolNotarizerTest {
         assertEquals("Notarization status: Successfully received submission info", result.message());
         assertNull(result.notarizationLog());
     }
+
+    @Test
+    public void analyzeHistory() throws ExecutionException {
+        Path stdout = Path.of(this.getClass().getResource("history-success.log").getPath());
+        Path stderr = Path.of("non-existing");
+
+        NativeProcess.Result r =
+                NativeProcess.Result.builder()
+                        .exitValue(0)
+                        .arg0("")
+                        .stdout(ProcessOutput.of(stdout))
+                        .stderr(ProcessOutput.of(stderr))
+                        .build();
+
+        Map<String, NotarizationInfoResult.Status> history = tool.analyzeHistoryResult(r);
+
+        assertEquals(3, history.size());
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_IN_PROGRESS, history.get("a518bb0a-fdaa-4f73-aa09-c7a9b699ac59"));
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_SUCCESSFUL, history.get("ac9a4320-49c8-453c-82a3-996d83bd20f5"));
+        assertEquals(NotarizationInfoResult.Status.NOTARIZATION_FAILED, history.get("4c6ee1a8-0b54-4d22-8a49-0e1f7b21a39d"));
+    }
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockDeflaterTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void producesSingleDeflateStream() throws IOException {
+        for (int size : new int[] {0, 1000, BlockDeflater.BLOCK_SIZE, 7 * BlockDeflater.BLOCK_SIZE / 2}) {
+            byte[] content = content(size);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+            BlockDeflater.Result result = new BlockDeflater(executor, 4).deflate(new ByteArrayInputStream(content), compressed);
+
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            assertEquals(size, result.size());
+            assertEquals(compressed.size(), result.compressedSize());
+            assertEquals(crc.getValue(), result.crc());
+            try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed.toByteArray()), new Inflater(true))) {
+                assertArrayEquals(content, in.readAllBytes(), "size " + size);
+            }
+        }
+    }
+
+    private static byte[] content(int size) {
+        // half random, half repeated, so that blocks reference the previous ones
+        byte[] content = new byte[size];
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            content[i] = i % 2048 < 1024 ? (byte) random.nextInt() : content[i % 1024];
+        }
+        return content;
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ZipExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void rejectFileWrittenThroughLink() throws IOException {
+        Path outside = Files.createDirectories(tempDir.resolve("outside"));
+        Path zip = tempDir.resolve("slip.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            addLink(out, "a", outside.toString());
+            addFile(out, "a/x", "escaped");
+        }
+
+        assertThrows(IOException.class, () -> ZipExtractor.extract(zip, tempDir.resolve("extracted"), 4));
+        assertFalse(Files.exists(outside.resolve("x")));
+    }
+
+    @Test
+    public void rejectLinkOutsideOfFolder() throws IOException {
+        Path zip = tempDir.resolve("link.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            addFile(out, "A.app/Contents/Info.plist", "<plist/>");
+            addLink(out, "A.app/Contents/escape", "../../..");
+        }
+
+        assertThrows(IOException.class, () -> ZipExtractor.extract(zip, tempDir.resolve("extracted"), 4));
+    }
+
+    @Test
+    public void rejectLinkThroughOtherLinks() throws IOException {
+        Path zip = tempDir.resolve("chain.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            addFile(out, "A.app/Contents/Info.plist", "<plist/>");
+            addLink(out, "A.app/up", "Contents/../..");
+            addLink(out, "A.app/Contents/escape", "../up/..");
+        }
+
+        assertThrows(IOException.class, () -> ZipExtractor.extract(zip, tempDir.resolve("extracted"), 4));
+    }
+
+    @Test
+    public void extractLinksWithinFolder() throws IOException {
+        Path zip = tempDir.resolve("framework.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            addLink(out, "F.framework/F", "Versions/Current/F");
+            addLink(out, "F.framework/Versions/Current", "A");
+            addFile(out, "F.framework/Versions/A/F", "binary");
+        }
+
+        Path extracted = tempDir.resolve("extracted");
+        assertEquals(3, ZipExtractor.extract(zip, extracted, 4));
+        assertEquals("binary", Files.readString(extracted.resolve("F.framework/F")));
+        assertEquals(Path.of("A"), Files.readSymbolicLink(extracted.resolve("F.framework/Versions/Current")));
+    }
+
+    private static void addFile(ZipArchiveOutputStream out, String name, String content) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(0100644);
+        out.putArchiveEntry(entry);
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+    }
+
+    private static void addLink(ZipArchiveOutputStream out, String name, String target) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(0120777);
+        out.putArchiveEntry(entry);
+        out.write(target.getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+    }
+}
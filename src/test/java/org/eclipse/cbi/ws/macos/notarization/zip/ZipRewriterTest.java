@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License 2.0
+ * which is available at http://www.eclipse.org/legal/epl-v20.html
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.cbi.ws.macos.notarization.zip;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ZipRewriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void copyUnchangedEntriesVerbatim() throws IOException {
+        Path zip = tempDir.resolve("app.zip");
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zip)) {
+            // a compression level the rewriter does not use, to tell copied entries apart
+            out.setLevel(1);
+            addEntry(out, "A.app/", null, 040755);
+            addEntry(out, "A.app/Contents/MacOS/launcher", "#!/bin/sh\necho launcher\n".repeat(100), 0100755);
+            addEntry(out, "A.app/Contents/CodeResources", "unstapled", 0100644);
+            addEntry(out, "A.app/Contents/Info.plist", "<plist/>".repeat(100), 0100644);
+            addEntry(out, "A.app/Contents/obsolete", "obsolete", 0100644);
+        }
+        Path folder = extract(zip);
+
+        ZipRewriter rewriter = ZipRewriter.snapshot(zip, folder);
+        Map<String, byte[]> originalRawEntries = rawEntries(zip);
+        Files.writeString(folder.resolve("A.app/Contents/CodeResources"), "stapled ticket");
+        Files.writeString(folder.resolve("A.app/Contents/_CodeSignature"), "added");
+        Files.delete(folder.resolve("A.app/Contents/obsolete"));
+
+        assertEquals(7, rewriter.rewrite());
+
+        Map<String, byte[]> rewrittenRawEntries = rawEntries(zip);
+        assertArrayEquals(originalRawEntries.get("A.app/Contents/MacOS/launcher"), rewrittenRawEntries.get("A.app/Contents/MacOS/launcher"));
+        assertArrayEquals(originalRawEntries.get("A.app/Contents/Info.plist"), rewrittenRawEntries.get("A.app/Contents/Info.plist"));
+        assertFalse(rewrittenRawEntries.containsKey("A.app/Contents/obsolete"));
+
+        try (ZipFile rewritten = ZipFile.builder().setPath(zip).get()) {
+            assertEquals("stapled ticket", content(rewritten, "A.app/Contents/CodeResources"));
+            assertEquals("added", content(rewritten, "A.app/Contents/_CodeSignature"));
+            assertEquals("#!/bin/sh\necho launcher\n".repeat(100), content(rewritten, "A.app/Contents/MacOS/launcher"));
+            assertEquals(0100755, rewritten.getEntry("A.app/Contents/MacOS/launcher").getUnixMode());
+            assertEquals(0100644, rewritten.getEntry("A.app/Contents/CodeResources").getUnixMode());
+            assertNotNull(rewritten.getEntry("A.app/Contents/"));
+        }
+    }
+
+    @Test
+    public void packAndExtractInParallel() throws IOException {
+        Path folder = tempDir.resolve("bundle");
+        Files.createDirectories(folder.resolve("A.app/Contents/MacOS"));
+        byte[] large = new byte[3 * (int) ZipRewriter.BLOCK_DEFLATE_THRESHOLD / 2];
+        new Random(7).nextBytes(large);
+        Files.write(folder.resolve("A.app/Contents/MacOS/launcher"), large);
+        Files.setPosixFilePermissions(folder.resolve("A.app/Contents/MacOS/launcher"), PosixFilePermissions.fromString("rwxr-xr-x"));
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(folder.resolve("A.app/Contents/resource-" + i + ".txt"), ("resource " + i + "\n").repeat(i * 10));
+        }
+        Files.createSymbolicLink(folder.resolve("A.app/Contents/Current"), Path.of("MacOS"));
+        Path zip = tempDir.resolve("bundle.zip");
+
+        assertEquals(55, ZipRewriter.pack(folder, zip, 4));
+
+        // readable by another implementation
+        try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(zip.toFile())) {
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("A.app/Contents/MacOS/launcher"))) {
+                assertArrayEquals(large, in.readAllBytes());
+            }
+        }
+
+        Path extracted = tempDir.resolve("extracted");
+        assertEquals(55, ZipExtractor.extract(zip, extracted, 4));
+        assertArrayEquals(large, Files.readAllBytes(extracted.resolve("A.app/Contents/MacOS/launcher")));
+        assertEquals("rwxr-xr-x", PosixFilePermissions.toString(Files.getPosixFilePermissions(extracted.resolve("A.app/Contents/MacOS/launcher"))));
+        assertEquals(Path.of("MacOS"), Files.readSymbolicLink(extracted.resolve("A.app/Contents/Current")));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(("resource " + i + "\n").repeat(i * 10), Files.readString(extracted.resolve("A.app/Contents/resource-" + i + ".txt")));
+        }
+    }
+
+    private static void addEntry(ZipArchiveOutputStream out, String name, String content, int unixMode) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setUnixMode(unixMode);
+        out.putArchiveEntry(entry);
+        if (content != null) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeArchiveEntry();
+    }
+
+    private Path extract(Path zip) throws IOException {
+        Path folder = tempDir.resolve("app.zip-unzip");
+        try (ZipFile zipFile = ZipFile.builder().setPath(zip).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                Path file = folder.resolve(entry.getName());
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                } else {
+                    Files.createDirectories(file.getParent());
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        Files.copy(in, file);
+                    }
+                }
+            }
+        }
+        return folder;
+    }
+
+    private static Map<String, byte[]> rawEntries(Path zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipFile zipFile = ZipFile.builder().setPath(zip).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zipFile.getEntries())) {
+                try (InputStream in = zipFile.getRawInputStream(entry)) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String content(ZipFile zipFile, String name) throws IOException {
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}